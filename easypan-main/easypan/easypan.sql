@@ -9,12 +9,30 @@ CREATE TABLE `email_code` (
   PRIMARY KEY (`email`,`code`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='邮箱验证码';
 
+DROP TABLE IF EXISTS `email_outbox`;
+CREATE TABLE `email_outbox` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '自增ID',
+  `email` varchar(150) NOT NULL COMMENT '收件人邮箱',
+  `subject` varchar(200) DEFAULT NULL COMMENT '邮件主题',
+  `content` varchar(2000) DEFAULT NULL COMMENT '邮件内容',
+  `status` tinyint(1) DEFAULT '0' COMMENT '0:待发送 1:已发送 2:发送失败',
+  `retry_count` int(11) DEFAULT '0' COMMENT '已重试次数',
+  `next_send_time` datetime NOT NULL COMMENT '下次发送时间，发送中为租约到期时间',
+  `claim_token` varchar(36) DEFAULT NULL COMMENT '领取发送的批次标识',
+  `create_time` datetime DEFAULT NULL COMMENT '创建时间',
+  `last_update_time` datetime DEFAULT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_status_next_send` (`status`,`next_send_time`),
+  KEY `idx_claim_token` (`claim_token`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='邮件发件箱';
+
 DROP TABLE IF EXISTS `file_info`;
 CREATE TABLE `file_info` (
   `file_id` varchar(10) NOT NULL COMMENT '文件ID',
   `user_id` varchar(10) NOT NULL COMMENT '用户ID',
   `file_md5` varchar(32) DEFAULT NULL COMMENT 'md5值，第一次上传记录',
   `file_pid` varchar(10) DEFAULT NULL COMMENT '父级ID',
+  `file_pid_path` varchar(720) CHARACTER SET ascii DEFAULT NULL COMMENT '父级路径',
   `file_size` bigint(20) DEFAULT NULL COMMENT '文件大小',
   `file_name` varchar(200) DEFAULT NULL COMMENT '文件名称',
   `file_cover` varchar(100) DEFAULT NULL COMMENT '封面',
@@ -29,13 +47,27 @@ CREATE TABLE `file_info` (
   `del_flag` tinyint(1) DEFAULT '2' COMMENT '删除标记 0:删除  1:回收站  2:正常',
   PRIMARY KEY (`file_id`,`user_id`),
   KEY `idx_create_time` (`create_time`),
-  KEY `idx_user_id` (`user_id`),
   KEY `idx_md5` (`file_md5`) USING BTREE,
-  KEY `idx_file_pid` (`file_pid`),
-  KEY `idx_del_flag` (`del_flag`),
-  KEY `idx_recovery_time` (`recovery_time`)
+  KEY `idx_del_recovery_id` (`del_flag`,`recovery_time`,`file_id`),
+  KEY `idx_user_pid_del_time` (`user_id`,`file_pid`,`del_flag`,`last_update_time`,`file_id`),
+  KEY `idx_user_del_category_time` (`user_id`,`del_flag`,`file_category`,`last_update_time`,`file_id`),
+  KEY `idx_user_pid_name` (`user_id`,`file_pid`,`file_name`,`del_flag`),
+  KEY `idx_user_del_recovery` (`user_id`,`del_flag`,`recovery_time`),
+  KEY `idx_user_pid_path` (`user_id`,`file_pid_path`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件信息';
 
+DROP TABLE IF EXISTS `file_blob`;
+CREATE TABLE `file_blob` (
+  `file_md5` varchar(32) NOT NULL COMMENT 'md5值',
+  `file_path` varchar(100) DEFAULT NULL COMMENT '文件路径',
+  `file_size` bigint(20) DEFAULT NULL COMMENT '文件大小',
+  `ref_count` int(11) DEFAULT '0' COMMENT '引用计数',
+  `create_time` datetime DEFAULT NULL COMMENT '创建时间',
+  `last_update_time` datetime DEFAULT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`file_md5`),
+  KEY `idx_ref_count_time` (`ref_count`,`last_update_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件内容';
+
 DROP TABLE IF EXISTS `file_share`;
 CREATE TABLE `file_share` (
   `share_id` varchar(20) NOT NULL COMMENT '分享ID',
@@ -48,10 +80,26 @@ CREATE TABLE `file_share` (
   `show_count` int(11) DEFAULT '0' COMMENT '浏览次数',
   PRIMARY KEY (`share_id`),
   KEY `idx_file_id` (`file_id`),
-  KEY `idx_user_id` (`user_id`),
-  KEY `idx_share_time` (`share_time`)
+  KEY `idx_share_time` (`share_time`),
+  KEY `idx_user_share_time` (`user_id`,`share_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分享信息';
 
+DROP TABLE IF EXISTS `schema_version`;
+CREATE TABLE `schema_version` (
+  `version` int(11) NOT NULL COMMENT '版本号',
+  `description` varchar(200) DEFAULT NULL COMMENT '描述',
+  `installed_time` datetime DEFAULT NULL COMMENT '执行时间',
+  PRIMARY KEY (`version`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='数据库版本';
+
+-- 迁移脚本位于 src/main/resources/db/migration，命名为 V版本号__描述.sql，启动时自动执行未执行过的版本
+-- 本文件始终是最新的完整结构，新建库时直接记录为已执行全部迁移
+INSERT INTO `schema_version` VALUES ('1', 'composite index', now());
+INSERT INTO `schema_version` VALUES ('2', 'file blob', now());
+INSERT INTO `schema_version` VALUES ('3', 'file pid path', now());
+INSERT INTO `schema_version` VALUES ('4', 'file clean index', now());
+INSERT INTO `schema_version` VALUES ('5', 'email outbox', now());
+
 DROP TABLE IF EXISTS `user_info`;
 CREATE TABLE `user_info` (
   `user_id` varchar(10) NOT NULL COMMENT '用户ID',
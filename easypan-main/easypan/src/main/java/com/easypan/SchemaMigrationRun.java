@@ -0,0 +1,246 @@
+package com.easypan;
+
+import com.easypan.exception.BusinessException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 数据库迁移，在服务对外提供访问前执行
+ * 迁移脚本位于 classpath:db/migration，命名为 V版本号__描述.sql，按版本号顺序执行未执行过的脚本，
+ * 已执行的版本记录在 schema_version 表中
+ */
+@Component("schemaMigrationRun")
+public class SchemaMigrationRun {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrationRun.class);
+
+    private static final String MIGRATION_LOCATION = "classpath:db/migration/V*__*.sql";
+
+    private static final Pattern MIGRATION_NAME_PATTERN = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private static final String MIGRATION_LOCK_NAME = "easypan_schema";
+
+    /**
+     * 等待其他节点完成迁移的最长时间（秒）
+     */
+    private static final int MIGRATION_LOCK_TIMEOUT_SECONDS = 600;
+
+    /**
+     * 表示语句效果已存在的错误码：1050表已存在，1060列已存在，1061索引已存在，1091要删除的列或索引不存在
+     */
+    private static final Set<Integer> APPLIED_ERROR_CODES = Set.of(1050, 1060, 1061, 1091);
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 执行未执行过的迁移脚本，任一脚本失败则终止启动
+     * 多个节点同时启动时通过数据库命名锁串行执行，锁在整个迁移过程中持有
+     */
+    @PostConstruct
+    public void migrate() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                if (!acquireLock(statement)) {
+                    throw new BusinessException("获取数据库迁移锁超时");
+                }
+                try {
+                    migrate(statement);
+                } finally {
+                    statement.execute("SELECT RELEASE_LOCK('" + MIGRATION_LOCK_NAME + "')");
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 在持有迁移锁的连接上执行迁移，锁内重新读取当前版本，其他节点已完成的版本不再执行
+     *
+     * @param statement 持有迁移锁的连接上的语句
+     */
+    private void migrate(Statement statement) throws SQLException {
+        statement.execute("CREATE TABLE IF NOT EXISTS `schema_version` (" +
+                "`version` int(11) NOT NULL COMMENT '版本号'," +
+                "`description` varchar(200) DEFAULT NULL COMMENT '描述'," +
+                "`installed_time` datetime DEFAULT NULL COMMENT '执行时间'," +
+                "PRIMARY KEY (`version`)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='数据库版本'");
+        int currentVersion;
+        try (ResultSet resultSet = statement.executeQuery("select ifnull(max(version), 0) from schema_version")) {
+            resultSet.next();
+            currentVersion = resultSet.getInt(1);
+        }
+
+        List<Migration> migrationList = loadMigrations();
+        for (Migration migration : migrationList) {
+            if (migration.version <= currentVersion) {
+                continue;
+            }
+            logger.info("执行数据库迁移 V{}__{}", migration.version, migration.description);
+            try {
+                for (String sql : migration.statements) {
+                    executeStatement(statement, sql);
+                }
+            } catch (SQLException e) {
+                logger.error("数据库迁移失败 V{}__{}", migration.version, migration.description, e);
+                throw new BusinessException("数据库迁移失败");
+            }
+            try (PreparedStatement insert = statement.getConnection().prepareStatement(
+                    "insert into schema_version(version, description, installed_time) values(?, ?, now())")) {
+                insert.setInt(1, migration.version);
+                insert.setString(2, migration.description);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * 获取迁移锁
+     *
+     * @param statement 语句
+     * @return 是否获取成功
+     */
+    private boolean acquireLock(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("SELECT GET_LOCK('" + MIGRATION_LOCK_NAME + "', " + MIGRATION_LOCK_TIMEOUT_SECONDS + ")")) {
+            return resultSet.next() && resultSet.getInt(1) == 1;
+        }
+    }
+
+    /**
+     * 执行单条迁移语句
+     * MySQL的DDL会隐式提交，脚本中途失败时已执行的语句无法回滚，重新执行时这些语句会报对象已存在或不存在，
+     * 这类错误说明语句的效果已经生效，跳过后继续执行剩余语句
+     *
+     * @param statement 语句
+     * @param sql       迁移语句
+     */
+    private void executeStatement(Statement statement, String sql) throws SQLException {
+        try {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            if (!APPLIED_ERROR_CODES.contains(e.getErrorCode())) {
+                throw e;
+            }
+            logger.warn("迁移语句已生效，跳过:{}，原因:{}", sql, e.getMessage());
+        }
+    }
+
+    /**
+     * 读取并解析迁移脚本，按版本号排序
+     *
+     * @return 迁移脚本列表
+     */
+    private List<Migration> loadMigrations() {
+        List<Migration> migrationList = new ArrayList<>();
+        try {
+            for (org.springframework.core.io.Resource resource : new PathMatchingResourcePatternResolver().getResources(MIGRATION_LOCATION)) {
+                Matcher matcher = MIGRATION_NAME_PATTERN.matcher(resource.getFilename());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                String sql = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+                migrationList.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace("_", " "), splitStatements(sql)));
+            }
+        } catch (Exception e) {
+            logger.error("读取数据库迁移脚本失败", e);
+            throw new BusinessException("读取数据库迁移脚本失败");
+        }
+        migrationList.sort(Comparator.comparingInt(migration -> migration.version));
+        return migrationList;
+    }
+
+    /**
+     * 按分号拆分语句，规则与Spring的ScriptUtils一致（该方法在Spring 6中不再公开）：
+     * 引号（单引号、双引号、反引号）内的分号和注释符按原样保留，引号外的 -- 、# 行注释和 /* *\/ 块注释被去掉
+     *
+     * @param sql 脚本内容
+     * @return 语句列表
+     */
+    static List<String> splitStatements(String sql) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder statement = new StringBuilder();
+        char quote = 0;
+        int length = sql.length();
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                statement.append(c);
+                if (c == '\\' && quote != '`' && i + 1 < length) {
+                    statement.append(sql.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+                statement.append(c);
+            } else if (c == '#' || (c == '-' && sql.startsWith("--", i) && (i + 2 == length || Character.isWhitespace(sql.charAt(i + 2))))) {
+                int lineEnd = sql.indexOf('\n', i);
+                if (lineEnd == -1) {
+                    break;
+                }
+                i = lineEnd - 1;
+            } else if (c == '/' && sql.startsWith("/*", i)) {
+                int commentEnd = sql.indexOf("*/", i + 2);
+                if (commentEnd == -1) {
+                    throw new BusinessException("迁移脚本中的块注释未结束");
+                }
+                statement.append(' ');
+                i = commentEnd + 1;
+            } else if (c == ';') {
+                addStatement(statements, statement);
+            } else {
+                statement.append(c);
+            }
+        }
+        if (quote != 0) {
+            throw new BusinessException("迁移脚本中的引号未结束");
+        }
+        addStatement(statements, statement);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder statement) {
+        String sql = statement.toString().trim();
+        if (!sql.isEmpty()) {
+            statements.add(sql);
+        }
+        statement.setLength(0);
+    }
+
+    /**
+     * 迁移脚本
+     */
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final List<String> statements;
+
+        Migration(int version, String description, List<String> statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+}
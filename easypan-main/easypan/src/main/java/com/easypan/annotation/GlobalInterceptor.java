@@ -40,4 +40,13 @@ public @interface GlobalInterceptor {
      * @return 是否需要进行管理员权限校验
      */
     boolean checkAdmin() default false;
+
+    /**
+     * 限流规则
+     * 可以同时设置多条规则，例如按IP和按参数值各限制一次，任何一条超限都拒绝请求
+     * 默认值为空，表示不限流
+     *
+     * @return 限流规则
+     */
+    RateLimit[] rateLimit() default {};
 }
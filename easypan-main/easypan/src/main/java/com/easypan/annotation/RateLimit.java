@@ -0,0 +1,29 @@
+package com.easypan.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 限流规则，用于 @GlobalInterceptor 的 rateLimit 属性
+ * 在滑动时间窗口内，同一个限流对象最多请求 permits 次，超过时拒绝请求
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface RateLimit {
+    /**
+     * 时间窗口内允许的请求次数
+     */
+    int permits();
+
+    /**
+     * 时间窗口长度（秒），默认为60秒
+     */
+    int seconds() default 60;
+
+    /**
+     * 限流对象取值的参数名，默认为空，表示按客户端IP限流
+     * 设置时按该参数的值限流，例如按分享ID限制所有来源的尝试次数
+     */
+    String keyParam() default "";
+}
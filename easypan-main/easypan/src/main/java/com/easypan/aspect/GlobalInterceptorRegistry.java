@@ -0,0 +1,252 @@
+package com.easypan.aspect;
+
+import com.easypan.annotation.GlobalInterceptor;
+import com.easypan.annotation.RateLimit;
+import com.easypan.annotation.VerifyParam;
+import jakarta.annotation.Resource;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 全局拦截器方法注册表
+ * 启动时把所有带 @GlobalInterceptor 注解的接口方法编译为不可变的执行计划：限流规则、是否校验登录、管理员，
+ * 以及需要校验的参数下标、校验规则和预编译的正则；切面按计划执行，请求时不再解析注解和反射查找方法、字段
+ */
+@Component("globalInterceptorRegistry")
+public class GlobalInterceptorRegistry implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(GlobalInterceptorRegistry.class);
+
+    /**
+     * 按值校验的参数类型，其他类型的参数校验其字段
+     */
+    private static final Set<Class<?>> TYPE_BASE = Set.of(String.class, Integer.class, Long.class);
+
+    private final Map<Method, InterceptorPlan> planMap = new ConcurrentHashMap<>();
+
+    @Resource(name = "requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping requestMappingHandlerMapping;
+
+    /**
+     * 容器启动完成后编译所有接口方法的执行计划
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        for (HandlerMethod handlerMethod : requestMappingHandlerMapping.getHandlerMethods().values()) {
+            Method method = handlerMethod.getMethod();
+            if (method.isAnnotationPresent(GlobalInterceptor.class)) {
+                planMap.computeIfAbsent(method, this::compile);
+            }
+        }
+        logger.info("全局拦截器执行计划编译完成，方法数:{}", planMap.size());
+    }
+
+    /**
+     * 获取方法的执行计划，启动时未编译的方法（非接口方法）在首次调用时编译
+     *
+     * @param method 被拦截的方法
+     * @return 执行计划，方法上没有 @GlobalInterceptor 注解时返回null
+     */
+    public InterceptorPlan getPlan(Method method) {
+        InterceptorPlan plan = planMap.get(method);
+        if (plan == null && method.isAnnotationPresent(GlobalInterceptor.class)) {
+            plan = planMap.computeIfAbsent(method, this::compile);
+        }
+        return plan;
+    }
+
+    /**
+     * 编译方法的执行计划
+     *
+     * @param method 带 @GlobalInterceptor 注解的方法
+     * @return 执行计划
+     */
+    private InterceptorPlan compile(Method method) {
+        GlobalInterceptor interceptor = method.getAnnotation(GlobalInterceptor.class);
+        List<ParamRule> paramRules = new ArrayList<>();
+        if (interceptor.checkParams()) {
+            Parameter[] parameters = method.getParameters();
+            for (int i = 0; i < parameters.length; i++) {
+                VerifyParam verifyParam = parameters[i].getAnnotation(VerifyParam.class);
+                if (verifyParam == null) {
+                    continue;
+                }
+                if (TYPE_BASE.contains(parameters[i].getType())) {
+                    paramRules.add(new ParamRule(i, new ValueRule(verifyParam), null));
+                } else {
+                    paramRules.add(new ParamRule(i, null, compileFieldRules(parameters[i].getType())));
+                }
+            }
+        }
+        return new InterceptorPlan(compileRateRules(method, interceptor.rateLimit()), interceptor.checkLogin() || interceptor.checkAdmin(),
+                interceptor.checkAdmin(), paramRules.toArray(new ParamRule[0]));
+    }
+
+    /**
+     * 编译限流规则，按参数值限流的规则预先找到参数下标
+     *
+     * @param method 被拦截的方法
+     * @param rateLimits 注解上的限流规则
+     * @return 限流规则
+     */
+    private RateRule[] compileRateRules(Method method, RateLimit[] rateLimits) {
+        RateRule[] rateRules = new RateRule[rateLimits.length];
+        Parameter[] parameters = method.getParameters();
+        String keyPrefix = method.getDeclaringClass().getSimpleName() + "." + method.getName() + ":";
+        for (int i = 0; i < rateLimits.length; i++) {
+            RateLimit rateLimit = rateLimits[i];
+            if (rateLimit.permits() <= 0 || rateLimit.seconds() <= 0) {
+                throw new IllegalStateException("限流规则的次数和窗口长度必须大于0:" + method);
+            }
+            int paramIndex = -1;
+            if (!rateLimit.keyParam().isEmpty()) {
+                for (int j = 0; j < parameters.length; j++) {
+                    if (parameters[j].getName().equals(rateLimit.keyParam())) {
+                        paramIndex = j;
+                        break;
+                    }
+                }
+                if (paramIndex == -1) {
+                    throw new IllegalStateException("限流参数不存在:" + method + " " + rateLimit.keyParam());
+                }
+            }
+            rateRules[i] = new RateRule(keyPrefix + i + ":", paramIndex, rateLimit.permits(), rateLimit.seconds() * 1000L);
+        }
+        return rateRules;
+    }
+
+    /**
+     * 编译对象参数中带 @VerifyParam 注解的字段的校验规则，字段通过预先生成的方法句柄读取
+     *
+     * @param type 参数类型
+     * @return 字段校验规则
+     */
+    private FieldRule[] compileFieldRules(Class<?> type) {
+        List<FieldRule> fieldRules = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            VerifyParam verifyParam = field.getAnnotation(VerifyParam.class);
+            if (verifyParam == null || Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                MethodHandle getter = MethodHandles.lookup().unreflectGetter(field);
+                fieldRules.add(new FieldRule(field.getName(), getter, new ValueRule(verifyParam)));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("无法读取校验字段:" + type.getName() + "." + field.getName(), e);
+            }
+        }
+        return fieldRules.toArray(new FieldRule[0]);
+    }
+
+    /**
+     * 方法的执行计划
+     */
+    @Getter
+    public static final class InterceptorPlan {
+        private final RateRule[] rateRules;
+        private final boolean checkLogin;
+        private final boolean checkAdmin;
+        private final ParamRule[] paramRules;
+
+        InterceptorPlan(RateRule[] rateRules, boolean checkLogin, boolean checkAdmin, ParamRule[] paramRules) {
+            this.rateRules = rateRules;
+            this.checkLogin = checkLogin;
+            this.checkAdmin = checkAdmin;
+            this.paramRules = paramRules;
+        }
+    }
+
+    /**
+     * 限流规则，参数下标为-1时按客户端IP限流
+     */
+    @Getter
+    public static final class RateRule {
+        private final String keyPrefix;
+        private final int paramIndex;
+        private final int permits;
+        private final long windowMillis;
+
+        RateRule(String keyPrefix, int paramIndex, int permits, long windowMillis) {
+            this.keyPrefix = keyPrefix;
+            this.paramIndex = paramIndex;
+            this.permits = permits;
+            this.windowMillis = windowMillis;
+        }
+    }
+
+    /**
+     * 参数的校验规则，基本类型参数校验值，对象参数校验字段
+     */
+    @Getter
+    public static final class ParamRule {
+        private final int index;
+        private final ValueRule valueRule;
+        private final FieldRule[] fieldRules;
+
+        ParamRule(int index, ValueRule valueRule, FieldRule[] fieldRules) {
+            this.index = index;
+            this.valueRule = valueRule;
+            this.fieldRules = fieldRules;
+        }
+    }
+
+    /**
+     * 对象字段的校验规则
+     */
+    @Getter
+    public static final class FieldRule {
+        private final String name;
+        @Getter(AccessLevel.NONE)
+        private final MethodHandle getter;
+        private final ValueRule valueRule;
+
+        FieldRule(String name, MethodHandle getter, ValueRule valueRule) {
+            this.name = name;
+            this.getter = getter;
+            this.valueRule = valueRule;
+        }
+
+        public Object getValue(Object target) throws Throwable {
+            return getter.invoke(target);
+        }
+    }
+
+    /**
+     * 值的校验规则，由 @VerifyParam 注解编译而来
+     */
+    @Getter
+    public static final class ValueRule {
+        private final boolean required;
+        private final int min;
+        private final int max;
+        private final Pattern pattern;
+
+        ValueRule(VerifyParam verifyParam) {
+            this.required = verifyParam.required();
+            this.min = verifyParam.min();
+            this.max = verifyParam.max();
+            this.pattern = verifyParam.regex().getPattern();
+        }
+    }
+}
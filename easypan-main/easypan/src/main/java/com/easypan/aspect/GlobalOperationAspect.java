@@ -1,16 +1,19 @@
 package com.easypan.aspect;
 
-import com.easypan.annotation.GlobalInterceptor;
-import com.easypan.annotation.VerifyParam;
+import com.easypan.aspect.GlobalInterceptorRegistry.FieldRule;
+import com.easypan.aspect.GlobalInterceptorRegistry.InterceptorPlan;
+import com.easypan.aspect.GlobalInterceptorRegistry.ParamRule;
+import com.easypan.aspect.GlobalInterceptorRegistry.RateRule;
+import com.easypan.aspect.GlobalInterceptorRegistry.ValueRule;
+import com.easypan.component.RateLimiterComponent;
 import com.easypan.entity.constants.Constants;
 import com.easypan.entity.dto.SessionWebUserDto;
 import com.easypan.entity.enums.ResponseCodeEnum;
 import com.easypan.exception.BusinessException;
 import com.easypan.utils.StringTools;
-import com.easypan.utils.VerifyUtils;
+import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
-import org.apache.commons.lang3.ArrayUtils;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
@@ -22,9 +25,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.Objects;
 
 @Aspect
@@ -32,7 +33,12 @@ import java.util.Objects;
 public class GlobalOperationAspect {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalOperationAspect.class);
-    private static final String[] TYPE_BASE = {"java.lang.String", "java.lang.Integer", "java.lang.Long"};
+
+    @Resource
+    private GlobalInterceptorRegistry globalInterceptorRegistry;
+
+    @Resource
+    private RateLimiterComponent rateLimiterComponent;
 
     /**
      * 切入点方法，用于拦截带有特定注解的请求
@@ -49,37 +55,32 @@ public class GlobalOperationAspect {
 
     /**
      * 在执行请求拦截器之前进行的操作
-     * 该方法主要用于处理全局拦截器逻辑，包括登录验证、权限验证和参数校验
+     * 该方法主要用于处理全局拦截器逻辑，包括限流、登录验证、权限验证和参数校验
      *
      * @param point 切入点对象，提供了关于当前执行方法的信息
      * @throws BusinessException 当验证失败或出现业务异常时抛出
      */
     @Before("requestInterceptor()")
     public void interceptorDo(JoinPoint point) throws BusinessException {
+        // 取出启动时编译好的执行计划
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
+        InterceptorPlan plan = globalInterceptorRegistry.getPlan(method);
+        // 如果方法上没有 @GlobalInterceptor 注解，直接返回
+        if (plan == null) {
+            return;
+        }
+        // 最先限流，超限的请求不再查会话、校验参数和访问数据库，也不记录异常日志，避免暴力尝试刷屏
+        if (plan.getRateRules().length > 0) {
+            checkRateLimit(plan.getRateRules(), point.getArgs());
+        }
         try {
-            // 获取目标对象（执行被拦截方法的对象）
-            Object target = point.getTarget();
-            // 获取方法参数
-            Object[] args = point.getArgs();
-            // 获取方法名
-            String methodName = point.getSignature().getName();
-            // 获取方法的参数类型
-            Class<?>[] parameterTypes = ((MethodSignature) point.getSignature()).getMethod().getParameterTypes();
-            // 通过反射获取方法对象
-            Method method = target.getClass().getMethod(methodName, parameterTypes);
-            // 获取方法上的 @GlobalInterceptor 注解
-            GlobalInterceptor interceptor = method.getAnnotation(GlobalInterceptor.class);
-            // 如果方法上没有 @GlobalInterceptor 注解，直接返回
-            if (interceptor == null) {
-                return;
-            }
             // 校验登录
-            if (interceptor.checkLogin() || interceptor.checkAdmin()) {
-                checkLogin(interceptor.checkAdmin());
+            if (plan.isCheckLogin()) {
+                checkLogin(plan.isCheckAdmin());
             }
-            // 如果注解要求校验参数，则进行参数校验
-            if (interceptor.checkParams()) {
-                validateParams(method, args);
+            // 按计划校验参数，不需要校验参数时规则为空
+            if (plan.getParamRules().length > 0) {
+                validateParams(plan.getParamRules(), point.getArgs());
             }
         } catch (BusinessException e) {
             // 记录业务异常日志并重新抛出
@@ -92,6 +93,44 @@ public class GlobalOperationAspect {
         }
     }
 
+    /**
+     * 按限流规则记录本次请求，任何一条规则超限都拒绝请求
+     *
+     * @param rateRules 限流规则
+     * @param arguments 被拦截的方法的参数值数组
+     * @throws BusinessException 超限时抛出
+     */
+    private void checkRateLimit(RateRule[] rateRules, Object[] arguments) {
+        String ip = null;
+        for (RateRule rateRule : rateRules) {
+            String key;
+            if (rateRule.getParamIndex() == -1) {
+                if (ip == null) {
+                    ip = getClientIp();
+                }
+                key = rateRule.getKeyPrefix() + ip;
+            } else {
+                Object value = arguments[rateRule.getParamIndex()];
+                key = rateRule.getKeyPrefix() + (value == null ? "" : value.toString());
+            }
+            if (!rateLimiterComponent.tryAcquire(key, rateRule.getPermits(), rateRule.getWindowMillis())) {
+                throw new BusinessException(ResponseCodeEnum.CODE_905);
+            }
+        }
+    }
+
+    /**
+     * 获取客户端IP
+     * 使用容器解析出的远端地址，部署在代理之后时通过 server.forward-headers-strategy 让容器按代理头解析，
+     * 不直接读取 X-Forwarded-For，避免客户端伪造请求头绕过限流
+     *
+     * @return 客户端IP
+     */
+    private String getClientIp() {
+        HttpServletRequest request = ((ServletRequestAttributes) Objects.requireNonNull(RequestContextHolder.getRequestAttributes())).getRequest();
+        return request.getRemoteAddr();
+    }
+
     /**
      * 检查用户登录状态及权限
      * 此方法用于验证当前用户是否已登录，以及在需要时验证用户是否具有管理员权限
@@ -121,100 +160,70 @@ public class GlobalOperationAspect {
     /**
      * 校验参数
      *
-     * @param m 被拦截的方法
+     * @param paramRules 参数校验规则
      * @param arguments 被拦截的方法的参数值数组
      */
-    private void validateParams(Method m, Object[] arguments) {
-        // 获取方法的所有参数
-        Parameter[] parameters = m.getParameters();
-        // 遍历每一个参数
-        for (int i = 0; i < parameters.length; ++i) {
-            Parameter parameter = parameters[i]; // 当前参数
-            Object value = arguments[i]; // 当前参数的值
-            // 获取参数上的 @VerifyParam 注解
-            VerifyParam verifyParam = parameter.getAnnotation(VerifyParam.class);
-            // 如果参数上没有 @VerifyParam 注解，则跳过该参数
-            if (verifyParam == null) {
-                continue;
-            }
-            // 如果参数是基本数据类型
-            if (ArrayUtils.contains(TYPE_BASE, parameter.getParameterizedType().getTypeName())) {
-                // 对基本数据类型的参数值进行校验
-                checkValue(value, verifyParam);
+    private void validateParams(ParamRule[] paramRules, Object[] arguments) {
+        for (ParamRule paramRule : paramRules) {
+            Object value = arguments[paramRule.getIndex()];
+            if (paramRule.getValueRule() != null) {
+                // 基本数据类型的参数直接校验值
+                checkValue(value, paramRule.getValueRule());
             } else {
-                // 如果参数是对象类型，对对象类型的参数值进行校验
-                checkObjValue(parameter, value);
+                // 对象类型的参数校验其字段
+                checkObjValue(paramRule.getFieldRules(), value);
             }
         }
     }
 
     /**
-     * 通过反射机制获取对象的字段，并检查字段上的 @VerifyParam 注解，验证字段的值是否符合注解定义的条件。
+     * 通过预先生成的字段读取方法获取对象的字段值，验证是否符合字段上 @VerifyParam 注解定义的条件
      *
-     * @param parameter Parameter 参数
+     * @param fieldRules 字段校验规则
      * @param value 参数的值
      */
-    private void checkObjValue(Parameter parameter, Object value) {
+    private void checkObjValue(FieldRule[] fieldRules, Object value) {
         try {
-            // 获取参数的类型名称
-            String typeName = parameter.getParameterizedType().getTypeName();
-            // 根据类型名称获取类对象
-            Class<?> classz = Class.forName(typeName);
-            // 获取类的所有字段
-            Field[] fields = classz.getDeclaredFields();
-            // 遍历每一个字段
-            for (Field field : fields) {
-                // 获取字段上的 @VerifyParam 注解
-                VerifyParam fieldVerifyParam = field.getAnnotation(VerifyParam.class);
-                // 如果字段上没有 @VerifyParam 注解，则跳过该字段
-                if (fieldVerifyParam == null) {
-                    continue;
-                }
-                // 设置字段可访问
-                field.setAccessible(true);
-                // 获取value对象中该字段的值
-                Object resultValue = field.get(value);
-                // 验证字段的值
-                checkValue(resultValue, fieldVerifyParam);
+            for (FieldRule fieldRule : fieldRules) {
+                checkValue(fieldRule.getValue(value), fieldRule.getValueRule());
             }
         } catch (BusinessException e) {
             logger.error("校验参数失败", e);
             throw e;
-        } catch (Exception e) {
+        } catch (Throwable e) {
             logger.error("校验参数失败", e);
             throw new BusinessException(ResponseCodeEnum.CODE_600);
         }
     }
 
     /**
-     * 校验值是否符合给定的验证参数
+     * 校验值是否符合给定的校验规则
      *
      * @param value 要校验的值，可以是任何类型，但通常为字符串
-     * @param verifyParam 包含校验规则的对象，定义了值应遵循的验证参数
-     * @throws BusinessException 当值不符合验证参数时抛出的异常
+     * @param valueRule 校验规则
+     * @throws BusinessException 当值不符合校验规则时抛出的异常
      */
-    private void checkValue(Object value, VerifyParam verifyParam) {
+    private void checkValue(Object value, ValueRule valueRule) {
+        String strValue = value == null ? null : value.toString();
         // 判断值是否为空
-        boolean isEmpty = value == null || StringTools.isEmpty(value.toString());
-        // 计算值的长度
-        int length = value == null ? 0 : value.toString().length();
+        boolean isEmpty = StringTools.isEmpty(strValue);
 
         // 校验空
-        if (isEmpty && verifyParam.required()) {
-            throw new BusinessException(ResponseCodeEnum.CODE_600);
+        if (isEmpty) {
+            if (valueRule.isRequired()) {
+                throw new BusinessException(ResponseCodeEnum.CODE_600);
+            }
+            return;
         }
 
         // 校验长度
-        if (!isEmpty &&
-            (verifyParam.max() != -1 && verifyParam.max() < length ||
-            verifyParam.min() != -1 && verifyParam.min() > length)) {
+        int length = strValue.length();
+        if (valueRule.getMax() != -1 && valueRule.getMax() < length || valueRule.getMin() != -1 && valueRule.getMin() > length) {
             throw new BusinessException(ResponseCodeEnum.CODE_600);
         }
 
-        // 校验正则
-        if (!isEmpty &&
-            !StringTools.isEmpty(verifyParam.regex().getRegex()) &&
-            !VerifyUtils.verify(verifyParam.regex(), String.valueOf(value))) {
+        // 校验正则，使用预编译的正则
+        if (valueRule.getPattern() != null && !valueRule.getPattern().matcher(strValue).matches()) {
             throw new BusinessException(ResponseCodeEnum.CODE_600);
         }
     }
@@ -0,0 +1,25 @@
+package com.easypan.component;
+
+import jakarta.annotation.Resource;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 本地缓存清除消息监听器，收到其他节点发布的消息后清除本节点的本地缓存
+ */
+@Component("cacheEvictListener")
+public class CacheEvictListener implements MessageListener {
+
+    @Resource
+    @Lazy
+    private RedisComponent redisComponent;
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        redisComponent.onCacheEvict(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,119 @@
+package com.easypan.component;
+
+import com.easypan.entity.enums.FileStatusEnums;
+import com.easypan.entity.po.FileInfo;
+import com.easypan.entity.query.FileInfoQuery;
+import com.easypan.mappers.FileInfoMapper;
+import com.easypan.utils.BloomFilter;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 秒传过滤器组件
+ * 用布隆过滤器记录已有文件的MD5，上传首个分片时过滤器判断为不存在则无需查询数据库
+ * 过滤器只在本节点内存中，其他节点新合并的文件要等下次重建才会加入，期间只会少秒传，不影响正确性
+ */
+@Component("fileMd5FilterComponent")
+public class FileMd5FilterComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileMd5FilterComponent.class);
+
+    /**
+     * 构建时每批读取的MD5数
+     */
+    private static final int LOAD_BATCH_SIZE = 5000;
+
+    /**
+     * 期望的误判率
+     */
+    private static final double FPP = 0.01;
+
+    /**
+     * 预留的增长空间，按当前文件数的倍数分配容量，保证两次重建之间新增文件后误判率不明显上升
+     */
+    private static final double GROWTH_FACTOR = 1.5;
+
+    /**
+     * 最小容量
+     */
+    private static final long MIN_EXPECTED_INSERTIONS = 100000;
+
+    @Resource
+    private FileInfoMapper<FileInfo, FileInfoQuery> fileInfoMapper;
+
+    /**
+     * 当前使用的过滤器，首次构建完成前为null
+     */
+    private volatile BloomFilter filter;
+
+    /**
+     * 正在构建的过滤器，构建期间新增的MD5同时写入
+     */
+    private volatile BloomFilter buildingFilter;
+
+    /**
+     * 判断MD5是否可能已存在
+     *
+     * @param fileMd5 文件MD5
+     * @return false表示一定不存在；过滤器未构建完成时返回true
+     */
+    public boolean mightExist(String fileMd5) {
+        BloomFilter current = filter;
+        return current == null || current.mightContain(fileMd5);
+    }
+
+    /**
+     * 记录新的MD5，须在文件状态置为使用中并提交后调用
+     * 先写构建中的过滤器再写当前过滤器：读到构建中为null时构建尚未开始，构建时会从数据库读到该MD5
+     *
+     * @param fileMd5 文件MD5
+     */
+    public void add(String fileMd5) {
+        if (fileMd5 == null) {
+            return;
+        }
+        BloomFilter building = buildingFilter;
+        if (building != null) {
+            building.put(fileMd5);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(fileMd5);
+        }
+    }
+
+    /**
+     * 从数据库重新构建过滤器，构建完成后替换当前过滤器，被删除文件的MD5随之清除
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        FileInfoQuery infoQuery = new FileInfoQuery();
+        infoQuery.setStatus(FileStatusEnums.USING.getStatus());
+        long expectedInsertions = Math.max((long) (fileInfoMapper.selectCount(infoQuery) * GROWTH_FACTOR), MIN_EXPECTED_INSERTIONS);
+        BloomFilter building = new BloomFilter(expectedInsertions, FPP);
+        buildingFilter = building;
+        long count = 0;
+        try {
+            String lastFileMd5 = null;
+            List<String> md5List;
+            do {
+                md5List = fileInfoMapper.selectFileMd5Batch(FileStatusEnums.USING.getStatus(), lastFileMd5, LOAD_BATCH_SIZE);
+                for (String fileMd5 : md5List) {
+                    building.put(fileMd5);
+                }
+                count += md5List.size();
+                if (!md5List.isEmpty()) {
+                    lastFileMd5 = md5List.get(md5List.size() - 1);
+                }
+            } while (md5List.size() == LOAD_BATCH_SIZE);
+            filter = building;
+        } finally {
+            buildingFilter = null;
+        }
+        logger.info("秒传过滤器构建完成，MD5数:{}，耗时:{}ms", count, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,181 @@
+package com.easypan.component;
+
+import com.easypan.entity.constants.Constants;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 限流组件，滑动时间窗口计数
+ * 每个限流对象在Redis中一个有序集合，成员为每次请求，分值为请求时间，判断和记录在一个脚本中完成，多个节点共享计数；
+ * Redis不可用时退化为本节点内存计数，按键分段加锁，此时每个节点单独计数
+ */
+@Component("rateLimiterComponent")
+public class RateLimiterComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiterComponent.class);
+
+    /**
+     * 滑动窗口限流脚本，删除窗口外的请求后判断窗口内的请求数，未超限时记录本次请求
+     * KEYS[1]:限流对象 ARGV[1]:当前时间（毫秒） ARGV[2]:窗口长度（毫秒） ARGV[3]:允许次数 ARGV[4]:本次请求标识
+     */
+    private static final RedisScript<Long> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) " +
+            "local window = tonumber(ARGV[2]) " +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window) " +
+            "if redis.call('ZCARD', KEYS[1]) >= tonumber(ARGV[3]) then return 0 end " +
+            "redis.call('ZADD', KEYS[1], now, ARGV[4]) " +
+            "redis.call('PEXPIRE', KEYS[1], window) " +
+            "return 1", Long.class);
+
+    /**
+     * 判断窗口内的请求数是否已达上限，不记录本次请求
+     * KEYS[1]:限流对象 ARGV[1]:当前时间（毫秒） ARGV[2]:窗口长度（毫秒） ARGV[3]:允许次数
+     */
+    private static final RedisScript<Long> LIMITED_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', tonumber(ARGV[1]) - tonumber(ARGV[2])) " +
+            "if redis.call('ZCARD', KEYS[1]) >= tonumber(ARGV[3]) then return 1 end " +
+            "return 0", Long.class);
+
+    /**
+     * 本地计数的分段数
+     */
+    private static final int STRIPE_COUNT = 64;
+
+    /**
+     * 分段内的限流对象数超过该值时清理过期的对象
+     */
+    private static final int STRIPE_SWEEP_SIZE = 1024;
+
+    /**
+     * Redis不可用的告警间隔（毫秒）
+     */
+    private static final long WARN_INTERVAL_MILLIS = 1000 * 60;
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    private volatile long lastWarnTime;
+
+    public RateLimiterComponent() {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * 尝试记录一次请求
+     *
+     * @param key 限流对象
+     * @param permits 窗口内允许的请求次数
+     * @param windowMillis 窗口长度（毫秒）
+     * @return 未超限返回true，超限返回false
+     */
+    public boolean tryAcquire(String key, int permits, long windowMillis) {
+        long now = System.currentTimeMillis();
+        try {
+            String requestId = now + "-" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+            Long result = redisUtils.executeScript(SLIDING_WINDOW_SCRIPT, Collections.singletonList(Constants.REDIS_KEY_RATE_LIMIT + key),
+                    String.valueOf(now), String.valueOf(windowMillis), String.valueOf(permits), requestId);
+            return result != null && result == 1;
+        } catch (Exception e) {
+            if (now - lastWarnTime > WARN_INTERVAL_MILLIS) {
+                lastWarnTime = now;
+                logger.warn("Redis限流失败，改用本节点计数", e);
+            }
+            return stripes[(key.hashCode() & 0x7fffffff) % STRIPE_COUNT].tryAcquire(key, permits, windowMillis, now);
+        }
+    }
+
+    /**
+     * 判断窗口内的请求数是否已达上限，不记录本次请求；与record配合，只对部分请求（如失败的请求）计数
+     *
+     * @param key 限流对象
+     * @param permits 窗口内允许的请求次数
+     * @param windowMillis 窗口长度（毫秒）
+     * @return 已达上限返回true
+     */
+    public boolean isLimited(String key, int permits, long windowMillis) {
+        long now = System.currentTimeMillis();
+        try {
+            Long result = redisUtils.executeScript(LIMITED_SCRIPT, Collections.singletonList(Constants.REDIS_KEY_RATE_LIMIT + key),
+                    String.valueOf(now), String.valueOf(windowMillis), String.valueOf(permits));
+            return result != null && result == 1;
+        } catch (Exception e) {
+            if (now - lastWarnTime > WARN_INTERVAL_MILLIS) {
+                lastWarnTime = now;
+                logger.warn("Redis限流失败，改用本节点计数", e);
+            }
+            return stripes[(key.hashCode() & 0x7fffffff) % STRIPE_COUNT].isLimited(key, permits, windowMillis, now);
+        }
+    }
+
+    /**
+     * 记录一次请求，不判断是否超限
+     *
+     * @param key 限流对象
+     * @param windowMillis 窗口长度（毫秒）
+     */
+    public void record(String key, long windowMillis) {
+        tryAcquire(key, Integer.MAX_VALUE, windowMillis);
+    }
+
+    /**
+     * 本地计数的一个分段，保存一部分限流对象窗口内的请求时间
+     */
+    private static final class Stripe {
+
+        private final Map<String, ArrayDeque<Long>> windows = new HashMap<>();
+
+        synchronized boolean tryAcquire(String key, int permits, long windowMillis, long now) {
+            if (windows.size() >= STRIPE_SWEEP_SIZE) {
+                sweep(now, windowMillis);
+            }
+            ArrayDeque<Long> window = windows.computeIfAbsent(key, k -> new ArrayDeque<>());
+            while (!window.isEmpty() && window.peekFirst() <= now - windowMillis) {
+                window.pollFirst();
+            }
+            if (window.size() >= permits) {
+                return false;
+            }
+            window.addLast(now);
+            return true;
+        }
+
+        synchronized boolean isLimited(String key, int permits, long windowMillis, long now) {
+            ArrayDeque<Long> window = windows.get(key);
+            if (window == null) {
+                return false;
+            }
+            while (!window.isEmpty() && window.peekFirst() <= now - windowMillis) {
+                window.pollFirst();
+            }
+            return window.size() >= permits;
+        }
+
+        /**
+         * 删除最后一次请求已在窗口外的限流对象，窗口长度不同的对象按本次的窗口长度近似判断
+         */
+        private void sweep(long now, long windowMillis) {
+            Iterator<ArrayDeque<Long>> iterator = windows.values().iterator();
+            while (iterator.hasNext()) {
+                ArrayDeque<Long> window = iterator.next();
+                if (window.isEmpty() || window.peekLast() <= now - windowMillis) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
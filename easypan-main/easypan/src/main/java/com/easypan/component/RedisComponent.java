@@ -1,13 +1,29 @@
 package com.easypan.component;
 
 import com.easypan.entity.constants.Constants;
+import com.easypan.entity.dto.ShareViewDto;
 import com.easypan.entity.dto.SysSettingsDto;
+import com.easypan.entity.dto.TranscodeJobDto;
 import com.easypan.entity.dto.UserSpaceDto;
-import com.easypan.entity.po.FileInfo;
-import com.easypan.entity.query.FileInfoQuery;
-import com.easypan.mappers.FileInfoMapper;
+import com.easypan.entity.po.UserInfo;
+import com.easypan.entity.query.UserInfoQuery;
+import com.easypan.mappers.UserInfoMapper;
+import com.easypan.utils.LocalCache;
 import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Redis组件，用于处理与Redis相关的操作
@@ -19,78 +35,558 @@ public class RedisComponent {
     @Resource
     private RedisUtils redisUtils;
 
-    // 注入FileInfoMapper，用于文件信息的数据库操作
+    // 注入UserInfoMapper，用于读取用户的已使用空间和总空间
+    @Resource
+    private UserInfoMapper<UserInfo, UserInfoQuery> userInfoMapper;
+
+    // 注入视频播放缓存组件，用于清除本节点的视频分片目录缓存
     @Resource
-    private FileInfoMapper<FileInfo, FileInfoQuery> fileInfoMapper;
+    private VideoCacheComponent videoCacheComponent;
+
+    // 本地缓存名称，用于发布订阅通知其他节点清除缓存
+    private static final String CACHE_SYS_SETTING = "syssetting";
+    private static final String CACHE_USER_SPACE = "userspace:";
+    private static final String CACHE_SHARE_VIEW = "shareview:";
+    private static final String CACHE_USER_SHARE_VIEW = "usershareview:";
+    private static final String CACHE_USER_VIDEO_FOLDER = "uservideofolder:";
+
+    // 系统设置本地缓存，设置很少修改，修改时通过发布订阅清除
+    private final LocalCache<String, SysSettingsDto> sysSettingsCache = new LocalCache<>(1, 10 * 60 * 1000L);
+
+    // 用户空间本地缓存，过期时间较短，兜底发布订阅消息丢失的情况
+    private final LocalCache<String, UserSpaceDto> userSpaceCache = new LocalCache<>(10000, 30 * 1000L);
+
+    // 分享页面本地缓存，分享、文件或分享者信息修改时通过发布订阅清除，过期时间兜底消息丢失的情况
+    private final LocalCache<String, ShareViewDto> shareViewCache = new LocalCache<>(10000, 60 * 1000L);
+
+    // 用户空间哈希表中的字段
+    private static final String FIELD_USE_SPACE = "useSpace";
+    private static final String FIELD_TOTAL_SPACE = "totalSpace";
+
+    /**
+     * 预留空间脚本
+     * KEYS[1]:用户空间 KEYS[2]:用户空间预留 ARGV[1]:文件ID ARGV[2]:预留大小 ARGV[3]:当前时间（秒） ARGV[4]:预留有效期（秒）
+     * 返回 -1:用户空间未加载 0:空间不足 1:预留成功
+     */
+    private static final RedisScript<Long> RESERVE_SPACE_SCRIPT = new DefaultRedisScript<>(
+            "local use = redis.call('HGET', KEYS[1], 'useSpace') " +
+            "local total = redis.call('HGET', KEYS[1], 'totalSpace') " +
+            "if not use or not total then return -1 end " +
+            "local now = tonumber(ARGV[3]) " +
+            "local reserved = 0 " +
+            "local current = 0 " +
+            "local entries = redis.call('HGETALL', KEYS[2]) " +
+            "for i = 1, #entries, 2 do " +
+            "  local size, time = string.match(entries[i + 1], '(%d+):(%d+)') " +
+            "  if now - tonumber(time) > tonumber(ARGV[4]) then " +
+            "    redis.call('HDEL', KEYS[2], entries[i]) " +
+            "  else " +
+            "    reserved = reserved + tonumber(size) " +
+            "    if entries[i] == ARGV[1] then current = tonumber(size) end " +
+            "  end " +
+            "end " +
+            "local size = tonumber(ARGV[2]) " +
+            "if tonumber(use) + reserved + size > tonumber(total) then return 0 end " +
+            "redis.call('HSET', KEYS[2], ARGV[1], string.format('%d:%d', current + size, now)) " +
+            "return 1", Long.class);
+
+    /**
+     * 释放预留脚本
+     * KEYS[1]:用户空间预留 ARGV[1]:文件ID ARGV[2]:释放大小
+     */
+    private static final RedisScript<Long> RELEASE_SPACE_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('HGET', KEYS[1], ARGV[1]) " +
+            "if not value then return 0 end " +
+            "local size, time = string.match(value, '(%d+):(%d+)') " +
+            "local left = tonumber(size) - tonumber(ARGV[2]) " +
+            "if left <= 0 then redis.call('HDEL', KEYS[1], ARGV[1]) " +
+            "else redis.call('HSET', KEYS[1], ARGV[1], string.format('%d:%s', left, time)) end " +
+            "return 1", Long.class);
+
+    /**
+     * 记入已使用空间脚本
+     * KEYS[1]:用户空间 KEYS[2]:用户空间预留 KEYS[3]:待落库增量 ARGV[1]:文件ID ARGV[2]:增量 ARGV[3]:用户ID
+     * 返回 -1:用户空间未加载 0:空间不足 1:成功
+     */
+    private static final RedisScript<Long> COMMIT_SPACE_SCRIPT = new DefaultRedisScript<>(
+            "local use = redis.call('HGET', KEYS[1], 'useSpace') " +
+            "local total = redis.call('HGET', KEYS[1], 'totalSpace') " +
+            "if not use or not total then return -1 end " +
+            "local size = tonumber(ARGV[2]) " +
+            "if size > 0 and redis.call('HEXISTS', KEYS[2], ARGV[1]) == 0 then " +
+            "  local reserved = 0 " +
+            "  local values = redis.call('HVALS', KEYS[2]) " +
+            "  for i = 1, #values do " +
+            "    reserved = reserved + tonumber(string.match(values[i], '(%d+):')) " +
+            "  end " +
+            "  if tonumber(use) + reserved + size > tonumber(total) then return 0 end " +
+            "end " +
+            "redis.call('HDEL', KEYS[2], ARGV[1]) " +
+            "redis.call('HINCRBY', KEYS[1], 'useSpace', size) " +
+            "redis.call('HINCRBY', KEYS[3], ARGV[3], size) " +
+            "return 1", Long.class);
+
+    /**
+     * 取出并删除待落库增量脚本
+     * KEYS[1]:待落库增量 ARGV[1]:用户ID
+     */
+    private static final RedisScript<Long> DRAIN_DELTA_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('HGET', KEYS[1], ARGV[1]) " +
+            "if not value then return 0 end " +
+            "redis.call('HDEL', KEYS[1], ARGV[1]) " +
+            "return tonumber(value)", Long.class);
+
+    /**
+     * 获取任务锁脚本，锁的值为持有者标识，按字符串存储以便比较
+     * KEYS[1]:锁 ARGV[1]:持有者标识 ARGV[2]:有效期（秒）
+     */
+    private static final RedisScript<Long> TRY_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'EX', tonumber(ARGV[2])) then return 1 end " +
+            "return 0", Long.class);
+
+    /**
+     * 续期任务锁脚本，只有持有者能续期
+     * KEYS[1]:锁 ARGV[1]:持有者标识 ARGV[2]:有效期（秒）
+     */
+    private static final RedisScript<Long> RENEW_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('EXPIRE', KEYS[1], tonumber(ARGV[2])) end " +
+            "return 0", Long.class);
+
+    /**
+     * 释放任务锁脚本，只有持有者能释放，锁过期后被其他节点获取时不会误删
+     * KEYS[1]:锁 ARGV[1]:持有者标识
+     */
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    /**
+     * 保存邮箱验证码脚本，覆盖该邮箱之前的验证码，验证码按字符串存储以便比较
+     * KEYS[1]:验证码 ARGV[1]:验证码 ARGV[2]:有效期（秒）
+     */
+    private static final RedisScript<Long> SAVE_EMAIL_CODE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('SET', KEYS[1], ARGV[1], 'EX', tonumber(ARGV[2])) " +
+            "return 1", Long.class);
+
+    /**
+     * 校验邮箱验证码脚本，不删除
+     * KEYS[1]:验证码 ARGV[1]:用户输入的验证码
+     * 返回 1:正确 0:不正确 -1:不存在或已过期
+     */
+    private static final RedisScript<Long> CHECK_EMAIL_CODE_SCRIPT = new DefaultRedisScript<>(
+            "local code = redis.call('GET', KEYS[1]) " +
+            "if not code then return -1 end " +
+            "if code ~= ARGV[1] then return 0 end " +
+            "return 1", Long.class);
+
+    /**
+     * 校验并删除邮箱验证码脚本，验证码正确时删除，保证只能使用一次；期间重新发送了验证码时不会删除新的验证码
+     * KEYS[1]:验证码 ARGV[1]:用户输入的验证码
+     * 返回 1:正确 0:不正确 -1:不存在或已过期
+     */
+    private static final RedisScript<Long> CONSUME_EMAIL_CODE_SCRIPT = new DefaultRedisScript<>(
+            "local code = redis.call('GET', KEYS[1]) " +
+            "if not code then return -1 end " +
+            "if code ~= ARGV[1] then return 0 end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return 1", Long.class);
 
     /**
      * 获取系统设置信息
-     * 首先尝试从Redis中获取，如果获取失败则创建新实例并存入Redis
+     * 优先从本地缓存获取，本地缓存未命中时从Redis获取，Redis中不存在则创建新实例并存入Redis
      *
      * @return SysSettingsDto 系统设置信息对象
      */
     public SysSettingsDto getSysSettingsDto() {
-        // 从Redis中获取系统设置信息
-        SysSettingsDto sysSettingsDto = (SysSettingsDto) redisUtils.get(Constants.REDIS_KEY_SYS_SETTING);
-        if (sysSettingsDto == null) {
-            // 如果Redis中不存在系统设置信息，则创建新实例
-            sysSettingsDto = new SysSettingsDto();
-            // 将新创建的系统设置信息实例存入Redis
-            redisUtils.set(Constants.REDIS_KEY_SYS_SETTING, sysSettingsDto);
+        return sysSettingsCache.get(Constants.REDIS_KEY_SYS_SETTING, key -> {
+            // 从Redis中获取系统设置信息
+            SysSettingsDto sysSettingsDto = (SysSettingsDto) redisUtils.get(key);
+            if (sysSettingsDto == null) {
+                // 如果Redis中不存在系统设置信息，则创建新实例
+                sysSettingsDto = new SysSettingsDto();
+                // 将新创建的系统设置信息实例存入Redis
+                redisUtils.set(key, sysSettingsDto);
+            }
+            return sysSettingsDto;
+        });
+    }
+
+    /**
+     * 保存系统设置信息
+     * 写入Redis后通知所有节点清除本地缓存
+     *
+     * @param sysSettingsDto 系统设置信息对象
+     */
+    public void saveSysSettingsDto(SysSettingsDto sysSettingsDto) {
+        redisUtils.set(Constants.REDIS_KEY_SYS_SETTING, sysSettingsDto);
+        evictLocalCache(CACHE_SYS_SETTING);
+    }
+
+    /**
+     * 清除本地缓存，并通过Redis发布订阅通知其他节点
+     *
+     * @param cacheName 缓存名称，用户空间为 CACHE_USER_SPACE + 用户ID
+     */
+    private void evictLocalCache(String cacheName) {
+        onCacheEvict(cacheName);
+        redisUtils.publish(Constants.REDIS_CHANNEL_CACHE_EVICT, cacheName);
+    }
+
+    /**
+     * 收到清除缓存消息，清除本节点的本地缓存
+     *
+     * @param cacheName 缓存名称
+     */
+    public void onCacheEvict(String cacheName) {
+        if (CACHE_SYS_SETTING.equals(cacheName)) {
+            sysSettingsCache.clear();
+        } else if (cacheName.startsWith(CACHE_USER_SPACE)) {
+            userSpaceCache.remove(cacheName.substring(CACHE_USER_SPACE.length()));
+        } else if (cacheName.startsWith(CACHE_SHARE_VIEW)) {
+            shareViewCache.remove(cacheName.substring(CACHE_SHARE_VIEW.length()));
+        } else if (cacheName.startsWith(CACHE_USER_SHARE_VIEW)) {
+            String userId = cacheName.substring(CACHE_USER_SHARE_VIEW.length());
+            shareViewCache.removeValues(shareView -> userId.equals(shareView.getShare().getUserId()));
+        } else if (cacheName.startsWith(CACHE_USER_VIDEO_FOLDER)) {
+            videoCacheComponent.removeUserVideoFolders(cacheName.substring(CACHE_USER_VIDEO_FOLDER.length()));
         }
-        return sysSettingsDto;
     }
 
     /**
-     * 保存用户空间使用信息到Redis
-     * 使用带有过期时间的设置，过期时间常量为REDIS_KEY_EXPIRES_DAY
+     * 在当前事务提交后清除本地缓存，没有事务时立即清除
+     * 事务提交前清除时，并发的请求可能读到未提交前的数据并重新放入缓存
+     *
+     * @param cacheName 缓存名称
+     */
+    private void evictLocalCacheAfterCommit(String cacheName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictLocalCache(cacheName);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictLocalCache(cacheName);
+            }
+        });
+    }
+
+    /**
+     * 获取分享页面信息
+     * 优先从本地缓存获取，未命中时调用loader从数据库组装
+     *
+     * @param shareId 分享ID
+     * @param loader 组装函数，分享无效时返回null，不缓存
+     * @return 分享页面信息，分享无效时返回null
+     */
+    public ShareViewDto getShareView(String shareId, Function<String, ShareViewDto> loader) {
+        return shareViewCache.get(shareId, loader);
+    }
+
+    /**
+     * 清除分享页面缓存，用于取消分享
+     *
+     * @param shareId 分享ID
+     */
+    public void evictShareView(String shareId) {
+        evictLocalCacheAfterCommit(CACHE_SHARE_VIEW + shareId);
+    }
+
+    /**
+     * 清除用户所有分享的页面缓存，用于删除、移动文件和修改昵称、头像
+     *
+     * @param userId 分享者的用户ID
+     */
+    public void evictUserShareView(String userId) {
+        evictLocalCacheAfterCommit(CACHE_USER_SHARE_VIEW + userId);
+    }
+
+    /**
+     * 清除用户所有视频的分片目录缓存，包括通过该用户的分享访问时缓存的，用于文件放入回收站、彻底删除和取消分享
+     *
+     * @param userId 文件所属的用户ID
+     */
+    public void evictUserVideoFolder(String userId) {
+        evictLocalCacheAfterCommit(CACHE_USER_VIDEO_FOLDER + userId);
+    }
+
+    /**
+     * 保存用户空间信息到Redis
+     * 总空间直接覆盖；已使用空间取自user_info.use_space，只在Redis中不存在时写入，并加上尚未落库的增量
      *
      * @param userId 用户ID
      * @param userSpaceDto 用户空间使用信息对象
      */
     public void saveUserSpaceUse(String userId, UserSpaceDto userSpaceDto) {
-        redisUtils.sites(Constants.REDIS_KEY_USER_SPACE_USE + userId, userSpaceDto, Constants.REDIS_KEY_EXPIRES_DAY);
+        String key = Constants.REDIS_KEY_USER_SPACE_QUOTA + userId;
+        redisUtils.hset(key, FIELD_TOTAL_SPACE, userSpaceDto.getTotalSpace());
+        Long useSpace = userSpaceDto.getUseSpace() == null ? 0L : userSpaceDto.getUseSpace();
+        redisUtils.hsetIfAbsent(key, FIELD_USE_SPACE, useSpace + getPendingUserSpaceDelta(userId));
+        evictLocalCache(CACHE_USER_SPACE + userId);
     }
 
     /**
      * 获取用户空间使用信息
-     * 首先尝试从Redis中获取，如果获取失败则从数据库中查询并存入Redis
+     * 优先从本地缓存获取；空间信息保存在Redis哈希表中，不存在时从数据库加载
      *
      * @param userId 用户ID
      * @return UserSpaceDto 用户空间使用信息对象
      */
     public UserSpaceDto getUserSpaceDto(String userId) {
-        // 从Redis中获取用户空间使用信息
-        UserSpaceDto spaceDto = (UserSpaceDto) redisUtils.get(Constants.REDIS_KEY_USER_SPACE_USE + userId);
-        if (spaceDto == null) {
-            // 如果Redis中不存在该用户的空间使用信息，则初始化UserSpaceDto对象
-            spaceDto = new UserSpaceDto();
-            // 从数据库中查询用户已使用的空间大小
-            Long useSpace = fileInfoMapper.selectUseSpace(userId);
-            spaceDto.setUseSpace(useSpace);
-            // 设置用户的总空间大小，这里使用系统设置中的用户初始空间大小
-            spaceDto.setTotalSpace(getSysSettingsDto().getUserInitUseSpace() * Constants.MB);
-            // 将用户空间使用信息保存到Redis中
-            saveUserSpaceUse(userId, spaceDto);
+        return userSpaceCache.get(userId, this::loadUserSpaceDto);
+    }
+
+    /**
+     * 从Redis获取用户空间使用信息
+     *
+     * @param userId 用户ID
+     * @return UserSpaceDto 用户空间使用信息对象
+     */
+    private UserSpaceDto loadUserSpaceDto(String userId) {
+        Map<Object, Object> quota = redisUtils.hgetAll(Constants.REDIS_KEY_USER_SPACE_QUOTA + userId);
+        if (!quota.containsKey(FIELD_USE_SPACE) || !quota.containsKey(FIELD_TOTAL_SPACE)) {
+            initUserSpace(userId);
+            quota = redisUtils.hgetAll(Constants.REDIS_KEY_USER_SPACE_QUOTA + userId);
         }
+        UserSpaceDto spaceDto = new UserSpaceDto();
+        spaceDto.setUseSpace(toLong(quota.get(FIELD_USE_SPACE)));
+        spaceDto.setTotalSpace(toLong(quota.get(FIELD_TOTAL_SPACE)));
         return spaceDto;
     }
 
+    /**
+     * 预留用户空间
+     * 在一个Lua脚本中检查剩余空间并记录预留，分片并发上传时不会超出总空间；
+     * 预留按文件ID记录，超过一小时未更新的预留视为上传已放弃，自动释放
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     * @param size 预留大小
+     * @return 空间足够并预留成功返回true
+     */
+    public boolean reserveUserSpace(String userId, String fileId, Long size) {
+        List<String> keys = Arrays.asList(Constants.REDIS_KEY_USER_SPACE_QUOTA + userId, Constants.REDIS_KEY_USER_SPACE_RESERVED + userId);
+        String now = String.valueOf(System.currentTimeMillis() / 1000);
+        String expire = String.valueOf(Constants.REDIS_KEY_EXPIRES_ONE_HOUR);
+        Long result = redisUtils.executeScript(RESERVE_SPACE_SCRIPT, keys, fileId, String.valueOf(size), now, expire);
+        if (result != null && result < 0) {
+            initUserSpace(userId);
+            result = redisUtils.executeScript(RESERVE_SPACE_SCRIPT, keys, fileId, String.valueOf(size), now, expire);
+        }
+        return result != null && result > 0;
+    }
+
+    /**
+     * 释放用户空间预留，用于分片上传失败或重复上传
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     * @param size 释放大小
+     */
+    public void releaseUserSpace(String userId, String fileId, Long size) {
+        redisUtils.executeScript(RELEASE_SPACE_SCRIPT, Collections.singletonList(Constants.REDIS_KEY_USER_SPACE_RESERVED + userId),
+                fileId, String.valueOf(size));
+    }
+
+    /**
+     * 释放文件的全部空间预留，用于乱序上传的文件最终秒传，已到达的分片不再需要空间
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     */
+    public void releaseAllUserSpace(String userId, String fileId) {
+        redisUtils.hdel(Constants.REDIS_KEY_USER_SPACE_RESERVED + userId, fileId);
+    }
+
+    /**
+     * 记入用户已使用空间
+     * 有预留时转为已使用，没有预留时（如秒传）检查剩余空间；增量同时记入待落库哈希表，由定时任务批量写入数据库
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID，没有预留时可为空
+     * @param size 已使用空间增量，可为负数
+     * @return 空间足够并记入成功返回true
+     */
+    public boolean commitUserSpace(String userId, String fileId, Long size) {
+        List<String> keys = Arrays.asList(Constants.REDIS_KEY_USER_SPACE_QUOTA + userId, Constants.REDIS_KEY_USER_SPACE_RESERVED + userId,
+                Constants.REDIS_KEY_USER_SPACE_PENDING);
+        String reserveField = fileId == null ? "" : fileId;
+        Long result = redisUtils.executeScript(COMMIT_SPACE_SCRIPT, keys, reserveField, String.valueOf(size), userId);
+        if (result != null && result < 0) {
+            initUserSpace(userId);
+            result = redisUtils.executeScript(COMMIT_SPACE_SCRIPT, keys, reserveField, String.valueOf(size), userId);
+        }
+        boolean success = result != null && result > 0;
+        if (success) {
+            evictLocalCache(CACHE_USER_SPACE + userId);
+        }
+        return success;
+    }
+
+    /**
+     * 取出并清空所有待落库的已使用空间增量
+     *
+     * @return 用户ID -> 增量
+     */
+    public Map<String, Long> drainUserSpaceDelta() {
+        Map<String, Long> deltaMap = new HashMap<>();
+        List<String> keys = Collections.singletonList(Constants.REDIS_KEY_USER_SPACE_PENDING);
+        for (Object userId : redisUtils.hkeys(Constants.REDIS_KEY_USER_SPACE_PENDING)) {
+            Long delta = redisUtils.executeScript(DRAIN_DELTA_SCRIPT, keys, userId.toString());
+            if (delta != null && delta != 0) {
+                deltaMap.put(userId.toString(), delta);
+            }
+        }
+        return deltaMap;
+    }
+
+    /**
+     * 落库失败时放回已使用空间增量，下次重试
+     *
+     * @param deltaMap 用户ID -> 增量
+     */
+    public void restoreUserSpaceDelta(Map<String, Long> deltaMap) {
+        for (Map.Entry<String, Long> entry : deltaMap.entrySet()) {
+            redisUtils.hincrement(Constants.REDIS_KEY_USER_SPACE_PENDING, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 从数据库加载用户空间信息到Redis，已存在的字段不覆盖
+     *
+     * @param userId 用户ID
+     */
+    private void initUserSpace(String userId) {
+        UserInfo userInfo = userInfoMapper.selectByUserId(userId);
+        String key = Constants.REDIS_KEY_USER_SPACE_QUOTA + userId;
+        // 用户的总空间大小，用户不存在时使用系统设置中的用户初始空间大小
+        Long totalSpace = userInfo != null && userInfo.getTotalSpace() != null ? userInfo.getTotalSpace()
+                : getSysSettingsDto().getUserInitUseSpace() * Constants.MB;
+        redisUtils.hsetIfAbsent(key, FIELD_TOTAL_SPACE, totalSpace);
+        // user_info.use_space是已使用空间的权威值，加上尚未落库的增量
+        Long useSpace = userInfo != null && userInfo.getUseSpace() != null ? userInfo.getUseSpace() : 0L;
+        redisUtils.hsetIfAbsent(key, FIELD_USE_SPACE, useSpace + getPendingUserSpaceDelta(userId));
+    }
+
+    /**
+     * 获取尚未落库的已使用空间增量
+     *
+     * @param userId 用户ID
+     * @return 增量，没有时返回0
+     */
+    public Long getPendingUserSpaceDelta(String userId) {
+        return toLong(redisUtils.hget(Constants.REDIS_KEY_USER_SPACE_PENDING, userId));
+    }
+
+    /**
+     * 将Redis中读取的数值转换为Long
+     *
+     * @param value Redis中读取的值
+     * @return Long值，为空返回0
+     */
+    private Long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            return Long.parseLong((String) value);
+        }
+        return 0L;
+    }
+
     /**
      * 保存文件临时大小到Redis
-     * 将当前大小与新文件大小相加后存入Redis，并设置过期时间为一小时
+     * 使用INCRBY原子累加，分片并发上传时不会互相覆盖，并设置过期时间为一小时
      *
      * @param userId 用户ID
      * @param fileId 文件ID
      * @param fileSize 文件大小
      */
     public void saveFileTempSize(String userId, String fileId, Long fileSize) {
-        // 获取当前文件的临时大小
-        Long currentSize = getFileTempSize(userId, fileId);
-        // 将当前大小与新文件大小相加，并将结果存入Redis
-        // 使用用户ID和文件ID作为键的一部分，以确保键的唯一性
-        // 设置过期时间为一小时，以避免临时大小数据长时间占用内存
-        redisUtils.sites(Constants.REDIS_KEY_USER_FILE_TEMP_SIZE + userId + fileId, currentSize + fileSize, Constants.REDIS_KEY_EXPIRES_ONE_HOUR);
+        String key = Constants.REDIS_KEY_USER_FILE_TEMP_SIZE + userId + fileId;
+        redisUtils.increment(key, fileSize);
+        redisUtils.expire(key, Constants.REDIS_KEY_EXPIRES_ONE_HOUR);
+    }
+
+    /**
+     * 在分片位图中标记分片已接收
+     * 位图以用户ID和文件ID为键，每个分片占一位，过期时间与临时文件大小一致
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     * @param chunkIndex 分片索引
+     * @return 该分片此前未接收过返回true，重复上传返回false
+     */
+    public boolean markChunkUploaded(String userId, String fileId, Integer chunkIndex) {
+        String key = Constants.REDIS_KEY_USER_FILE_CHUNK_BITMAP + userId + fileId;
+        boolean received = redisUtils.setBit(key, chunkIndex, true);
+        redisUtils.expire(key, Constants.REDIS_KEY_EXPIRES_ONE_HOUR);
+        return !received;
+    }
+
+    /**
+     * 获取已接收的分片数量
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     * @return 已接收的分片数量
+     */
+    public long getUploadedChunkCount(String userId, String fileId) {
+        return redisUtils.bitCount(Constants.REDIS_KEY_USER_FILE_CHUNK_BITMAP + userId + fileId);
+    }
+
+    /**
+     * 获取尚未接收的分片索引
+     * Redis位图按字节从高位到低位存储，第i个分片对应第i/8个字节的第7-i%8位
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     * @param chunks 总分片数
+     * @return 缺失的分片索引列表，按升序排列
+     */
+    public List<Integer> getMissingChunks(String userId, String fileId, Integer chunks) {
+        byte[] bitmap = redisUtils.getBitmap(Constants.REDIS_KEY_USER_FILE_CHUNK_BITMAP + userId + fileId);
+        List<Integer> missingChunks = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            int byteIndex = i >> 3;
+            boolean received = bitmap != null && byteIndex < bitmap.length && (bitmap[byteIndex] & (0x80 >>> (i & 7))) != 0;
+            if (!received) {
+                missingChunks.add(i);
+            }
+        }
+        return missingChunks;
+    }
+
+    /**
+     * 抢占文件合并权，分片全部到达后只允许一个请求写入文件记录
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     * @return 抢占成功返回true
+     */
+    public boolean tryLockFileMerge(String userId, String fileId) {
+        return redisUtils.setIfAbsent(Constants.REDIS_KEY_USER_FILE_MERGE_LOCK + userId + fileId, fileId, Constants.REDIS_KEY_EXPIRES_ONE_HOUR);
+    }
+
+    /**
+     * 释放文件合并权
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     */
+    public void unlockFileMerge(String userId, String fileId) {
+        redisUtils.delete(Constants.REDIS_KEY_USER_FILE_MERGE_LOCK + userId + fileId);
+    }
+
+    /**
+     * 清除上传进度，包括临时文件大小和分片位图
+     *
+     * @param userId 用户ID
+     * @param fileId 文件ID
+     */
+    public void clearUploadProgress(String userId, String fileId) {
+        redisUtils.delete(Constants.REDIS_KEY_USER_FILE_TEMP_SIZE + userId + fileId);
+        redisUtils.delete(Constants.REDIS_KEY_USER_FILE_CHUNK_BITMAP + userId + fileId);
     }
 
     /**
@@ -130,4 +626,250 @@ public class RedisComponent {
         return 0L;
     }
 
+    /**
+     * 添加视频转码任务
+     * 任务保存在Redis列表中，服务重启后不会丢失
+     *
+     * @param job 转码任务
+     */
+    public void addTranscodeJob(TranscodeJobDto job) {
+        redisUtils.lpush(Constants.REDIS_KEY_TRANSCODE_PENDING, job);
+    }
+
+    /**
+     * 取出一个转码任务，同时移入本节点的处理中列表，处理完成前任务不会丢失
+     *
+     * @param nodeId  节点标识
+     * @param timeout 没有任务时阻塞等待的时间（秒）
+     * @return 转码任务，超时返回null
+     */
+    public TranscodeJobDto takeTranscodeJob(String nodeId, long timeout) {
+        return (TranscodeJobDto) redisUtils.blockingMove(Constants.REDIS_KEY_TRANSCODE_PENDING,
+                Constants.REDIS_KEY_TRANSCODE_PROCESSING_NODE + nodeId, timeout);
+    }
+
+    /**
+     * 转码任务处理结束，从本节点的处理中列表移除
+     *
+     * @param nodeId 节点标识
+     * @param job    转码任务
+     */
+    public void finishTranscodeJob(String nodeId, TranscodeJobDto job) {
+        redisUtils.lremove(Constants.REDIS_KEY_TRANSCODE_PROCESSING_NODE + nodeId, job);
+    }
+
+    /**
+     * 续期转码节点租约，租约记录在有序集合中，分数为租约到期时间
+     *
+     * @param nodeId 节点标识
+     * @param expire 租约有效期（秒）
+     */
+    public void renewTranscodeNodeLease(String nodeId, long expire) {
+        redisUtils.zadd(Constants.REDIS_KEY_TRANSCODE_NODE_LEASE, nodeId, System.currentTimeMillis() + expire * 1000);
+    }
+
+    /**
+     * 使转码节点租约立即过期，停机后其他节点可以马上接管该节点未完成的任务
+     *
+     * @param nodeId 节点标识
+     */
+    public void expireTranscodeNodeLease(String nodeId) {
+        redisUtils.zadd(Constants.REDIS_KEY_TRANSCODE_NODE_LEASE, nodeId, 0);
+    }
+
+    /**
+     * 将租约已过期节点的处理中任务放回待处理列表，存活节点的任务不受影响
+     * LMOVE逐个移动，多个节点同时回收时任务也不会重复入队
+     *
+     * @return 放回的任务数量
+     */
+    public int requeueExpiredTranscodeJobs() {
+        int count = 0;
+        Set<Object> expiredNodes = redisUtils.zrangeByScore(Constants.REDIS_KEY_TRANSCODE_NODE_LEASE, 0, System.currentTimeMillis());
+        if (expiredNodes != null) {
+            for (Object nodeId : expiredNodes) {
+                count += requeueTranscodeJobs(Constants.REDIS_KEY_TRANSCODE_PROCESSING_NODE + nodeId);
+                redisUtils.zremove(Constants.REDIS_KEY_TRANSCODE_NODE_LEASE, nodeId);
+            }
+        }
+        // 旧版本所有节点共用的处理中列表，升级后不再写入，其中遗留的任务一并放回
+        count += requeueTranscodeJobs(Constants.REDIS_KEY_TRANSCODE_PROCESSING);
+        return count;
+    }
+
+    private int requeueTranscodeJobs(String processingKey) {
+        int count = 0;
+        while (redisUtils.move(processingKey, Constants.REDIS_KEY_TRANSCODE_PENDING) != null) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 获取回收站清理任务锁，多个节点中只有一个执行清理
+     *
+     * @param owner 持有者标识
+     * @param expire 有效期（秒）
+     * @return 获取成功返回true
+     */
+    public boolean tryLockFileClean(String owner, long expire) {
+        return redisUtils.executeScript(TRY_LOCK_SCRIPT, Collections.singletonList(Constants.REDIS_KEY_FILE_CLEAN_LOCK),
+                owner, String.valueOf(expire)) == 1;
+    }
+
+    /**
+     * 续期回收站清理任务锁
+     *
+     * @param owner 持有者标识
+     * @param expire 有效期（秒）
+     * @return 仍持有锁返回true，锁已过期或被其他节点获取返回false
+     */
+    public boolean renewFileCleanLock(String owner, long expire) {
+        return redisUtils.executeScript(RENEW_LOCK_SCRIPT, Collections.singletonList(Constants.REDIS_KEY_FILE_CLEAN_LOCK),
+                owner, String.valueOf(expire)) == 1;
+    }
+
+    /**
+     * 释放回收站清理任务锁
+     *
+     * @param owner 持有者标识
+     */
+    public void unlockFileClean(String owner) {
+        redisUtils.executeScript(UNLOCK_SCRIPT, Collections.singletonList(Constants.REDIS_KEY_FILE_CLEAN_LOCK), owner);
+    }
+
+    /**
+     * 获取回收站清理进度
+     *
+     * @return 上次处理到的位置，格式为 回收时间毫秒数:文件ID，没有进度时返回null
+     */
+    public String getFileCleanCheckpoint() {
+        return (String) redisUtils.get(Constants.REDIS_KEY_FILE_CLEAN_CHECKPOINT);
+    }
+
+    /**
+     * 保存回收站清理进度，中断后下次从该位置继续
+     *
+     * @param checkpoint 处理到的位置，格式为 回收时间毫秒数:文件ID
+     */
+    public void saveFileCleanCheckpoint(String checkpoint) {
+        redisUtils.sites(Constants.REDIS_KEY_FILE_CLEAN_CHECKPOINT, checkpoint, Constants.REDIS_KEY_EXPIRES_DAY);
+    }
+
+    /**
+     * 清除回收站清理进度，一轮清理完成后调用
+     */
+    public void clearFileCleanCheckpoint() {
+        redisUtils.delete(Constants.REDIS_KEY_FILE_CLEAN_CHECKPOINT);
+    }
+
+    /**
+     * 保存邮箱验证码，之前发送的验证码失效
+     *
+     * @param email 邮箱
+     * @param code 验证码
+     * @param expire 有效期（秒）
+     */
+    public void saveEmailCode(String email, String code, long expire) {
+        redisUtils.executeScript(SAVE_EMAIL_CODE_SCRIPT, Collections.singletonList(Constants.REDIS_KEY_EMAIL_CODE + email),
+                code, String.valueOf(expire));
+    }
+
+    /**
+     * 校验邮箱验证码，不删除
+     *
+     * @param email 邮箱
+     * @param code 用户输入的验证码
+     * @return 1:正确 0:不正确 -1:不存在或已过期
+     */
+    public long checkEmailCode(String email, String code) {
+        return redisUtils.executeScript(CHECK_EMAIL_CODE_SCRIPT, Collections.singletonList(Constants.REDIS_KEY_EMAIL_CODE + email), code);
+    }
+
+    /**
+     * 校验邮箱验证码，正确时删除
+     *
+     * @param email 邮箱
+     * @param code 用户输入的验证码
+     * @return 1:正确 0:不正确 -1:不存在或已过期
+     */
+    public long consumeEmailCode(String email, String code) {
+        return redisUtils.executeScript(CONSUME_EMAIL_CODE_SCRIPT, Collections.singletonList(Constants.REDIS_KEY_EMAIL_CODE + email), code);
+    }
+
+    /**
+     * 事务提交后删除邮箱验证码，事务回滚时验证码仍可使用；没有事务时立即删除
+     *
+     * @param email 邮箱
+     * @param code 已校验通过的验证码
+     */
+    public void consumeEmailCodeAfterCommit(String email, String code) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            consumeEmailCode(email, code);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                consumeEmailCode(email, code);
+            }
+        });
+    }
+
+    /**
+     * 记入一次分享浏览，由定时任务批量写入数据库
+     *
+     * @param shareId 分享ID
+     */
+    public void addShareShowCount(String shareId) {
+        redisUtils.hincrement(Constants.REDIS_KEY_SHARE_SHOW_COUNT_PENDING, shareId, 1);
+    }
+
+    /**
+     * 获取尚未落库的分享浏览次数
+     *
+     * @param shareIdList 分享ID
+     * @return 分享ID -> 未落库的浏览次数，没有未落库次数的分享不在结果中
+     */
+    public Map<String, Long> getPendingShareShowCount(List<String> shareIdList) {
+        Map<String, Long> countMap = new HashMap<>();
+        if (shareIdList.isEmpty()) {
+            return countMap;
+        }
+        List<Object> values = redisUtils.hmget(Constants.REDIS_KEY_SHARE_SHOW_COUNT_PENDING, shareIdList);
+        for (int i = 0; i < shareIdList.size(); i++) {
+            if (values.get(i) != null) {
+                countMap.put(shareIdList.get(i), Long.parseLong(values.get(i).toString()));
+            }
+        }
+        return countMap;
+    }
+
+    /**
+     * 取出并清空所有待落库的分享浏览次数
+     *
+     * @return 分享ID -> 浏览次数
+     */
+    public Map<String, Long> drainShareShowCount() {
+        Map<String, Long> countMap = new HashMap<>();
+        List<String> keys = Collections.singletonList(Constants.REDIS_KEY_SHARE_SHOW_COUNT_PENDING);
+        for (Object shareId : redisUtils.hkeys(Constants.REDIS_KEY_SHARE_SHOW_COUNT_PENDING)) {
+            Long count = redisUtils.executeScript(DRAIN_DELTA_SCRIPT, keys, shareId.toString());
+            if (count != null && count != 0) {
+                countMap.put(shareId.toString(), count);
+            }
+        }
+        return countMap;
+    }
+
+    /**
+     * 落库失败时放回分享浏览次数，与期间新记入的次数累加
+     *
+     * @param countMap 分享ID -> 浏览次数
+     */
+    public void restoreShareShowCount(Map<String, Long> countMap) {
+        for (Map.Entry<String, Long> entry : countMap.entrySet()) {
+            redisUtils.hincrement(Constants.REDIS_KEY_SHARE_SHOW_COUNT_PENDING, entry.getKey(), entry.getValue());
+        }
+    }
 }
@@ -3,9 +3,21 @@ package com.easypan.component;
 import jakarta.annotation.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisListCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -67,4 +79,270 @@ public class RedisUtils<V> {
 //            logger.error("设置redisKey:{},value:{}失败", key, value);
         }
     }
+
+    /**
+     * 删除键
+     *
+     * @param key Redis中的键
+     */
+    public void delete(String key) {
+        redisTemplate.delete(key);
+    }
+
+    /**
+     * 设置键的过期时间
+     *
+     * @param key  Redis中的键
+     * @param time 过期时间（秒）
+     */
+    public void expire(String key, long time) {
+        redisTemplate.expire(key, time, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 原子地增加键对应的数值，键不存在时从0开始
+     *
+     * @param key   Redis中的键
+     * @param delta 增量
+     * @return 增加后的值
+     */
+    public Long increment(String key, long delta) {
+        return redisTemplate.opsForValue().increment(key, delta);
+    }
+
+    /**
+     * 键不存在时设置值，并指定过期时间
+     *
+     * @param key   Redis中的键
+     * @param value Redis中的值
+     * @param time  过期时间（秒）
+     * @return 设置成功返回true，键已存在返回false
+     */
+    public boolean setIfAbsent(String key, V value, long time) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, value, time, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 设置位图中指定偏移量的位
+     *
+     * @param key    Redis中的键
+     * @param offset 偏移量
+     * @param value  位的值
+     * @return 该位原来的值
+     */
+    public boolean setBit(String key, long offset, boolean value) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setBit(key, offset, value));
+    }
+
+    /**
+     * 统计位图中值为1的位数
+     *
+     * @param key Redis中的键
+     * @return 值为1的位数，键不存在返回0
+     */
+    public long bitCount(String key) {
+        Long count = redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.stringCommands().bitCount(key.getBytes(StandardCharsets.UTF_8)));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 读取位图的原始字节，不经过值序列化
+     *
+     * @param key Redis中的键
+     * @return 原始字节，键不存在返回null
+     */
+    public byte[] getBitmap(String key) {
+        return redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 从列表左侧压入元素
+     *
+     * @param key   Redis中的键
+     * @param value 元素
+     */
+    public void lpush(String key, V value) {
+        redisTemplate.opsForList().leftPush(key, value);
+    }
+
+    /**
+     * 阻塞地从源列表右侧弹出元素并压入目标列表左侧（BLMOVE），用于可靠队列
+     *
+     * @param sourceKey      源列表
+     * @param destinationKey 目标列表
+     * @param timeout        阻塞等待时间（秒）
+     * @return 移动的元素，超时返回null
+     */
+    public V blockingMove(String sourceKey, String destinationKey, long timeout) {
+        return redisTemplate.opsForList().move(sourceKey, RedisListCommands.Direction.RIGHT,
+                destinationKey, RedisListCommands.Direction.LEFT, Duration.ofSeconds(timeout));
+    }
+
+    /**
+     * 非阻塞地从源列表右侧弹出元素并压入目标列表左侧（LMOVE）
+     *
+     * @param sourceKey      源列表
+     * @param destinationKey 目标列表
+     * @return 移动的元素，源列表为空返回null
+     */
+    public V move(String sourceKey, String destinationKey) {
+        return redisTemplate.opsForList().move(sourceKey, RedisListCommands.Direction.RIGHT,
+                destinationKey, RedisListCommands.Direction.LEFT);
+    }
+
+    /**
+     * 从列表中删除一个等于指定值的元素
+     *
+     * @param key   Redis中的键
+     * @param value 元素
+     */
+    public void lremove(String key, V value) {
+        redisTemplate.opsForList().remove(key, 1, value);
+    }
+
+    /**
+     * 添加有序集合成员，成员已存在时更新分数
+     *
+     * @param key   Redis中的键
+     * @param value 成员
+     * @param score 分数
+     */
+    public void zadd(String key, V value, double score) {
+        redisTemplate.opsForZSet().add(key, value, score);
+    }
+
+    /**
+     * 获取有序集合中分数在指定范围内的成员
+     *
+     * @param key Redis中的键
+     * @param min 最小分数
+     * @param max 最大分数
+     * @return 成员集合
+     */
+    public Set<V> zrangeByScore(String key, double min, double max) {
+        return redisTemplate.opsForZSet().rangeByScore(key, min, max);
+    }
+
+    /**
+     * 删除有序集合成员
+     *
+     * @param key    Redis中的键
+     * @param values 成员
+     */
+    public void zremove(String key, Object... values) {
+        redisTemplate.opsForZSet().remove(key, values);
+    }
+
+    /**
+     * 执行Lua脚本，参数按字符串原样传入，不经过值序列化
+     *
+     * @param script Lua脚本，返回整数
+     * @param keys   脚本使用的键
+     * @param args   脚本参数
+     * @return 脚本返回值
+     */
+    public Long executeScript(RedisScript<Long> script, List<String> keys, String... args) {
+        return redisTemplate.execute(script, RedisSerializer.string(), new GenericToStringSerializer<>(Long.class), keys, (Object[]) args);
+    }
+
+    /**
+     * 获取哈希表中的所有字段和值
+     *
+     * @param key Redis中的键
+     * @return 字段和值，键不存在返回空Map
+     */
+    public Map<Object, Object> hgetAll(String key) {
+        return redisTemplate.opsForHash().entries(key);
+    }
+
+    /**
+     * 获取哈希表中字段的值
+     *
+     * @param key   Redis中的键
+     * @param field 字段
+     * @return 值，不存在返回null
+     */
+    public Object hget(String key, String field) {
+        return redisTemplate.opsForHash().get(key, field);
+    }
+
+    /**
+     * 获取哈希表中多个字段的值
+     *
+     * @param key    Redis中的键
+     * @param fields 字段
+     * @return 与字段顺序对应的值，不存在的字段为null
+     */
+    public List<Object> hmget(String key, Collection<String> fields) {
+        return redisTemplate.opsForHash().multiGet(key, new ArrayList<>(fields));
+    }
+
+    /**
+     * 获取哈希表中的所有字段
+     *
+     * @param key Redis中的键
+     * @return 字段集合
+     */
+    public Set<Object> hkeys(String key) {
+        return redisTemplate.opsForHash().keys(key);
+    }
+
+    /**
+     * 设置哈希表中字段的值
+     *
+     * @param key   Redis中的键
+     * @param field 字段
+     * @param value 值
+     */
+    public void hset(String key, String field, Object value) {
+        redisTemplate.opsForHash().put(key, field, value);
+    }
+
+    /**
+     * 字段不存在时设置哈希表中字段的值
+     *
+     * @param key   Redis中的键
+     * @param field 字段
+     * @param value 值
+     */
+    public void hsetIfAbsent(String key, String field, Object value) {
+        redisTemplate.opsForHash().putIfAbsent(key, field, value);
+    }
+
+    /**
+     * 删除哈希表中的字段
+     *
+     * @param key    Redis中的键
+     * @param fields 字段
+     */
+    public void hdel(String key, Object... fields) {
+        redisTemplate.opsForHash().delete(key, fields);
+    }
+
+    /**
+     * 原子地增加哈希表中字段的数值
+     *
+     * @param key   Redis中的键
+     * @param field 字段
+     * @param delta 增量
+     */
+    public void hincrement(String key, String field, long delta) {
+        redisTemplate.opsForHash().increment(key, field, delta);
+    }
+
+    /**
+     * 发布消息到指定频道，消息按字符串原样发送
+     *
+     * @param channel 频道
+     * @param message 消息
+     */
+    public void publish(String channel, String message) {
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.publish(channel.getBytes(StandardCharsets.UTF_8), message.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            logger.error("发布消息失败，channel:{}，message:{}", channel, message, e);
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package com.easypan.component;
+
+import com.easypan.entity.constants.Constants;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 视频播放缓存组件
+ * 缓存视频文件ID到分片目录的解析结果，以及热点m3u8索引和ts分片的内容，均按LRU淘汰
+ */
+@Component("videoCacheComponent")
+public class VideoCacheComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoCacheComponent.class);
+
+    /**
+     * 分片目录缓存的最大条数
+     */
+    private static final int MAX_FOLDER_ENTRIES = 10000;
+
+    /**
+     * 分片目录缓存的有效期（毫秒），文件删除或分享取消时通过发布订阅清除，过期时间兜底消息丢失的情况
+     */
+    private static final long FOLDER_EXPIRE_MILLIS = 5 * 60 * 1000L;
+
+    /**
+     * 可缓存分片的最高码率（bit/s），切片时不重新编码，分片码率即源视频码率，覆盖常见的1080p视频
+     */
+    private static final long MAX_CACHEABLE_BITRATE = 8_000_000L;
+
+    /**
+     * 单个文件可缓存的最大字节数，按切片时长和最高码率计算，10秒约10MB，超过的分片直接从磁盘读取
+     */
+    private static final long MAX_CACHEABLE_FILE_BYTES = Constants.TS_SEGMENT_SECONDS * MAX_CACHEABLE_BITRATE / 8;
+
+    /**
+     * 内容缓存的总字节数上限，至少能容纳25个最大的分片
+     */
+    private static final long MAX_CONTENT_BYTES = 256 * 1024 * 1024L;
+
+    /**
+     * 用户ID+文件ID -> 分片目录，目录为视频文件路径去掉后缀
+     */
+    private final LinkedHashMap<String, FolderEntry> folderCache = new LinkedHashMap<String, FolderEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FolderEntry> eldest) {
+            return size() > MAX_FOLDER_ENTRIES;
+        }
+    };
+
+    /**
+     * 文件绝对路径 -> 文件内容，按访问顺序排列，超过总字节数上限时淘汰最久未访问的
+     */
+    private final LinkedHashMap<String, ContentEntry> contentCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 内容缓存当前占用的字节数
+     */
+    private long contentBytes = 0;
+
+    /**
+     * 获取视频的分片目录
+     *
+     * @param userId 访问的用户ID，分享访问时为分享人ID
+     * @param fileId 视频文件ID
+     * @return 分片目录，未缓存或已过期返回null
+     */
+    public String getVideoFolder(String userId, String fileId) {
+        String key = userId + fileId;
+        synchronized (folderCache) {
+            FolderEntry entry = folderCache.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireTime < System.currentTimeMillis()) {
+                folderCache.remove(key);
+                return null;
+            }
+            return entry.folder;
+        }
+    }
+
+    /**
+     * 缓存视频的分片目录，只应在确认用户有权访问该视频后调用
+     *
+     * @param userId 访问的用户ID，分享访问时为分享人ID
+     * @param fileId 视频文件ID
+     * @param folder 分片目录
+     */
+    public void putVideoFolder(String userId, String fileId, String folder) {
+        synchronized (folderCache) {
+            folderCache.put(userId + fileId, new FolderEntry(folder, System.currentTimeMillis() + FOLDER_EXPIRE_MILLIS));
+        }
+    }
+
+    /**
+     * 清除用户的分片目录缓存，缓存键以用户ID开头，用户ID为固定长度
+     *
+     * @param userId 用户ID，分享访问时缓存在分享人ID下，一并清除
+     */
+    public void removeUserVideoFolders(String userId) {
+        synchronized (folderCache) {
+            folderCache.keySet().removeIf(key -> key.startsWith(userId));
+        }
+    }
+
+    /**
+     * 获取文件内容，未缓存时从磁盘读取并放入缓存
+     * 以文件的最后修改时间和大小校验缓存，重新转码后的文件不会读到旧内容
+     *
+     * @param file 文件
+     * @return 文件内容，文件过大或读取失败返回null
+     */
+    public byte[] getContent(File file) {
+        long length = file.length();
+        if (length > MAX_CACHEABLE_FILE_BYTES) {
+            return null;
+        }
+        String key = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        synchronized (contentCache) {
+            ContentEntry entry = contentCache.get(key);
+            if (entry != null && entry.lastModified == lastModified && entry.content.length == length) {
+                return entry.content;
+            }
+        }
+        byte[] content;
+        try {
+            content = FileUtils.readFileToByteArray(file);
+        } catch (IOException e) {
+            logger.error("读取视频文件失败:{}", key, e);
+            return null;
+        }
+        synchronized (contentCache) {
+            ContentEntry old = contentCache.put(key, new ContentEntry(content, lastModified));
+            if (old != null) {
+                contentBytes -= old.content.length;
+            }
+            contentBytes += content.length;
+            // 淘汰最久未访问的内容，直到总大小不超过上限
+            Iterator<ContentEntry> iterator = contentCache.values().iterator();
+            while (contentBytes > MAX_CONTENT_BYTES && iterator.hasNext()) {
+                contentBytes -= iterator.next().content.length;
+                iterator.remove();
+            }
+        }
+        return content;
+    }
+
+    /**
+     * 分片目录缓存项
+     */
+    private static class FolderEntry {
+        private final String folder;
+        private final long expireTime;
+
+        FolderEntry(String folder, long expireTime) {
+            this.folder = folder;
+            this.expireTime = expireTime;
+        }
+    }
+
+    /**
+     * 文件内容缓存项
+     */
+    private static class ContentEntry {
+        private final byte[] content;
+        private final long lastModified;
+
+        ContentEntry(byte[] content, long lastModified) {
+            this.content = content;
+            this.lastModified = lastModified;
+        }
+    }
+}
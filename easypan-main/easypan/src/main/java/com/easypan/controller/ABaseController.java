@@ -7,15 +7,24 @@ import com.easypan.entity.vo.ResponseVO;
 import com.easypan.exception.BusinessException;
 import com.easypan.utils.CopyTools;
 import com.easypan.utils.StringTools;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 
 public class ABaseController {
@@ -26,6 +35,23 @@ public class ABaseController {
 
     protected static final String STATIC_ERROR = "error";
 
+    private static final String RANGE_BYTES_PREFIX = "bytes=";
+
+    /**
+     * 单次请求允许的最大Range段数，防止恶意的碎片化Range请求
+     */
+    private static final int MAX_RANGE_COUNT = 16;
+
+    /**
+     * 小于该大小的文件直接由应用输出，不走sendfile
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024L;
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     /**
      * 创建一个成功的响应对象
      * 该方法用于封装一个成功响应的ResponseVO对象，包含状态、响应码、消息和具体数据
@@ -125,71 +151,295 @@ public class ABaseController {
         resultVO.setPageSize(result.getPageSize());
         resultVO.setPageTotal(result.getPageTotal());
         resultVO.setTotalCount(result.getTotalCount());
+        resultVO.setNextCursor(result.getNextCursor());
         // 返回转换后的分页结果VO
         return resultVO;
     }
 
     /**
      * 读取文件内容并将其写入HTTP响应中
+     * 当前请求从RequestContextHolder中获取，以便支持Range断点续传
      *
      * @param response HTTP响应对象，用于输出文件内容到客户端
      * @param filePath 文件路径，指定需要读取的文件位置
      */
     protected void readFile(HttpServletResponse response, String filePath) {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        readFile(attributes == null ? null : attributes.getRequest(), response, filePath);
+    }
+
+    /**
+     * 读取文件内容并将其写入HTTP响应中
+     * 支持Range/If-Range断点续传与多段下载，并设置Content-Length、ETag、Last-Modified
+     * 整段或单段输出时优先交给Tomcat sendfile零拷贝发送，否则使用FileChannel.transferTo输出
+     *
+     * @param request  HTTP请求对象，用于读取Range等条件请求头，为null时输出整个文件
+     * @param response HTTP响应对象，用于输出文件内容到客户端
+     * @param filePath 文件路径，指定需要读取的文件位置
+     */
+    protected void readFile(HttpServletRequest request, HttpServletResponse response, String filePath) {
         // 检查文件路径是否有效，无效则直接返回
         if (!StringTools.pathIsOk(filePath)) {
             return;
         }
+        File file = new File(filePath);
+        // 如果文件不存在，则直接返回
+        if (!file.exists() || !file.isFile()) {
+            return;
+        }
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String eTag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
 
-        OutputStream out = null;
-        FileInputStream in = null;
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", eTag);
+        response.setDateHeader("Last-Modified", lastModified);
 
-        try {
-            // 创建文件对象
-            File file = new File(filePath);
-            // 如果文件不存在，则直接返回
-            if (!file.exists()) {
+        // 协商缓存命中，直接返回304
+        if (request != null && notModified(request, eTag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        List<long[]> ranges = null;
+        if (request != null && ifRangeMatched(request, eTag, lastModified)) {
+            ranges = parseRanges(request.getHeader("Range"), length);
+            // Range不可满足，返回416
+            if (ranges != null && ranges.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader("Content-Range", "bytes */" + length);
                 return;
             }
+        }
 
-            // 创建文件输入流
-            in = new FileInputStream(file);
-            byte[] byteData = new byte[1024];
+        try {
+            if (ranges == null) {
+                // 输出整个文件，有内存缓存时直接输出缓存内容
+                response.setContentLengthLong(length);
+                byte[] content = getCachedContent(file);
+                if (content != null && content.length == length) {
+                    response.getOutputStream().write(content);
+                } else {
+                    sendFile(request, response, file, 0, length);
+                }
+            } else if (ranges.size() == 1) {
+                // 单段Range
+                long[] range = ranges.get(0);
+                long rangeLength = range[1] - range[0] + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+                response.setContentLengthLong(rangeLength);
+                sendFile(request, response, file, range[0], rangeLength);
+            } else {
+                // 多段Range，使用multipart/byteranges输出
+                sendMultipartRanges(response, file, ranges, length);
+            }
+        } catch (Exception e) {
+            // 客户端中断下载时也会进入此处
+            logger.error("读取文件异常", e);
+        }
+    }
+
+    /**
+     * 获取文件的内存缓存内容，默认不缓存，由子类按需覆盖
+     *
+     * @param file 要输出的文件
+     * @return 文件内容，不缓存时返回null
+     */
+    protected byte[] getCachedContent(File file) {
+        return null;
+    }
+
+    /**
+     * 判断If-None-Match/If-Modified-Since条件是否命中
+     *
+     * @param request      HTTP请求对象
+     * @param eTag         当前文件的ETag
+     * @param lastModified 当前文件的最后修改时间
+     * @return 命中返回true，此时应返回304
+     */
+    private boolean notModified(HttpServletRequest request, String eTag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return "*".equals(ifNoneMatch.trim()) || ifNoneMatch.contains(eTag);
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            // HTTP日期精确到秒
+            return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
 
-            // 获取响应的输出流
-            out = response.getOutputStream();
-            int len = 0;
+    /**
+     * 判断If-Range条件是否满足，不满足时应忽略Range输出整个文件
+     *
+     * @param request      HTTP请求对象
+     * @param eTag         当前文件的ETag
+     * @param lastModified 当前文件的最后修改时间
+     * @return 没有If-Range头或者校验通过返回true
+     */
+    private boolean ifRangeMatched(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (StringTools.isEmpty(ifRange)) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return eTag.equals(ifRange);
+        }
+        try {
+            long ifRangeTime = request.getDateHeader("If-Range");
+            return ifRangeTime != -1 && lastModified / 1000 <= ifRangeTime / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
 
-            // 循环读取文件内容并写入响应输出流
-            while ((len = in.read(byteData)) != -1) {
-                out.write(byteData, 0, len);
+    /**
+     * 解析Range请求头
+     *
+     * @param rangeHeader Range请求头，如 bytes=0-499,-500
+     * @param length      文件总长度
+     * @return 没有Range头或格式不合法返回null；无可满足的区间返回空集合；否则返回[start,end]区间集合
+     */
+    private List<long[]> parseRanges(String rangeHeader, long length) {
+        if (StringTools.isEmpty(rangeHeader) || !rangeHeader.startsWith(RANGE_BYTES_PREFIX)) {
+            return null;
+        }
+        String[] rangeArray = rangeHeader.substring(RANGE_BYTES_PREFIX.length()).split(",");
+        if (rangeArray.length > MAX_RANGE_COUNT) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>(rangeArray.length);
+        try {
+            for (String item : rangeArray) {
+                item = item.trim();
+                int index = item.indexOf('-');
+                if (index == -1) {
+                    return null;
+                }
+                String startStr = item.substring(0, index).trim();
+                String endStr = item.substring(index + 1).trim();
+                long start;
+                long end;
+                if (startStr.isEmpty()) {
+                    // 后缀区间，取最后N个字节
+                    long suffixLength = Long.parseLong(endStr);
+                    if (suffixLength <= 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffixLength);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(startStr);
+                    end = endStr.isEmpty() ? length - 1 : Math.min(Long.parseLong(endStr), length - 1);
+                    if (end < start) {
+                        return null;
+                    }
+                }
+                if (start >= length) {
+                    continue;
+                }
+                ranges.add(new long[]{start, end});
             }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return ranges;
+    }
 
-            // 刷新输出流，确保所有数据都被写入
+    /**
+     * 输出文件的指定区间
+     * 容器支持sendfile时交给容器零拷贝发送，否则通过FileChannel.transferTo写入响应输出流
+     *
+     * @param request  HTTP请求对象，可为null
+     * @param response HTTP响应对象
+     * @param file     待输出的文件
+     * @param start    起始位置
+     * @param count    输出字节数
+     * @throws IOException 输出异常
+     */
+    private void sendFile(HttpServletRequest request, HttpServletResponse response, File file, long start, long count) throws IOException {
+        if (request != null && count >= SENDFILE_MIN_SIZE
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            transferTo(fileChannel, start, count, Channels.newChannel(out));
             out.flush();
-        } catch (Exception e) {
-            // 记录文件读取异常
-            logger.error("读取文件异常", e);
-        } finally {
-            // 关闭输出流
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException e) {
-                    // 记录关闭输出流时的IO异常
-                    logger.error("IO异常", e);
-                }
+        }
+    }
+
+    /**
+     * 以multipart/byteranges格式输出多段区间
+     *
+     * @param response HTTP响应对象
+     * @param file     待输出的文件
+     * @param ranges   区间集合
+     * @param length   文件总长度
+     * @throws IOException 输出异常
+     */
+    private void sendMultipartRanges(HttpServletResponse response, File file, List<long[]> ranges, long length) throws IOException {
+        String contentType = response.getContentType();
+        String boundary = StringTools.getRandomString(Constants.LENGTH_20);
+        // 预先生成每段的头部，用于计算Content-Length
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            StringBuilder partHeader = new StringBuilder();
+            partHeader.append("\r\n--").append(boundary).append("\r\n");
+            if (contentType != null) {
+                partHeader.append("Content-Type: ").append(contentType).append("\r\n");
             }
+            partHeader.append("Content-Range: bytes ").append(range[0]).append("-").append(range[1]).append("/").append(length).append("\r\n\r\n");
+            byte[] headerBytes = partHeader.toString().getBytes(StandardCharsets.ISO_8859_1);
+            partHeaders.add(headerBytes);
+            contentLength += headerBytes.length + range[1] - range[0] + 1;
+        }
+        byte[] endBytes = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        contentLength += endBytes.length;
 
-            // 关闭文件输入流
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-                    // 记录关闭文件输入流时的IO异常
-                    logger.error("IO异常", e);
-                }
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel outChannel = Channels.newChannel(out);
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                transferTo(fileChannel, range[0], range[1] - range[0] + 1, outChannel);
+            }
+            out.write(endBytes);
+            out.flush();
+        }
+    }
+
+    /**
+     * 循环调用FileChannel.transferTo直到指定字节全部写出
+     *
+     * @param fileChannel 文件通道
+     * @param start       起始位置
+     * @param count       输出字节数
+     * @param target      目标通道
+     * @throws IOException 输出异常
+     */
+    private void transferTo(FileChannel fileChannel, long start, long count, WritableByteChannel target) throws IOException {
+        long position = start;
+        long remaining = count;
+        while (remaining > 0) {
+            long transferred = fileChannel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                break;
             }
+            position += transferred;
+            remaining -= transferred;
         }
     }
 
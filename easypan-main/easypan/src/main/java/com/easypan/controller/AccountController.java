@@ -1,17 +1,19 @@
 package com.easypan.controller;
 
 import com.easypan.annotation.GlobalInterceptor;
+import com.easypan.annotation.RateLimit;
 import com.easypan.annotation.VerifyParam;
 import com.easypan.component.RedisComponent;
 import com.easypan.entity.config.AppConfig;
 import com.easypan.entity.constants.Constants;
-import com.easypan.entity.dto.CreateImageCode;
+import com.easypan.entity.dto.CaptchaDto;
 import com.easypan.entity.dto.SessionWebUserDto;
 import com.easypan.entity.dto.UserSpaceDto;
 import com.easypan.entity.enums.VerifyRegexEnum;
 import com.easypan.entity.po.UserInfo;
 import com.easypan.entity.vo.ResponseVO;
 import com.easypan.exception.BusinessException;
+import com.easypan.service.CaptchaService;
 import com.easypan.service.EmailCodeService;
 import com.easypan.service.UserInfoService;
 import com.easypan.utils.StringTools;
@@ -42,6 +44,8 @@ public class  AccountController extends ABaseController{
 	private UserInfoService userInfoService;
 	@Resource
 	private EmailCodeService emailCodeService;
+	@Resource
+	private CaptchaService captchaService;
     @Resource
     private AppConfig appConfig;
     @Resource
@@ -57,9 +61,10 @@ public class  AccountController extends ABaseController{
 	 * @throws IOException 如果在输出验证码图片时发生I/O错误
 	 */
 	@RequestMapping("/checkCode")
+	@GlobalInterceptor(checkLogin = false, rateLimit = @RateLimit(permits = 30))
 	public void checkCode(HttpServletResponse response, HttpSession session, Integer type) throws IOException {
-	    // 创建验证码对象，参数分别为宽度、高度、字符数和干扰线数
-	    CreateImageCode vCode = new CreateImageCode(130, 38, 5, 10);
+	    // 取出预先生成的验证码，不在请求线程中绘图和编码
+	    CaptchaDto captcha = captchaService.takeCaptcha();
 
 	    // 设置响应头，确保浏览器不缓存此验证码图片
 	    response.setHeader("Pragma", "no-cache");
@@ -68,19 +73,17 @@ public class  AccountController extends ABaseController{
 
 	    // 设置响应内容类型为JPEG图像
 	    response.setContentType("image/jpeg");
-
-	    // 获取验证码字符串
-	    String code = vCode.getCode();
+	    response.setContentLength(captcha.getImage().length);
 
 	    // 根据类型将验证码字符串保存到会话中
 	    if (type == null || type == 0) {
-	        session.setAttribute(Constants.CHECK_CODE_KEY, code);
+	        session.setAttribute(Constants.CHECK_CODE_KEY, captcha.getCode());
 	    } else {
-	        session.setAttribute(Constants.CHECK_CODE_KEY_EMAIL, code);
+	        session.setAttribute(Constants.CHECK_CODE_KEY_EMAIL, captcha.getCode());
 	    }
 
-	    // 将验证码图片写入响应输出流
-	    vCode.write(response.getOutputStream());
+	    // 将验证码图片一次写入响应输出流
+	    response.getOutputStream().write(captcha.getImage());
 	}
 
 	/**
@@ -96,6 +99,8 @@ public class  AccountController extends ABaseController{
 	 * 否则抛出业务异常提示图片验证码不正确。发送验证码后，从会话中移除图片验证码信息。
 	 */
 	@RequestMapping("/sendEmailCode")
+	@GlobalInterceptor(checkParams = true, checkLogin = false,
+			rateLimit = {@RateLimit(permits = 5), @RateLimit(permits = 10, seconds = 3600, keyParam = "email")})
 	public ResponseVO sendEmailCode(HttpSession session,
 									@VerifyParam(required = true, regex = VerifyRegexEnum.EMAIL, max = 150) String email,
 									@VerifyParam(required = true) String checkCode,
@@ -162,7 +167,8 @@ public class  AccountController extends ABaseController{
 	 * @return 返回一个包含登录结果的ResponseVO对象
 	 */
 	@RequestMapping("/login")
-	@GlobalInterceptor(checkParams = true, checkLogin = false)
+	@GlobalInterceptor(checkParams = true, checkLogin = false,
+			rateLimit = {@RateLimit(permits = 10), @RateLimit(permits = 20, seconds = 600, keyParam = "email")})
 	public ResponseVO login(HttpSession session,
 	                        @VerifyParam(required = true) String email,
 	                        @VerifyParam(required = true) String password,
@@ -1,6 +1,7 @@
 package com.easypan.controller;
 
 import com.easypan.component.RedisComponent;
+import com.easypan.component.VideoCacheComponent;
 import com.easypan.entity.config.AppConfig;
 import com.easypan.entity.constants.Constants;
 import com.easypan.entity.dto.DownloadFileDto;
@@ -21,6 +22,8 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.StringUtils;
 import java.io.File;
 import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 public class CommonFileController extends ABaseController {
@@ -34,6 +37,9 @@ public class CommonFileController extends ABaseController {
     @Resource
     private RedisComponent redisComponent;
 
+    @Resource
+    private VideoCacheComponent videoCacheComponent;
+
 
     public ResponseVO getFolderInfo(String path, String userId) {
         String[] pathArray = path.split("/");
@@ -41,9 +47,10 @@ public class CommonFileController extends ABaseController {
         infoQuery.setUserId(userId);
         infoQuery.setFolderType(FileFolderTypeEnums.FOLDER.getType());
         infoQuery.setFileIdArray(pathArray);
-        String orderBy = "field(file_id,\"" + StringUtils.join(pathArray, "\",\"") + "\")";
-        infoQuery.setOrderBy(orderBy);
         List<FileInfo> fileInfoList = fileInfoService.findListByParam(infoQuery);
+        // 按路径中的顺序排列，不把路径拼进排序语句
+        List<String> pathList = Arrays.asList(pathArray);
+        fileInfoList.sort(Comparator.comparingInt(item -> pathList.indexOf(item.getFileId())));
         return getSuccessResponseVO(CopyTools.copyList(fileInfoList, FolderVO.class));
     }
 
@@ -65,42 +72,53 @@ public class CommonFileController extends ABaseController {
         if (fileId.endsWith(".ts")) {
             String[] tsAarray = fileId.split("_");
             String realFileId = tsAarray[0];
-            //根据原文件的id查询出一个文件集合
-            FileInfo fileInfo = fileInfoService.getFileInfoByFileIdAndUserId(realFileId, userId);
-            if (fileInfo == null) {
-                //分享的视频，ts路径记录的是原视频的id,这里通过id直接取出原视频
-                FileInfoQuery fileInfoQuery = new FileInfoQuery();
-                fileInfoQuery.setFileId(realFileId);
-                List<FileInfo> fileInfoList = fileInfoService.findListByParam(fileInfoQuery);
-                fileInfo = fileInfoList.get(0);
+            // 先从缓存中取分片目录，避免每个分片都查询数据库
+            String videoFolder = videoCacheComponent.getVideoFolder(userId, realFileId);
+            if (videoFolder == null) {
+                //根据原文件的id查询出一个文件集合
+                FileInfo fileInfo = fileInfoService.getFileInfoByFileIdAndUserId(realFileId, userId);
                 if (fileInfo == null) {
-                    return;
-                }
+                    //分享的视频，ts路径记录的是原视频的id,这里通过id直接取出原视频
+                    FileInfoQuery fileInfoQuery = new FileInfoQuery();
+                    fileInfoQuery.setFileId(realFileId);
+                    List<FileInfo> fileInfoList = fileInfoService.findListByParam(fileInfoQuery);
+                    if (fileInfoList.isEmpty()) {
+                        return;
+                    }
+                    fileInfo = fileInfoList.get(0);
 
-                //更具当前用户id和路径去查询当前用户是否有该文件，如果没有直接返回
-                fileInfoQuery = new FileInfoQuery();
-                fileInfoQuery.setFilePath(fileInfo.getFilePath());
-                fileInfoQuery.setUserId(userId);
-                Integer count = fileInfoService.findCountByParam(fileInfoQuery);
-                if (count == 0) {
-                    return;
+                    //更具当前用户id和路径去查询当前用户是否有该文件，如果没有直接返回
+                    fileInfoQuery = new FileInfoQuery();
+                    fileInfoQuery.setFilePath(fileInfo.getFilePath());
+                    fileInfoQuery.setUserId(userId);
+                    Integer count = fileInfoService.findCountByParam(fileInfoQuery);
+                    if (count == 0) {
+                        return;
+                    }
                 }
+                videoFolder = StringTools.getFileNameNoSuffix(fileInfo.getFilePath());
+                videoCacheComponent.putVideoFolder(userId, realFileId, videoFolder);
             }
-            String fileName = fileInfo.getFilePath();
-            fileName = StringTools.getFileNameNoSuffix(fileName) + "/" + fileId;
-            filePath = appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE + fileName;
+            filePath = appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE + videoFolder + "/" + fileId;
         } else {
-            FileInfo fileInfo = fileInfoService.getFileInfoByFileIdAndUserId(fileId, userId);
-            if (fileInfo == null) {
-                return;
-            }
-            //视频文件读取.m3u8文件
-            if (FileCategoryEnums.VIDEO.getCategory().equals(fileInfo.getFileCategory())) {
-                //重新设置文件路径
-                String fileNameNoSuffix = StringTools.getFileNameNoSuffix(fileInfo.getFilePath());
-                filePath = appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE + fileNameNoSuffix + "/" + Constants.M3U8_NAME;
+            String videoFolder = videoCacheComponent.getVideoFolder(userId, fileId);
+            if (videoFolder != null) {
+                //视频文件读取.m3u8文件
+                filePath = appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE + videoFolder + "/" + Constants.M3U8_NAME;
             } else {
-                filePath = appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE + fileInfo.getFilePath();
+                FileInfo fileInfo = fileInfoService.getFileInfoByFileIdAndUserId(fileId, userId);
+                if (fileInfo == null) {
+                    return;
+                }
+                //视频文件读取.m3u8文件
+                if (FileCategoryEnums.VIDEO.getCategory().equals(fileInfo.getFileCategory())) {
+                    //重新设置文件路径
+                    String fileNameNoSuffix = StringTools.getFileNameNoSuffix(fileInfo.getFilePath());
+                    videoCacheComponent.putVideoFolder(userId, fileId, fileNameNoSuffix);
+                    filePath = appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE + fileNameNoSuffix + "/" + Constants.M3U8_NAME;
+                } else {
+                    filePath = appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE + fileInfo.getFilePath();
+                }
             }
         }
         File file = new File(filePath);
@@ -110,6 +128,21 @@ public class CommonFileController extends ABaseController {
         readFile(response, filePath);
     }
 
+    /**
+     * m3u8索引和ts分片使用内存缓存，其他文件直接从磁盘输出
+     *
+     * @param file 要输出的文件
+     * @return 文件内容，不缓存时返回null
+     */
+    @Override
+    protected byte[] getCachedContent(File file) {
+        String fileName = file.getName();
+        if (fileName.endsWith(".ts") || fileName.equals(Constants.M3U8_NAME)) {
+            return videoCacheComponent.getContent(file);
+        }
+        return null;
+    }
+
     protected ResponseVO createDownloadUrl(String fileId, String userId) {
         FileInfo fileInfo = fileInfoService.getFileInfoByFileIdAndUserId(fileId, userId);
         if (fileInfo == null) {
@@ -143,6 +176,6 @@ public class CommonFileController extends ABaseController {
             fileName = new String(fileName.getBytes("UTF-8"), "ISO8859-1");
         }
         response.setHeader("Content-Disposition", "attachment;filename=\"" + fileName + "\"");
-        readFile(response, filePath);
+        readFile(request, response, filePath);
     }
 }
@@ -95,4 +95,55 @@ public class FileInfoController extends ABaseController{
 		// 构造并返回成功的响应对象
 		return getSuccessResponseVO(resultDto);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * 查询分片上传进度
+	 * 客户端上传中断后调用该接口获取缺失的分片，只需补传缺失部分即可完成上传
+	 *
+	 * @param session HttpSession对象，用于获取用户会话信息
+	 * @param fileId 文件ID
+	 * @param chunks 总分片数
+	 * @return 返回一个ResponseVO对象，包含缺失的分片索引
+	 */
+	@RequestMapping("/uploadStatus")
+	@GlobalInterceptor(checkParams = true)
+	public ResponseVO uploadStatus(HttpSession session,
+								   @VerifyParam(required = true) String fileId,
+								   @VerifyParam(required = true) Integer chunks) {
+		SessionWebUserDto webUserDto = getUserInfoFromSession(session);
+		return getSuccessResponseVO(fileInfoService.getUploadStatus(webUserDto, fileId, chunks));
+	}
+
+	/**
+	 * 删除文件，放入回收站
+	 *
+	 * @param session HttpSession对象，用于获取用户会话信息
+	 * @param fileIds 文件ID，多个以逗号分隔
+	 * @return 返回操作结果的响应对象
+	 */
+	@RequestMapping("/delFile")
+	@GlobalInterceptor(checkParams = true)
+	public ResponseVO delFile(HttpSession session, @VerifyParam(required = true) String fileIds) {
+		SessionWebUserDto webUserDto = getUserInfoFromSession(session);
+		fileInfoService.removeFile2RecycleBatch(webUserDto.getUserId(), fileIds);
+		return getSuccessResponseVO(null);
+	}
+
+	/**
+	 * 移动文件到指定目录
+	 *
+	 * @param session HttpSession对象，用于获取用户会话信息
+	 * @param fileIds 文件ID，多个以逗号分隔
+	 * @param filePid 目标目录ID，根目录为0
+	 * @return 返回操作结果的响应对象
+	 */
+	@RequestMapping("/changeFileFolder")
+	@GlobalInterceptor(checkParams = true)
+	public ResponseVO changeFileFolder(HttpSession session,
+									   @VerifyParam(required = true) String fileIds,
+									   @VerifyParam(required = true) String filePid) {
+		SessionWebUserDto webUserDto = getUserInfoFromSession(session);
+		fileInfoService.changeFileFolder(fileIds, filePid, webUserDto.getUserId());
+		return getSuccessResponseVO(null);
+	}
+}
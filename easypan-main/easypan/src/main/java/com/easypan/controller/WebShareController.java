@@ -1,15 +1,13 @@
 package com.easypan.controller;
 
 import com.easypan.annotation.GlobalInterceptor;
+import com.easypan.annotation.RateLimit;
 import com.easypan.annotation.VerifyParam;
 import com.easypan.entity.constants.Constants;
 import com.easypan.entity.dto.SessionShareDto;
 import com.easypan.entity.dto.SessionWebUserDto;
 import com.easypan.entity.enums.FileDelFlagEnums;
 import com.easypan.entity.enums.ResponseCodeEnum;
-import com.easypan.entity.po.FileInfo;
-import com.easypan.entity.po.FileShare;
-import com.easypan.entity.po.UserInfo;
 import com.easypan.entity.query.FileInfoQuery;
 import com.easypan.entity.vo.FileInfoVO;
 import com.easypan.entity.vo.PaginationResultVO;
@@ -18,8 +16,6 @@ import com.easypan.entity.vo.ShareInfoVO;
 import com.easypan.exception.BusinessException;
 import com.easypan.service.FileInfoService;
 import com.easypan.service.FileShareService;
-import com.easypan.service.UserInfoService;
-import com.easypan.utils.CopyTools;
 import com.easypan.utils.StringTools;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
@@ -40,9 +36,6 @@ public class WebShareController extends CommonFileController {
     @Resource
     private FileInfoService fileInfoService;
 
-    @Resource
-    private UserInfoService userInfoService;
-
 
     /**
      * 获取分享登录信息
@@ -95,39 +88,14 @@ public class WebShareController extends CommonFileController {
 
     /**
      * 获取文件分享的通用信息
-     * 此方法主要用于获取并验证文件分享的信息，包括检查分享的有效性、文件信息和用户信息
+     * 分享信息、文件名和分享者信息按分享ID缓存，不再每次查询三张表
      *
      * @param shareId 分享的唯一标识符，用于获取分享信息
      * @return 返回一个ShareInfoVO对象，其中包含了分享的详细信息
      * @throws BusinessException 如果分享不存在或已过期，或者文件已被删除，则抛出此异常
      */
     private ShareInfoVO getShareInfoCommon(String shareId) {
-        // 根据分享ID获取文件分享对象
-        FileShare share = fileShareService.getFileShareByShareId(shareId);
-        // 检查分享对象是否存在以及是否已过期
-        if (null == share || (share.getExpireTime() != null && new Date().after(share.getExpireTime()))) {
-            // 如果分享不存在或已过期，则抛出异常
-            throw new BusinessException(ResponseCodeEnum.CODE_902.getMsg());
-        }
-        // 将文件分享对象转换为分享信息视图对象
-        ShareInfoVO shareInfoVO = CopyTools.copy(share, ShareInfoVO.class);
-        // 根据文件ID和用户ID获取文件信息
-        FileInfo fileInfo = fileInfoService.getFileInfoByFileIdAndUserId(share.getFileId(), share.getUserId());
-        // 检查文件信息是否存在以及文件是否已被删除
-        if (fileInfo == null || !FileDelFlagEnums.USING.getFlag().equals(fileInfo.getDelFlag())) {
-            // 如果文件信息不存在或文件已被删除，则抛出异常
-            throw new BusinessException(ResponseCodeEnum.CODE_902.getMsg());
-        }
-        // 设置分享信息中的文件名
-        shareInfoVO.setFileName(fileInfo.getFileName());
-        // 根据用户ID获取用户信息
-        UserInfo userInfo = userInfoService.getUserInfoByUserId(share.getUserId());
-        // 设置分享信息中的昵称、头像和用户ID
-        shareInfoVO.setNickName(userInfo.getNickName());
-        shareInfoVO.setAvatar(userInfo.getQqAvatar());
-        shareInfoVO.setUserId(userInfo.getUserId());
-        // 返回分享信息视图对象
-        return shareInfoVO;
+        return fileShareService.getShareInfo(shareId);
     }
 
     /**
@@ -136,18 +104,19 @@ public class WebShareController extends CommonFileController {
      * 此方法用于验证用户提供的分享码是否有效分享操作涉及到文件或资源的共享，
      * 因此需要确保分享码的合法性和安全性该方法不要求用户登录即可访问，但会对请求参数进行验证
      *
+     * @param request HttpServletRequest对象，用于获取客户端IP
      * @param session HttpSession对象，用于存储分享信息
      * @param shareId 要验证的分享ID，是验证分享码的必要参数
      * @param code 用户提供的分享码，用于验证分享的合法性和有效性
      * @return 返回一个ResponseVO对象，包含处理结果信息
      */
     @RequestMapping("/checkShareCode")
-    @GlobalInterceptor(checkLogin = false, checkParams = true)
-    public ResponseVO checkShareCode(HttpSession session,
+    @GlobalInterceptor(checkLogin = false, checkParams = true, rateLimit = @RateLimit(permits = 10))
+    public ResponseVO checkShareCode(HttpServletRequest request, HttpSession session,
                                      @VerifyParam(required = true) String shareId,
                                      @VerifyParam(required = true) String code) {
         // 调用fileShareService的checkShareCode方法验证分享码，并获取分享信息
-        SessionShareDto shareSessionDto = fileShareService.checkShareCode(shareId, code);
+        SessionShareDto shareSessionDto = fileShareService.checkShareCode(shareId, code, request.getRemoteAddr());
         // 将验证后的分享信息存储在session中，以便后续访问共享资源时使用
         session.setAttribute(Constants.SESSION_SHARE_KEY + shareId, shareSessionDto);
         // 返回一个成功的响应对象，表示分享码验证成功
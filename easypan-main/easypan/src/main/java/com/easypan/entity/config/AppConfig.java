@@ -23,4 +23,24 @@ public class AppConfig {
     @Value("${project.folder:}")
     private String projectFolder;
 
+    // 获取视频转码线程数
+    // 从配置文件中获取视频转码线程数，如果没有配置，则默认为0，表示与CPU核数相同
+    @Value("${transcode.workers:0}")
+    private Integer transcodeWorkers;
+
+    // 获取单个视频转码的超时时间（秒）
+    // 从配置文件中获取转码超时时间，如果没有配置，则默认为1800秒
+    @Value("${transcode.timeout:1800}")
+    private Integer transcodeTimeout;
+
+    // 获取视频转码失败后的最大重试次数
+    // 从配置文件中获取最大重试次数，如果没有配置，则默认为2次
+    @Value("${transcode.max-retry:2}")
+    private Integer transcodeMaxRetry;
+
+    // 获取邮箱验证码存储方式
+    // 从配置文件中获取存储方式，redis:保存在Redis中 db:保存在email_code表中，如果没有配置，则默认为redis
+    @Value("${email.code.store:redis}")
+    private String emailCodeStore;
+
 }
@@ -0,0 +1,114 @@
+package com.easypan.entity.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池配置
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 分片合并线程池
+     * 合并是磁盘密集型操作，线程数不宜过多；队列有界，队列满时由提交线程执行，避免丢失合并任务
+     *
+     * @return 分片合并线程池
+     */
+    @Bean("fileMergeExecutor")
+    public ThreadPoolTaskExecutor fileMergeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(200);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("file-merge-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // 停机时等待正在合并的任务完成
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 视频转码线程池
+     * 每个线程常驻执行一个转码工作循环，线程数即同时运行的ffmpeg进程数，默认与CPU核数相同；
+     * 停机时不等待转码完成，中断工作线程，未完成的任务留在处理中队列，下次启动时重新处理
+     *
+     * @param appConfig 应用配置
+     * @return 视频转码线程池
+     */
+    @Bean("transcodeExecutor")
+    public ThreadPoolTaskExecutor transcodeExecutor(AppConfig appConfig) {
+        int workers = appConfig.getTranscodeWorkers() > 0 ? appConfig.getTranscodeWorkers() : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("transcode-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 回收站清理线程池
+     * 清理任务按用户分组提交，线程数少，避免与在线请求争抢数据库连接；队列满时由清理任务线程执行，起到限流作用
+     *
+     * @return 回收站清理线程池
+     */
+    @Bean("fileCleanExecutor")
+    public ThreadPoolTaskExecutor fileCleanExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("file-clean-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 验证码生成线程池
+     * 单线程在后台预先生成验证码图片，补充任务同时只有一个，不需要队列
+     *
+     * @return 验证码生成线程池
+     */
+    @Bean("captchaExecutor")
+    public ThreadPoolTaskExecutor captchaExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("captcha-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 邮件发送线程池
+     * 单线程发送发件箱中的邮件，整批复用一个SMTP连接并控制发送速度；发送任务同时只有一个，不需要队列
+     *
+     * @return 邮件发送线程池
+     */
+    @Bean("mailExecutor")
+    public ThreadPoolTaskExecutor mailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("mail-");
+        // 停机时未发送的邮件留在发件箱，租约到期后重新发送
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
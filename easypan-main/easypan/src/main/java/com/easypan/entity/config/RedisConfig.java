@@ -1,9 +1,13 @@
 package com.easypan.entity.config;
 
+import com.easypan.component.CacheEvictListener;
+import com.easypan.entity.constants.Constants;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 
 @Configuration
@@ -23,4 +27,13 @@ public class RedisConfig<V> {
         template.afterPropertiesSet();
         return template;
     }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory, CacheEvictListener cacheEvictListener) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        // 订阅本地缓存清除频道
+        container.addMessageListener(cacheEvictListener, new ChannelTopic(Constants.REDIS_CHANNEL_CACHE_EVICT));
+        return container;
+    }
 }
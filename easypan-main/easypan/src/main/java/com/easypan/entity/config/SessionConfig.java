@@ -0,0 +1,45 @@
+package com.easypan.entity.config;
+
+import com.easypan.session.DistributedSessionFilter;
+import com.easypan.session.RedisSessionRepository;
+import com.easypan.session.SessionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+
+/**
+ * 会话存储配置
+ * session.store 为 redis（默认）时会话保存在Redis中，多个节点共享，重启不丢失；为 servlet 时使用Servlet容器的会话
+ */
+@Configuration
+@ConditionalOnProperty(name = "session.store", havingValue = "redis", matchIfMissing = true)
+public class SessionConfig {
+
+    @Bean
+    public SessionRepository sessionRepository(RedisConnectionFactory factory) {
+        return new RedisSessionRepository(factory);
+    }
+
+    /**
+     * 会话过滤器，排在其他过滤器之前，保证后续的过滤器和控制器取到的都是共享会话
+     *
+     * @param sessionRepository 会话存储
+     * @param timeout 会话有效期，沿用Servlet容器的会话超时配置
+     * @return 会话过滤器注册
+     */
+    @Bean
+    public FilterRegistrationBean<DistributedSessionFilter> distributedSessionFilter(SessionRepository sessionRepository,
+                                                                                      @Value("${server.servlet.session.timeout:PT30M}") Duration timeout) {
+        FilterRegistrationBean<DistributedSessionFilter> registration =
+                new FilterRegistrationBean<>(new DistributedSessionFilter(sessionRepository, (int) timeout.getSeconds()));
+        registration.addUrlPatterns("/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 50);
+        return registration;
+    }
+}
@@ -2,6 +2,7 @@ package com.easypan.entity.constants;
 
 public class Constants {
     public static final Integer ZERO = 0;
+    public static final String ZERO_STR = "0";
     public static final Integer LENGTH_5 = 5;
     public static final Integer LENGTH_10 = 10;
     public static final Integer LENGTH_15 = 15;
@@ -13,14 +14,37 @@ public class Constants {
     public static final String FILE_FOLDER_AVATAR_NAME = "avatar/";
     public static final String AVATAR_SUFFIX = ".jpg";
     public static final String FILE_FOLDER_TEMP = "/temp/";
+    public static final String FILE_FOLDER_BLOB = "blob/";
     public static final String AVATAR_DEFAULT = "default_avatar.jpg";
+    public static final String IMAGE_PNG_SUFFIX = ".png";
+    public static final String M3U8_NAME = "index.m3u8";
+    // 视频切片的目标时长（秒），按关键帧切割，实际时长会略长
+    public static final Integer TS_SEGMENT_SECONDS = 10;
+    public static final Integer LENGTH_150 = 150;
     public static final Long MB = 1024 * 1024L;
+    // 单个文件最多的分片数，分片位图最大1.25KB；按单个请求15MB上限计算，单个文件最大约146GB
+    public static final Integer MAX_UPLOAD_CHUNKS = 10000;
     public static final Integer REDIS_KEY_EXPIRES_ONE_MIN = 60;
     public static final Integer REDIS_KEY_EXPIRES_ONE_HOUR = 3600;
     public static final Integer REDIS_KEY_EXPIRES_DAY = REDIS_KEY_EXPIRES_ONE_MIN * 60 * 24;
 
     public static final String REDIS_KEY_SYS_SETTING = "easypan:syssetting:";
-    public static final String REDIS_KEY_USER_SPACE_USE = "easypan:user:spaceuse:";
+    public static final String REDIS_CHANNEL_CACHE_EVICT = "easypan:channel:cache:evict";
+    public static final String REDIS_KEY_USER_SPACE_QUOTA = "easypan:user:quota:";
+    public static final String REDIS_KEY_USER_SPACE_RESERVED = "easypan:user:quota:reserved:";
+    public static final String REDIS_KEY_USER_SPACE_PENDING = "easypan:user:quota:pending";
     public static final String REDIS_KEY_USER_FILE_TEMP_SIZE = "easypan:user:file:temp:";
+    public static final String REDIS_KEY_USER_FILE_CHUNK_BITMAP = "easypan:user:file:chunks:";
+    public static final String REDIS_KEY_USER_FILE_MERGE_LOCK = "easypan:user:file:merge:";
+    public static final String REDIS_KEY_TRANSCODE_PENDING = "easypan:transcode:pending";
+    public static final String REDIS_KEY_TRANSCODE_PROCESSING = "easypan:transcode:processing";
+    public static final String REDIS_KEY_TRANSCODE_PROCESSING_NODE = "easypan:transcode:processing:";
+    public static final String REDIS_KEY_TRANSCODE_NODE_LEASE = "easypan:transcode:nodes";
+    public static final String REDIS_KEY_SESSION = "easypan:session:";
+    public static final String REDIS_KEY_FILE_CLEAN_LOCK = "easypan:task:fileclean:lock";
+    public static final String REDIS_KEY_FILE_CLEAN_CHECKPOINT = "easypan:task:fileclean:checkpoint";
+    public static final String REDIS_KEY_EMAIL_CODE = "easypan:emailcode:";
+    public static final String REDIS_KEY_RATE_LIMIT = "easypan:ratelimit:";
+    public static final String REDIS_KEY_SHARE_SHOW_COUNT_PENDING = "easypan:share:showcount:pending";
     public static final Integer LENGTH_20 = 20;
 }
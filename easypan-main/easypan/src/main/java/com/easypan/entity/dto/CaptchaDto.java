@@ -0,0 +1,25 @@
+package com.easypan.entity.dto;
+
+import lombok.Getter;
+
+/**
+ * 预先生成的验证码
+ * 包含验证码字符串和编码好的JPEG图片，每个验证码只发给一个请求
+ */
+@Getter
+public class CaptchaDto {
+    /**
+     * 验证码，小写
+     */
+    private final String code;
+
+    /**
+     * JPEG图片内容
+     */
+    private final byte[] image;
+
+    public CaptchaDto(String code, byte[] image) {
+        this.code = code;
+        this.image = image;
+    }
+}
@@ -5,8 +5,10 @@ import lombok.Getter;
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Random;
 
 public class CreateImageCode {
@@ -152,6 +154,21 @@ public class CreateImageCode {
         sos.close();
     }
 
+    /**
+     * 将验证码图片编码为JPEG
+     *
+     * @return JPEG图片内容
+     */
+    public byte[] toJpegBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        try {
+            ImageIO.write(buffImg, "jpeg", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
     public String getCode() {
         return code.toLowerCase();
     }
@@ -0,0 +1,24 @@
+package com.easypan.entity.dto;
+
+import com.easypan.entity.po.FileShare;
+import com.easypan.entity.vo.ShareInfoVO;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 分享页面缓存对象，包含分享信息和组装好的分享展示信息
+ * 缓存对象在多个请求间共享，取出后不能修改，展示信息需要复制后再设置当前用户等字段
+ */
+@Setter
+@Getter
+public class ShareViewDto {
+    /**
+     * 分享信息，用于校验有效期和提取码
+     */
+    private FileShare share;
+
+    /**
+     * 分享展示信息，包含文件名和分享者的昵称、头像
+     */
+    private ShareInfoVO shareInfo;
+}
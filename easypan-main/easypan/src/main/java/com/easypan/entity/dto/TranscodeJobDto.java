@@ -0,0 +1,32 @@
+package com.easypan.entity.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * TranscodeJobDto类，视频转码任务，保存在Redis队列中
+ */
+@Setter
+@Getter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TranscodeJobDto implements Serializable {
+
+    /**
+     * 文件ID
+     */
+    private String fileId;
+
+    /**
+     * 用户ID
+     */
+    private String userId;
+
+    /**
+     * 已重试次数
+     */
+    private Integer retryCount;
+
+}
@@ -0,0 +1,38 @@
+package com.easypan.entity.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * UploadStatusDto类，用于封装分片上传的进度信息，供客户端断点续传
+ */
+@Setter
+@Getter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UploadStatusDto implements Serializable {
+
+    /**
+     * 文件ID
+     */
+    private String fileId;
+
+    /**
+     * 文件上传的状态
+     */
+    private String status;
+
+    /**
+     * 总分片数
+     */
+    private Integer chunks;
+
+    /**
+     * 尚未接收的分片索引
+     */
+    private List<Integer> missingChunks;
+
+}
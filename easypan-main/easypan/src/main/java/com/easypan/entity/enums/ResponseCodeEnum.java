@@ -12,7 +12,8 @@ public enum ResponseCodeEnum {
     CODE_500(500, "服务器返回错误，请联系管理员"),
     CODE_901(901, "登录超时，请重新登录"),
     CODE_904(904, "网盘空间不足，请扩容"),
-    CODE_902(902, "提取码错误" );
+    CODE_902(902, "提取码错误" ),
+    CODE_905(905, "操作过于频繁，请稍后再试");
 
     private final Integer code;
 
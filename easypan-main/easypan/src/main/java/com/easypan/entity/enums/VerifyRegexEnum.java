@@ -2,6 +2,8 @@ package com.easypan.entity.enums;
 
 import lombok.Getter;
 
+import java.util.regex.Pattern;
+
 @Getter
 public enum VerifyRegexEnum {
     NO("", "不校验"),
@@ -10,9 +12,14 @@ public enum VerifyRegexEnum {
 
     private final String regex;
     private final String desc;
+    /**
+     * 预编译的正则，不校验时为null
+     */
+    private final Pattern pattern;
 
     VerifyRegexEnum(String regex, String desc) {
         this.regex = regex;
         this.desc = desc;
+        this.pattern = regex.isEmpty() ? null : Pattern.compile(regex);
     }
 }
\ No newline at end of file
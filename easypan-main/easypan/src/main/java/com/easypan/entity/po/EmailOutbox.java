@@ -0,0 +1,74 @@
+package com.easypan.entity.po;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.io.Serializable;
+import java.util.Date;
+
+
+/**
+ * 邮件发件箱，待发送的邮件先写入此表，再由发送线程异步发送
+ */
+@Setter
+@Getter
+public class EmailOutbox implements Serializable {
+
+    /**
+     * 自增ID
+     */
+    private Long id;
+
+    /**
+     * 收件人邮箱
+     */
+    private String email;
+
+    /**
+     * 邮件主题
+     */
+    private String subject;
+
+    /**
+     * 邮件内容
+     */
+    private String content;
+
+    /**
+     * 0:待发送 1:已发送 2:发送失败
+     */
+    private Integer status;
+
+    /**
+     * 已重试次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 下次发送时间，发送中为租约到期时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date nextSendTime;
+
+    /**
+     * 领取发送的批次标识
+     */
+    private String claimToken;
+
+    /**
+     * 创建时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date createTime;
+
+    /**
+     * 最后更新时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date lastUpdateTime;
+}
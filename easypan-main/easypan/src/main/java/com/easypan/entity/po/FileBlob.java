@@ -0,0 +1,52 @@
+package com.easypan.entity.po;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.io.Serializable;
+import java.util.Date;
+
+
+/**
+ * 文件内容，按MD5去重存储，多个文件信息共享同一份内容
+ */
+@Setter
+@Getter
+public class FileBlob implements Serializable {
+
+    /**
+     * 文件MD5值
+     */
+    private String fileMd5;
+
+    /**
+     * 文件路径
+     */
+    private String filePath;
+
+    /**
+     * 文件大小
+     */
+    private Long fileSize;
+
+    /**
+     * 引用计数，为0时等待回收
+     */
+    private Integer refCount;
+
+    /**
+     * 创建时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date createTime;
+
+    /**
+     * 最后更新时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date lastUpdateTime;
+}
@@ -39,6 +39,11 @@ public class FileInfo implements Serializable {
      */
     private String filePid;
 
+    /**
+     * 父级路径，从根目录到父目录的文件夹ID，格式为 /ID/ID/，根目录下的文件为 /
+     */
+    private String filePidPath;
+
     /**
      * 文件大小
      */
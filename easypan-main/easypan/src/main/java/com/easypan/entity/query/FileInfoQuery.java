@@ -3,6 +3,8 @@ package com.easypan.entity.query;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Date;
+
 
 /**
  * 文件信息参数
@@ -38,6 +40,11 @@ public class FileInfoQuery extends BaseParam {
      */
     private String filePid;
 
+    /**
+     * 父级路径，从根目录到父目录的文件夹ID，格式为 /ID/ID/，根目录下的文件为 /
+     */
+    private String filePidPath;
+
     private String filePidFuzzy;
 
     /**
@@ -117,4 +124,49 @@ public class FileInfoQuery extends BaseParam {
      * 标记删除 0:删除 1:回收站 2:正常
      */
     private Integer delFlag;
+
+    /**
+     * 文件ID集合
+     */
+    private String[] fileIdArray;
+
+    /**
+     * 父级ID集合，用于按层批量查询子文件
+     */
+    private String[] filePidArray;
+
+    /**
+     * 父级路径前缀集合，查询这些文件夹下的所有文件
+     */
+    private String[] filePidPathPrefixArray;
+
+    /**
+     * 排除的父级路径前缀集合，不查询这些文件夹下的文件
+     */
+    private String[] excludeFilePidPathPrefixArray;
+
+    /**
+     * 是否只查询回收站中已过期的文件
+     */
+    private Boolean queryExpire;
+
+    /**
+     * 游标分页的游标，不为空时使用游标分页，首页传空字符串；为null时使用页码分页
+     */
+    private String cursor;
+
+    /**
+     * 游标分页时是否查询总数，默认不查询
+     */
+    private Boolean queryCount;
+
+    /**
+     * 游标解析出的最后更新时间，由服务层设置
+     */
+    private Date cursorLastUpdateTime;
+
+    /**
+     * 游标解析出的文件ID，由服务层设置
+     */
+    private String cursorFileId;
 }
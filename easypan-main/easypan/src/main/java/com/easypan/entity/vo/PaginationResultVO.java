@@ -14,6 +14,7 @@ public class PaginationResultVO<T> {
 	private Integer pageNo;
 	private Integer pageTotal;
 	private List<T> list = new ArrayList<T>();
+	private String nextCursor;
 
 	public PaginationResultVO(Integer totalCount, Integer pageSize, Integer pageNo, List<T> list) {
 		this.totalCount = totalCount;
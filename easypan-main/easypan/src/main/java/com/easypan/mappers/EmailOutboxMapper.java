@@ -0,0 +1,68 @@
+package com.easypan.mappers;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 邮件发件箱 数据库操作接口
+ */
+public interface EmailOutboxMapper<T> {
+
+    /**
+     * 插入待发送邮件
+     *
+     * @param t 邮件
+     * @return 影响的行数
+     */
+    Integer insert(@Param("bean") T t);
+
+    /**
+     * 领取一批到期的待发送邮件，下次发送时间改为租约到期时间，发送线程异常退出时租约到期后可被重新领取
+     *
+     * @param claimToken 批次标识
+     * @param now 当前时间，下次发送时间不晚于该时间的邮件视为到期
+     * @param leaseTime 租约到期时间
+     * @param limit 领取数量
+     * @return 领取的数量
+     */
+    Integer claimBatch(@Param("claimToken") String claimToken, @Param("now") Date now, @Param("leaseTime") Date leaseTime,
+                       @Param("limit") Integer limit);
+
+    /**
+     * 查询批次领取的邮件
+     *
+     * @param claimToken 批次标识
+     * @return 邮件列表
+     */
+    List<T> selectByClaimToken(@Param("claimToken") String claimToken);
+
+    /**
+     * 修改邮件的发送结果，只修改仍由该批次领取的邮件
+     *
+     * @param bean 发送结果，包括状态、重试次数和下次发送时间
+     * @param id 邮件ID
+     * @param claimToken 批次标识
+     * @return 影响的行数
+     */
+    Integer updateSendResult(@Param("bean") T bean, @Param("id") Long id, @Param("claimToken") String claimToken);
+
+    /**
+     * 批量标记为已发送，同时清空邮件内容
+     *
+     * @param idList 邮件ID
+     * @param claimToken 批次标识
+     * @return 影响的行数
+     */
+    Integer updateSentBatch(@Param("idList") List<Long> idList, @Param("claimToken") String claimToken);
+
+    /**
+     * 删除指定时间前已发送的邮件
+     *
+     * @param lastUpdateTime 最后更新时间上限
+     * @param limit 删除数量
+     * @return 影响的行数
+     */
+    Integer deleteSentBefore(@Param("lastUpdateTime") Date lastUpdateTime, @Param("limit") Integer limit);
+}
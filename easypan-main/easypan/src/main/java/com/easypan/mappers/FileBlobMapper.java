@@ -0,0 +1,69 @@
+package com.easypan.mappers;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 文件内容 数据库操作接口
+ */
+public interface FileBlobMapper<T> {
+
+    /**
+     * 根据MD5查询文件内容
+     *
+     * @param fileMd5 文件MD5值
+     * @return 文件内容
+     */
+    T selectByFileMd5(@Param("fileMd5") String fileMd5);
+
+    /**
+     * 插入文件内容，已存在时引用计数加一
+     *
+     * @param t 文件内容，refCount为1
+     * @return 影响的行数，新插入为1，已存在为2
+     */
+    Integer insertOrAddReference(@Param("bean") T t);
+
+    /**
+     * 引用计数加一，引用计数已为0（等待回收）的不再复用
+     *
+     * @param fileMd5 文件MD5值
+     * @return 影响的行数
+     */
+    Integer addReference(@Param("fileMd5") String fileMd5);
+
+    /**
+     * 引用计数减一
+     *
+     * @param fileMd5 文件MD5值
+     * @return 影响的行数
+     */
+    Integer releaseReference(@Param("fileMd5") String fileMd5);
+
+    /**
+     * 批量调整引用计数，一条语句完成，结果不小于0
+     *
+     * @param list 文件内容列表，refCount为引用计数的增量，可为负数
+     * @return 影响的行数
+     */
+    Integer updateRefCountBatch(@Param("list") List<T> list);
+
+    /**
+     * 查询引用计数为0且在指定时间前更新的文件内容
+     *
+     * @param lastUpdateTime 最后更新时间上限
+     * @param limit 查询数量
+     * @return 文件内容列表
+     */
+    List<T> selectUnreferenced(@Param("lastUpdateTime") Date lastUpdateTime, @Param("limit") Integer limit);
+
+    /**
+     * 删除引用计数为0的文件内容
+     *
+     * @param fileMd5 文件MD5值
+     * @return 影响的行数，引用计数不为0时为0
+     */
+    Integer deleteUnreferenced(@Param("fileMd5") String fileMd5);
+}
@@ -2,6 +2,9 @@ package com.easypan.mappers;
 
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
+import java.util.List;
+
 /**
  * 文件信息 数据库操作接口
  * 继承自BaseMapper，提供了特定于文件信息的数据库操作方法
@@ -42,4 +45,67 @@ public interface FileInfoMapper<T, P> extends BaseMapper<T, P> {
      * @return 用户的已使用空间大小
      */
     Long selectUseSpace(@Param("userId") String userId);
+
+    /**
+     * 在文件状态为指定旧状态时更新文件信息，用于转码、合并等异步流程的状态流转
+     *
+     * @param fileId    文件ID
+     * @param userId    用户ID
+     * @param t         待更新的文件信息
+     * @param oldStatus 旧状态
+     * @return 更新操作影响的行数
+     */
+    Integer updateFileStatusWithOldStatus(@Param("fileId") String fileId, @Param("userId") String userId,
+                                          @Param("bean") T t, @Param("oldStatus") Integer oldStatus);
+
+    /**
+     * 替换文件夹下所有文件的父级路径前缀，用于移动文件夹
+     *
+     * @param userId 用户ID
+     * @param oldPrefix 原前缀，即文件夹原来的父级路径加文件夹ID
+     * @param newPrefix 新前缀
+     * @return 更新操作影响的行数
+     */
+    Integer updateFilePidPathPrefix(@Param("userId") String userId, @Param("oldPrefix") String oldPrefix, @Param("newPrefix") String newPrefix);
+
+    /**
+     * 查询父级路径以指定前缀开头的文件的最大层级
+     *
+     * @param userId 用户ID
+     * @param prefix 父级路径前缀
+     * @return 最大层级，没有文件时返回null
+     */
+    Integer selectMaxFilePidPathDepth(@Param("userId") String userId, @Param("prefix") String prefix);
+
+    /**
+     * 批量汇总用户的文件大小，用于对账；回收站中的文件仍占用空间，彻底删除时记录随之删除
+     *
+     * @param userIdList 用户ID列表
+     * @return 每个用户一条记录，只包含userId和fileSize
+     */
+    List<T> selectUseSpaceByUserIds(@Param("userIdList") List<String> userIdList);
+
+    /**
+     * 按MD5顺序分批查询指定状态文件的MD5，用于构建秒传过滤器
+     *
+     * @param status 文件状态
+     * @param lastFileMd5 上一批最后一个MD5，首批传null
+     * @param limit 每批数量
+     * @return 去重后的MD5列表
+     */
+    List<String> selectFileMd5Batch(@Param("status") Integer status, @Param("lastFileMd5") String lastFileMd5, @Param("limit") Integer limit);
+
+    /**
+     * 按(回收时间, 文件ID)顺序分页查询回收站中已过期的文件，只返回文件ID、用户ID和回收时间
+     *
+     * @param delFlag 删除标记
+     * @param expireTime 过期时间，回收时间早于此时间的文件已过期
+     * @param lastRecoveryTime 上一页最后一条的回收时间，首页传null
+     * @param lastFileId 上一页最后一条的文件ID，首页传null
+     * @param limit 每页数量
+     * @return 过期文件列表
+     */
+    List<T> selectExpiredBatch(@Param("delFlag") Integer delFlag, @Param("expireTime") Date expireTime,
+                               @Param("lastRecoveryTime") Date lastRecoveryTime, @Param("lastFileId") String lastFileId,
+                               @Param("limit") Integer limit);
 }
@@ -2,6 +2,8 @@ package com.easypan.mappers;
 
 import org.apache.ibatis.annotations.Param;
 
+import java.util.List;
+
 /**
  * 分享信息 数据库操作接口
  * 继承自BaseMapper，提供了针对分享信息的通用数据库操作
@@ -45,4 +47,12 @@ public interface FileShareMapper<T, P> extends BaseMapper<T, P> {
      * @param shareId 分享ID
      */
     void updateShareShowCount(@Param("shareId") String shareId);
+
+    /**
+     * 批量累加分享信息的展示次数
+     *
+     * @param list 分享列表，shareId为分享ID，showCount为展示次数增量
+     * @return 更新影响的行数
+     */
+    Integer updateShareShowCountBatch(@Param("list") List<T> list);
 }
@@ -2,6 +2,8 @@ package com.easypan.mappers;
 
 import org.apache.ibatis.annotations.Param;
 
+import java.util.List;
+
 /**
  * 用户信息 数据库操作接口
  * 继承BaseMapper，扩展了更多用户信息相关的数据库操作
@@ -115,4 +117,21 @@ public interface UserInfoMapper<T, P> extends BaseMapper<T, P> {
     Integer updateUserSpace(@Param("userId") String userId,
                             @Param("useSpace") Long useSpace,
                             @Param("totalSpace") Long totalSpace);
+
+    /**
+     * 批量累加用户已使用的空间大小
+     *
+     * @param list 用户列表，userId为用户ID，useSpace为已使用空间增量
+     * @return 更新影响的行数
+     */
+    Integer updateUserSpaceBatch(@Param("list") List<T> list);
+
+    /**
+     * 按用户ID顺序分批查询用户的已使用空间
+     *
+     * @param lastUserId 上一批最后一个用户ID，首批为空
+     * @param limit      每批数量
+     * @return 用户列表，只包含userId和useSpace
+     */
+    List<T> selectUseSpaceBatch(@Param("lastUserId") String lastUserId, @Param("limit") Integer limit);
 }
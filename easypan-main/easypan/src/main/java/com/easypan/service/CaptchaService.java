@@ -0,0 +1,17 @@
+package com.easypan.service;
+
+import com.easypan.entity.dto.CaptchaDto;
+
+/**
+ * 验证码 业务接口
+ * 验证码图片在后台线程预先生成并编码，请求时直接取出
+ */
+public interface CaptchaService {
+
+    /**
+     * 取出一个验证码，取出后不会再发给其他请求；池中没有时当场生成
+     *
+     * @return 验证码
+     */
+    CaptchaDto takeCaptcha();
+}
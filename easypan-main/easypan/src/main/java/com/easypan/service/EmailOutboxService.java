@@ -0,0 +1,32 @@
+package com.easypan.service;
+
+import java.util.Date;
+
+/**
+ * 邮件发件箱 业务接口
+ * 业务事务中只写入发件箱，事务提交后由邮件线程批量发送，发送失败按退避时间重试
+ */
+public interface EmailOutboxService {
+
+    /**
+     * 写入一封待发送邮件，在当前事务中执行；事务提交后触发发送，没有事务时立即触发
+     *
+     * @param email 收件人邮箱
+     * @param subject 邮件主题
+     * @param content 邮件内容
+     */
+    void enqueue(String email, String subject, String content);
+
+    /**
+     * 触发发送到期的待发送邮件，已在发送时只标记需要再发送一轮
+     */
+    void dispatch();
+
+    /**
+     * 删除指定时间前已发送的邮件
+     *
+     * @param before 时间上限
+     * @return 删除的数量
+     */
+    int cleanSent(Date before);
+}
@@ -0,0 +1,73 @@
+package com.easypan.service;
+
+import com.easypan.entity.po.FileBlob;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件内容 业务接口
+ * 相同MD5的文件只存储一份内容，文件信息通过文件路径引用内容，引用计数归零后由定时任务回收
+ */
+public interface FileBlobService {
+
+    /**
+     * 将合并完成的文件存入内容存储，已存在相同内容时删除该文件并复用已有内容
+     * 两种情况都会使引用计数加一
+     *
+     * @param fileMd5 文件MD5值
+     * @param file 合并完成的文件
+     * @param fileSuffix 文件后缀
+     * @return 内容的文件路径，相对于文件目录
+     * @throws IOException 移动文件失败时抛出
+     */
+    String store(String fileMd5, File file, String fileSuffix) throws IOException;
+
+    /**
+     * 为秒传增加内容的引用
+     *
+     * @param fileMd5 文件MD5值
+     * @return 是否成功，内容不存在或已等待回收时返回false，此时应按普通上传处理
+     */
+    boolean addReference(String fileMd5);
+
+    /**
+     * 释放内容的引用，文件信息彻底删除时调用
+     *
+     * @param fileMd5 文件MD5值
+     */
+    void releaseReference(String fileMd5);
+
+    /**
+     * 批量调整内容的引用计数，复制或彻底删除文件夹时调用，每批一条语句
+     *
+     * @param refCountMap MD5 -> 引用计数增量，复制时为正数，删除时为负数
+     */
+    void changeReferences(Map<String, Integer> refCountMap);
+
+    /**
+     * 判断文件路径是否指向内容存储，之前上传的文件不在内容存储中，不参与引用计数
+     *
+     * @param filePath 文件路径
+     * @return 是否为内容存储中的路径
+     */
+    boolean isBlobPath(String filePath);
+
+    /**
+     * 查询引用计数归零且超过保留时间的内容
+     *
+     * @param limit 查询数量
+     * @return 等待回收的内容列表
+     */
+    List<FileBlob> findUnreferenced(Integer limit);
+
+    /**
+     * 回收内容，删除记录后删除内容文件及视频分片、封面
+     *
+     * @param fileBlob 等待回收的内容
+     * @return 是否回收，回收前被重新引用时返回false
+     */
+    boolean deleteUnreferenced(FileBlob fileBlob);
+}
@@ -2,6 +2,7 @@ package com.easypan.service;
 
 import com.easypan.entity.dto.SessionWebUserDto;
 import com.easypan.entity.dto.UploadResultDto;
+import com.easypan.entity.dto.UploadStatusDto;
 import com.easypan.entity.po.FileInfo;
 import com.easypan.entity.query.FileInfoQuery;
 import com.easypan.entity.vo.PaginationResultVO;
@@ -124,4 +125,92 @@ public interface FileInfoService {
                                MultipartFile file, String fileName,
                                String filePid, String fileMd5,
                                Integer chunkIndex, Integer chunks);
+
+    /**
+     * 合并上传完成的文件分片，在分片合并线程池中异步执行
+     *
+     * @param fileId     文件ID
+     * @param webUserDto 用户会话信息
+     */
+    void transferFile(String fileId, SessionWebUserDto webUserDto);
+
+    /**
+     * 查询分片上传进度，用于断点续传
+     *
+     * @param webUserDto 用户会话信息
+     * @param fileId     文件ID
+     * @param chunks     总分片数
+     * @return 上传进度，包含尚未接收的分片索引
+     */
+    UploadStatusDto getUploadStatus(SessionWebUserDto webUserDto, String fileId, Integer chunks);
+
+    /**
+     * 视频转码，生成封面、m3u8索引和ts分片，完成后文件状态置为使用中
+     *
+     * @param fileId 文件ID
+     * @param userId 用户ID
+     */
+    void transcodeVideo(String fileId, String userId);
+
+    /**
+     * 视频转码重试次数用尽，文件状态置为转码失败
+     *
+     * @param fileId 文件ID
+     * @param userId 用户ID
+     */
+    void transcodeFail(String fileId, String userId);
+
+    /**
+     * 将文件放入回收站，文件夹下的所有文件随之标记为删除
+     *
+     * @param userId  用户ID
+     * @param fileIds 文件ID，多个以逗号分隔
+     */
+    void removeFile2RecycleBatch(String userId, String fileIds);
+
+    /**
+     * 从回收站还原文件，文件夹下随之删除的文件一并还原；原目录已不存在时还原到根目录
+     *
+     * @param userId  用户ID
+     * @param fileIds 文件ID，多个以逗号分隔
+     */
+    void recoverFileBatch(String userId, String fileIds);
+
+    /**
+     * 彻底删除文件及文件夹下的所有文件，释放占用的空间
+     *
+     * @param userId  用户ID
+     * @param fileIds 文件ID，多个以逗号分隔
+     * @param adminOp 是否为管理员操作，管理员可删除不在回收站中的文件
+     */
+    void delFileBatch(String userId, String fileIds, Boolean adminOp);
+
+    /**
+     * 移动文件到指定目录
+     *
+     * @param fileIds 文件ID，多个以逗号分隔
+     * @param filePid 目标目录ID，根目录为0
+     * @param userId  用户ID
+     */
+    void changeFileFolder(String fileIds, String filePid, String userId);
+
+    /**
+     * 校验文件是否为分享的根目录或其下的文件
+     *
+     * @param rootFilePid 分享的根文件ID
+     * @param userId      分享人ID
+     * @param fileId      要访问的文件ID
+     */
+    void checkRootFilePid(String rootFilePid, String userId, String fileId);
+
+    /**
+     * 将分享的文件保存到自己的网盘，文件夹连同其下的所有文件一起复制
+     *
+     * @param shareRootFilePid 分享的根文件ID
+     * @param shareFileIds     要保存的文件ID，多个以逗号分隔
+     * @param myFolderId       保存到的目录ID
+     * @param shareUserId      分享人ID
+     * @param currentUserId    当前用户ID
+     */
+    void saveShare(String shareRootFilePid, String shareFileIds, String myFolderId, String shareUserId, String currentUserId);
 }
@@ -4,6 +4,7 @@ import com.easypan.entity.dto.SessionShareDto;
 import com.easypan.entity.po.FileShare;
 import com.easypan.entity.query.FileShareQuery;
 import com.easypan.entity.vo.PaginationResultVO;
+import com.easypan.entity.vo.ShareInfoVO;
 
 import java.util.List;
 
@@ -103,9 +104,19 @@ public interface FileShareService {
     /**
      * 验证分享码是否正确
      *
-     * @param shareId 分享ID
-     * @param code    用户输入的分享码
+     * @param shareId  分享ID
+     * @param code     用户输入的分享码
+     * @param clientIp 客户端IP，提取码错误次数按分享和IP统计
      * @return 如果分享码正确，则返回会话分享DTO对象
      */
-    SessionShareDto checkShareCode(String shareId, String code);
+    SessionShareDto checkShareCode(String shareId, String code, String clientIp);
+
+    /**
+     * 获取分享页面展示的分享信息，包括文件名和分享者的昵称、头像
+     * 按分享ID缓存，返回的是副本，可以修改；分享不存在、已过期或分享的文件已删除时抛出业务异常
+     *
+     * @param shareId 分享ID
+     * @return 分享信息
+     */
+    ShareInfoVO getShareInfo(String shareId);
 }
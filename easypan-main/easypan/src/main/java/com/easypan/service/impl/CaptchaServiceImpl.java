@@ -0,0 +1,107 @@
+package com.easypan.service.impl;
+
+import com.easypan.entity.dto.CaptchaDto;
+import com.easypan.entity.dto.CreateImageCode;
+import com.easypan.service.CaptchaService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 验证码 业务接口实现
+ * 验证码池中的数量低于下限时，由验证码线程按批补充到上限；登录高峰时请求线程只取出编码好的图片，不再绘图和编码
+ */
+@Service("captchaService")
+public class CaptchaServiceImpl implements CaptchaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaptchaServiceImpl.class);
+
+    /**
+     * 验证码池上限
+     */
+    private static final int POOL_SIZE = 500;
+
+    /**
+     * 低于该数量时开始补充
+     */
+    private static final int LOW_WATERMARK = 200;
+
+    /**
+     * 图片宽度、高度、字符数和干扰线数
+     */
+    private static final int IMAGE_WIDTH = 130;
+    private static final int IMAGE_HEIGHT = 38;
+    private static final int CODE_COUNT = 5;
+    private static final int LINE_COUNT = 10;
+
+    private final BlockingQueue<CaptchaDto> captchaPool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * 是否正在补充，保证同时只有一个补充任务
+     */
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+
+    @Resource(name = "captchaExecutor")
+    private ThreadPoolTaskExecutor captchaExecutor;
+
+    /**
+     * 启动时在后台填满验证码池
+     */
+    @PostConstruct
+    public void init() {
+        triggerRefill();
+    }
+
+    @Override
+    public CaptchaDto takeCaptcha() {
+        CaptchaDto captcha = captchaPool.poll();
+        if (captchaPool.size() < LOW_WATERMARK) {
+            triggerRefill();
+        }
+        return captcha != null ? captcha : createCaptcha();
+    }
+
+    /**
+     * 提交补充任务，已有补充任务在执行时不重复提交
+     */
+    private void triggerRefill() {
+        if (!refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            captchaExecutor.execute(this::refill);
+        } catch (Exception e) {
+            refilling.set(false);
+            logger.error("提交验证码补充任务失败", e);
+        }
+    }
+
+    /**
+     * 补充验证码直到池满
+     */
+    private void refill() {
+        try {
+            while (captchaPool.remainingCapacity() > 0) {
+                if (!captchaPool.offer(createCaptcha())) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("生成验证码失败", e);
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    private CaptchaDto createCaptcha() {
+        CreateImageCode imageCode = new CreateImageCode(IMAGE_WIDTH, IMAGE_HEIGHT, CODE_COUNT, LINE_COUNT);
+        return new CaptchaDto(imageCode.getCode(), imageCode.toJpegBytes());
+    }
+}
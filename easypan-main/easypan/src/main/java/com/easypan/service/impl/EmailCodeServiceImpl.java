@@ -15,14 +15,11 @@ import com.easypan.exception.BusinessException;
 import com.easypan.mappers.EmailCodeMapper;
 import com.easypan.mappers.UserInfoMapper;
 import com.easypan.service.EmailCodeService;
+import com.easypan.service.EmailOutboxService;
 import com.easypan.utils.StringTools;
 import jakarta.annotation.Resource;
-import jakarta.mail.internet.MimeMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -44,12 +41,12 @@ public class EmailCodeServiceImpl implements EmailCodeService {
     // 用户信息数据访问对象，用于操作用户信息相关数据
     @Resource
     private UserInfoMapper<UserInfo, UserInfoQuery> userInfoMapper;
-    // 邮件发送器，用于发送邮件
-    @Resource
-    private JavaMailSender javaMailSender;
-    // 应用配置对象，用于获取应用配置信息
+    // 应用配置对象，用于获取验证码存储方式
     @Resource
     private AppConfig appConfig;
+    // 邮件发件箱业务对象，用于异步发送邮件
+    @Resource
+    private EmailOutboxService emailOutboxService;
     // Redis组件，用于操作Redis中的数据
     @Resource
     private RedisComponent redisComponent;
@@ -238,57 +235,27 @@ public class EmailCodeServiceImpl implements EmailCodeService {
         }
         // 生成5位随机数字作为验证码
         String code = StringTools.getRandomNumber(Constants.LENGTH_5);
-        // 发送验证码
-        sendMailCode(email, code);
-        // 将之前的验证码置为无效
-        emailCodeMapper.disableEmailCode(email);
-
-        // 创建新的邮箱验证码对象
-        EmailCode emailCode = new EmailCode();
-        emailCode.setCode(code);
-        emailCode.setEmail(email);
-        emailCode.setStatus(Constants.ZERO);
-        emailCode.setCreateTime(new Date());
-        // 插入新的邮箱验证码记录
-        emailCodeMapper.insert(emailCode);
-    }
-
-    /**
-     * 发送验证码具体实现
-     *
-     * @param toEmail 发送的邮箱
-     * @param code 发送的验证码
-     */
-    private void sendMailCode(String toEmail, String code) {
-        try {
-            // 创建Mime邮件对象
-            MimeMessage message = javaMailSender.createMimeMessage();
-            // 初始化邮件帮助器，设置为true表示邮件内容为HTML格式
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-            // 设置发件人邮箱地址
-            helper.setFrom(appConfig.getSendUserName());
-            // 设置收件人邮箱地址
-            helper.setTo(toEmail);
+        if (isRedisCodeStore()) {
+            // 覆盖之前的验证码，到期由Redis自动删除
+            redisComponent.saveEmailCode(email, code, Constants.LENGTH_15 * 60);
+        } else {
+            // 将之前的验证码置为无效
+            emailCodeMapper.disableEmailCode(email);
 
-            // 从Redis中获取系统设置信息
-            SysSettingsDto sysSettingsDto = redisComponent.getSysSettingsDto();
-            // 设置邮件主题
-            helper.setSubject(sysSettingsDto.getRegisterMailTitle());
-            // 设置邮件内容，使用系统设置中的内容格式，并插入验证码
-            helper.setText(String.format(sysSettingsDto.getRegisterEmailContent(), code));
-
-            // 设置邮件发送日期为当前日期
-            helper.setSentDate(new Date());
-
-            // 发送邮件
-            javaMailSender.send(message);
-        } catch (Exception e) {
-            // 记录邮件发送失败的日志
-            logger.error("邮件发送失败");
-            // 抛出业务异常，提示邮件发送失败
-            throw new BusinessException("邮件发送失败");
+            // 创建新的邮箱验证码对象
+            EmailCode emailCode = new EmailCode();
+            emailCode.setCode(code);
+            emailCode.setEmail(email);
+            emailCode.setStatus(Constants.ZERO);
+            emailCode.setCreateTime(new Date());
+            // 插入新的邮箱验证码记录
+            emailCodeMapper.insert(emailCode);
         }
+
+        // 写入发件箱，事务提交后由邮件线程发送
+        SysSettingsDto sysSettingsDto = redisComponent.getSysSettingsDto();
+        emailOutboxService.enqueue(email, sysSettingsDto.getRegisterMailTitle(),
+                String.format(sysSettingsDto.getRegisterEmailContent(), code));
     }
 
     /**
@@ -300,6 +267,18 @@ public class EmailCodeServiceImpl implements EmailCodeService {
      */
     @Override
     public void checkCode(String email, String code) {
+        if (isRedisCodeStore()) {
+            long result = redisComponent.checkEmailCode(email, code);
+            if (result == 0) {
+                throw new BusinessException("邮箱验证码不正确");
+            }
+            if (result < 0) {
+                throw new BusinessException("邮箱验证码已失效");
+            }
+            // 注册、重置密码的事务提交后再删除验证码，事务回滚时用户可以用同一个验证码重试
+            redisComponent.consumeEmailCodeAfterCommit(email, code);
+            return;
+        }
         // 根据邮箱和验证码查询数据库中的验证码记录
         EmailCode emailCode = emailCodeMapper.selectByEmailAndCode(email, code);
 
@@ -317,4 +296,11 @@ public class EmailCodeServiceImpl implements EmailCodeService {
         // 验证码验证通过后，调用方法将该验证码标记为已使用，确保其不能再被使用
         emailCodeMapper.disableEmailCode(email);
     }
+
+    /**
+     * 验证码是否保存在Redis中，否则保存在email_code表中
+     */
+    private boolean isRedisCodeStore() {
+        return !"db".equalsIgnoreCase(appConfig.getEmailCodeStore());
+    }
 }
@@ -0,0 +1,259 @@
+package com.easypan.service.impl;
+
+import com.easypan.entity.config.AppConfig;
+import com.easypan.entity.constants.Constants;
+import com.easypan.entity.po.EmailOutbox;
+import com.easypan.mappers.EmailOutboxMapper;
+import com.easypan.service.EmailOutboxService;
+import jakarta.annotation.Resource;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 邮件发件箱 业务接口实现
+ * 邮件线程每次领取一批到期邮件，整批通过一个SMTP连接发送，每秒最多发送一批；
+ * 领取通过 UPDATE ... LIMIT 写入批次标识，多个节点同时发送时不会重复领取；发送线程异常退出时，租约到期后邮件被重新领取
+ */
+@Service("emailOutboxService")
+public class EmailOutboxServiceImpl implements EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxServiceImpl.class);
+
+    private static final int STATUS_PENDING = 0;
+    private static final int STATUS_FAILED = 2;
+
+    /**
+     * 每批发送的邮件数，同时是每秒最多发送的邮件数
+     */
+    private static final int BATCH_SIZE = 10;
+
+    /**
+     * 领取后的租约时长（毫秒），超过该时间未回写结果的邮件可被重新领取
+     */
+    private static final long LEASE_MILLIS = 1000 * 60 * 5;
+
+    /**
+     * 最多重试次数，超过后标记为发送失败
+     */
+    private static final int MAX_RETRY_COUNT = 5;
+
+    /**
+     * 首次重试的等待时间（毫秒），之后每次翻倍
+     */
+    private static final long RETRY_BASE_MILLIS = 1000 * 30;
+
+    /**
+     * 每批至少耗时这么久，控制发送速度
+     */
+    private static final long MIN_BATCH_MILLIS = 1000;
+
+    @Resource
+    private EmailOutboxMapper<EmailOutbox> emailOutboxMapper;
+
+    @Resource
+    private JavaMailSender javaMailSender;
+
+    @Resource
+    private AppConfig appConfig;
+
+    @Resource(name = "mailExecutor")
+    private ThreadPoolTaskExecutor mailExecutor;
+
+    /**
+     * 是否有发送任务在执行，保证每个节点同时只有一个发送任务
+     */
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+
+    /**
+     * 发送任务执行期间是否又有新邮件，有则发送任务再执行一轮
+     */
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean(false);
+
+    @Override
+    public void enqueue(String email, String subject, String content) {
+        // datetime列只精确到秒，MySQL写入时对毫秒四舍五入，取整到秒保证写入的下次发送时间不晚于领取时传入的当前时间
+        Date curDate = new Date(System.currentTimeMillis() / 1000 * 1000);
+        EmailOutbox emailOutbox = new EmailOutbox();
+        emailOutbox.setEmail(email);
+        emailOutbox.setSubject(subject);
+        emailOutbox.setContent(content);
+        emailOutbox.setStatus(STATUS_PENDING);
+        emailOutbox.setRetryCount(Constants.ZERO);
+        emailOutbox.setNextSendTime(curDate);
+        emailOutbox.setCreateTime(curDate);
+        emailOutbox.setLastUpdateTime(curDate);
+        emailOutboxMapper.insert(emailOutbox);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch();
+                }
+            });
+        } else {
+            dispatch();
+        }
+    }
+
+    @Override
+    public void dispatch() {
+        dispatchRequested.set(true);
+        if (!dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            mailExecutor.execute(this::dispatchLoop);
+        } catch (Exception e) {
+            dispatching.set(false);
+            logger.error("提交邮件发送任务失败", e);
+        }
+    }
+
+    @Override
+    public int cleanSent(Date before) {
+        return emailOutboxMapper.deleteSentBefore(before, 1000);
+    }
+
+    /**
+     * 发送到期邮件直到没有新的发送请求
+     */
+    private void dispatchLoop() {
+        try {
+            while (dispatchRequested.getAndSet(false)) {
+                sendDueMails();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("发送邮件失败", e);
+        } finally {
+            dispatching.set(false);
+        }
+        // 释放标记前有新请求进来时，由本线程接着提交
+        if (dispatchRequested.get() && !Thread.currentThread().isInterrupted()) {
+            dispatch();
+        }
+    }
+
+    /**
+     * 分批领取并发送到期邮件，直到没有到期邮件
+     */
+    private void sendDueMails() throws InterruptedException {
+        while (true) {
+            long batchStart = System.currentTimeMillis();
+            String claimToken = UUID.randomUUID().toString();
+            Integer claimCount = emailOutboxMapper.claimBatch(claimToken, new Date(batchStart), new Date(batchStart + LEASE_MILLIS),
+                    BATCH_SIZE);
+            if (claimCount == null || claimCount == 0) {
+                return;
+            }
+            sendBatch(claimToken, emailOutboxMapper.selectByClaimToken(claimToken));
+            if (claimCount < BATCH_SIZE) {
+                return;
+            }
+            long sleepMillis = MIN_BATCH_MILLIS - (System.currentTimeMillis() - batchStart);
+            if (sleepMillis > 0) {
+                Thread.sleep(sleepMillis);
+            }
+        }
+    }
+
+    /**
+     * 通过一个SMTP连接发送一批邮件，并回写每封邮件的发送结果
+     *
+     * @param claimToken 批次标识
+     * @param emailOutboxList 本批邮件
+     */
+    private void sendBatch(String claimToken, List<EmailOutbox> emailOutboxList) {
+        if (emailOutboxList.isEmpty()) {
+            return;
+        }
+        List<MimeMessage> messageList = new ArrayList<>(emailOutboxList.size());
+        List<EmailOutbox> sendingList = new ArrayList<>(emailOutboxList.size());
+        Map<Object, Exception> failedMessages = Collections.emptyMap();
+        List<EmailOutbox> failedList = new ArrayList<>();
+        for (EmailOutbox emailOutbox : emailOutboxList) {
+            try {
+                messageList.add(createMessage(emailOutbox));
+                sendingList.add(emailOutbox);
+            } catch (Exception e) {
+                logger.error("创建邮件失败，邮件ID:{}", emailOutbox.getId(), e);
+                failedList.add(emailOutbox);
+            }
+        }
+        boolean allFailed = false;
+        if (!messageList.isEmpty()) {
+            try {
+                javaMailSender.send(messageList.toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                failedMessages = e.getFailedMessages();
+                // 连接或认证失败时没有逐封的失败信息，整批都未发送
+                allFailed = failedMessages.isEmpty();
+                logger.error("邮件发送失败，本批数量:{}，失败数量:{}", messageList.size(), allFailed ? messageList.size() : failedMessages.size(), e);
+            } catch (Exception e) {
+                allFailed = true;
+                logger.error("邮件发送失败，本批数量:{}", messageList.size(), e);
+            }
+        }
+        List<Long> sentIdList = new ArrayList<>(sendingList.size());
+        for (int i = 0; i < sendingList.size(); i++) {
+            if (allFailed || failedMessages.containsKey(messageList.get(i))) {
+                failedList.add(sendingList.get(i));
+            } else {
+                sentIdList.add(sendingList.get(i).getId());
+            }
+        }
+        if (!sentIdList.isEmpty()) {
+            emailOutboxMapper.updateSentBatch(sentIdList, claimToken);
+        }
+        for (EmailOutbox emailOutbox : failedList) {
+            markRetry(emailOutbox, claimToken);
+        }
+    }
+
+    /**
+     * 发送失败的邮件按指数退避时间重新排队，超过最多重试次数时标记为发送失败
+     */
+    private void markRetry(EmailOutbox emailOutbox, String claimToken) {
+        int retryCount = emailOutbox.getRetryCount() == null ? 0 : emailOutbox.getRetryCount();
+        EmailOutbox updateInfo = new EmailOutbox();
+        updateInfo.setRetryCount(retryCount + 1);
+        if (retryCount >= MAX_RETRY_COUNT) {
+            updateInfo.setStatus(STATUS_FAILED);
+            updateInfo.setNextSendTime(emailOutbox.getNextSendTime());
+            logger.error("邮件超过最多重试次数，不再发送，邮件ID:{}，收件人:{}", emailOutbox.getId(), emailOutbox.getEmail());
+        } else {
+            updateInfo.setStatus(STATUS_PENDING);
+            updateInfo.setNextSendTime(new Date(System.currentTimeMillis() + (RETRY_BASE_MILLIS << retryCount)));
+        }
+        emailOutboxMapper.updateSendResult(updateInfo, emailOutbox.getId(), claimToken);
+    }
+
+    private MimeMessage createMessage(EmailOutbox emailOutbox) throws Exception {
+        MimeMessage message = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setFrom(appConfig.getSendUserName());
+        helper.setTo(emailOutbox.getEmail());
+        helper.setSubject(emailOutbox.getSubject());
+        helper.setText(emailOutbox.getContent());
+        helper.setSentDate(new Date());
+        return message;
+    }
+}
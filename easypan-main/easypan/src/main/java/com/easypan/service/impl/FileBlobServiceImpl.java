@@ -0,0 +1,157 @@
+package com.easypan.service.impl;
+
+import com.easypan.entity.config.AppConfig;
+import com.easypan.entity.constants.Constants;
+import com.easypan.entity.po.FileBlob;
+import com.easypan.mappers.FileBlobMapper;
+import com.easypan.service.FileBlobService;
+import com.easypan.utils.StringTools;
+import jakarta.annotation.Resource;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件内容 业务接口实现
+ * 内容按MD5分两级目录存放：blob/ab/cd/MD5.后缀，视频分片目录和封面与内容文件同名放在同一目录
+ */
+@Service("fileBlobService")
+public class FileBlobServiceImpl implements FileBlobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileBlobServiceImpl.class);
+
+    /**
+     * 引用计数归零后的保留时间（毫秒），期间内容仍可被重新引用
+     */
+    private static final long UNREFERENCED_KEEP_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * 批量调整引用计数时每条语句包含的内容数
+     */
+    private static final int BATCH_SIZE = 500;
+
+    @Resource
+    private FileBlobMapper<FileBlob> fileBlobMapper;
+
+    @Resource
+    private AppConfig appConfig;
+
+    /**
+     * 存入内容，插入记录和移动文件在同一事务中
+     * 回收时删除记录会锁住该行直到文件删除完成，这里插入同一MD5的记录会等待回收结束，不会出现文件被回收删除的情况
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public String store(String fileMd5, File file, String fileSuffix) throws IOException {
+        Date curDate = new Date();
+        FileBlob fileBlob = new FileBlob();
+        fileBlob.setFileMd5(fileMd5);
+        fileBlob.setFilePath(getBlobPath(fileMd5, fileSuffix));
+        fileBlob.setFileSize(file.length());
+        fileBlob.setRefCount(1);
+        fileBlob.setCreateTime(curDate);
+        fileBlob.setLastUpdateTime(curDate);
+        // 新插入影响1行，已存在时引用计数加一影响2行
+        Integer count = fileBlobMapper.insertOrAddReference(fileBlob);
+        if (count > 1) {
+            fileBlob = fileBlobMapper.selectByFileMd5(fileMd5);
+        }
+        File blobFile = new File(appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE + fileBlob.getFilePath());
+        if (count > 1 && blobFile.exists()) {
+            // 已存在相同内容，删除本次合并的文件
+            file.delete();
+            return fileBlob.getFilePath();
+        }
+        if (!blobFile.getParentFile().exists()) {
+            blobFile.getParentFile().mkdirs();
+        }
+        Files.move(file.toPath(), blobFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return fileBlob.getFilePath();
+    }
+
+    @Override
+    public boolean addReference(String fileMd5) {
+        return fileBlobMapper.addReference(fileMd5) > 0;
+    }
+
+    @Override
+    public void releaseReference(String fileMd5) {
+        if (fileBlobMapper.releaseReference(fileMd5) == 0) {
+            logger.warn("释放文件内容引用失败，内容不存在或引用计数已为0，MD5:{}", fileMd5);
+        }
+    }
+
+    @Override
+    public void changeReferences(Map<String, Integer> refCountMap) {
+        List<FileBlob> batch = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : refCountMap.entrySet()) {
+            FileBlob fileBlob = new FileBlob();
+            fileBlob.setFileMd5(entry.getKey());
+            fileBlob.setRefCount(entry.getValue());
+            batch.add(fileBlob);
+            if (batch.size() >= BATCH_SIZE) {
+                fileBlobMapper.updateRefCountBatch(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            fileBlobMapper.updateRefCountBatch(batch);
+        }
+    }
+
+    @Override
+    public boolean isBlobPath(String filePath) {
+        return filePath != null && filePath.startsWith(Constants.FILE_FOLDER_BLOB);
+    }
+
+    @Override
+    public List<FileBlob> findUnreferenced(Integer limit) {
+        return fileBlobMapper.selectUnreferenced(new Date(System.currentTimeMillis() - UNREFERENCED_KEEP_MILLIS), limit);
+    }
+
+    /**
+     * 回收内容，文件在删除记录的事务内删除，事务提交前同一MD5的存入会等待
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean deleteUnreferenced(FileBlob fileBlob) {
+        if (fileBlobMapper.deleteUnreferenced(fileBlob.getFileMd5()) == 0) {
+            return false;
+        }
+        String fileFolder = appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE;
+        String fileNameNoSuffix = StringTools.getFileNameNoSuffix(fileBlob.getFilePath());
+        new File(fileFolder + fileBlob.getFilePath()).delete();
+        new File(fileFolder + fileNameNoSuffix + Constants.IMAGE_PNG_SUFFIX).delete();
+        File tsFolder = new File(fileFolder + fileNameNoSuffix);
+        if (tsFolder.exists()) {
+            try {
+                FileUtils.deleteDirectory(tsFolder);
+            } catch (IOException e) {
+                logger.error("删除视频分片目录失败:{}", tsFolder.getPath(), e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 根据MD5计算内容的文件路径，前两级目录取MD5的前四位，避免单个目录下文件过多
+     *
+     * @param fileMd5 文件MD5值
+     * @param fileSuffix 文件后缀
+     * @return 相对于文件目录的路径
+     */
+    private String getBlobPath(String fileMd5, String fileSuffix) {
+        return Constants.FILE_FOLDER_BLOB + fileMd5.substring(0, 2) + "/" + fileMd5.substring(2, 4) + "/" + fileMd5 + fileSuffix;
+    }
+}
@@ -1,23 +1,51 @@
 package com.easypan.service.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import com.easypan.component.FileMd5FilterComponent;
 import com.easypan.component.RedisComponent;
 import com.easypan.entity.config.AppConfig;
 import com.easypan.entity.constants.Constants;
 import com.easypan.entity.dto.SessionWebUserDto;
+import com.easypan.entity.dto.TranscodeJobDto;
 import com.easypan.entity.dto.UploadResultDto;
-import com.easypan.entity.dto.UserSpaceDto;
+import com.easypan.entity.dto.UploadStatusDto;
 import com.easypan.entity.enums.*;
 import com.easypan.entity.po.UserInfo;
 import com.easypan.entity.query.UserInfoQuery;
 import com.easypan.exception.BusinessException;
 import com.easypan.mappers.UserInfoMapper;
+import com.easypan.utils.CopyTools;
+import com.easypan.utils.DateUtil;
+import com.easypan.utils.ProcessUtils;
+import com.easypan.utils.ScaleFilter;
 import jakarta.annotation.Resource;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import com.easypan.entity.query.FileInfoQuery;
@@ -25,9 +53,12 @@ import com.easypan.entity.po.FileInfo;
 import com.easypan.entity.vo.PaginationResultVO;
 import com.easypan.entity.query.SimplePage;
 import com.easypan.mappers.FileInfoMapper;
+import com.easypan.service.FileBlobService;
 import com.easypan.service.FileInfoService;
 import com.easypan.utils.StringTools;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 
@@ -45,6 +76,37 @@ public class FileInfoServiceImpl implements FileInfoService {
 	private UserInfoMapper<UserInfo, UserInfoQuery> userInfoMapper;
 	@Resource
 	private AppConfig appConfig;
+	@Resource
+	private FileBlobService fileBlobService;
+	@Resource
+	private FileMd5FilterComponent fileMd5FilterComponent;
+	/**
+	 * 注入自身代理，用于在事务提交后异步调用合并方法
+	 */
+	@Resource
+	@Lazy
+	private FileInfoService fileInfoService;
+
+	/**
+	 * 合并分片时使用的缓冲区大小
+	 */
+	private static final int MERGE_BUFFER_SIZE = 1024 * 1024;
+	/**
+	 * 一次选择的最大文件数，以及批量插入的批量大小
+	 */
+	private static final int TREE_BATCH_SIZE = 1000;
+	/**
+	 * 根目录下文件的父级路径
+	 */
+	private static final String ROOT_PID_PATH = "/";
+	/**
+	 * 文件夹操作允许的最大层级
+	 */
+	private static final int TREE_MAX_DEPTH = 64;
+	/**
+	 * 彻底删除或复制文件夹时一次允许处理的最大文件数
+	 */
+	private static final int TREE_MAX_NODES = 100000;
 	/**
 	 * 根据条件查询列表
 	 */
@@ -72,6 +134,10 @@ public class FileInfoServiceImpl implements FileInfoService {
 	 */
 	@Override
 	public PaginationResultVO<FileInfo> findListByPage(FileInfoQuery param) {
+	    // 传入了游标，使用游标分页
+	    if (param.getCursor() != null) {
+	        return findListByCursor(param);
+	    }
 	    // 根据查询条件计算总记录数
 	    int count = this.findCountByParam(param);
 	    // 获取每页记录数，如果没有设置，则使用默认值
@@ -87,6 +153,64 @@ public class FileInfoServiceImpl implements FileInfoService {
 	    return result;
 	}
 
+	/**
+	 * 游标分页查询
+	 * 按(last_update_time, file_id)倒序定位，每页只扫描本页数据，不随页数加深变慢；默认不查询总数
+	 *
+	 * @param param 查询参数，cursor为上一页返回的nextCursor，首页为空字符串
+	 * @return 分页结果，nextCursor为空表示没有下一页
+	 */
+	private PaginationResultVO<FileInfo> findListByCursor(FileInfoQuery param) {
+	    int pageSize = param.getPageSize() == null ? PageSize.SIZE15.getSize() : param.getPageSize();
+	    // 总数按需查询，此时还未设置游标条件
+	    Integer count = Boolean.TRUE.equals(param.getQueryCount()) ? this.findCountByParam(param) : null;
+	    if (!StringTools.isEmpty(param.getCursor())) {
+	        decodeCursor(param);
+	    }
+	    param.setOrderBy("last_update_time desc, file_id desc");
+	    // 多查一条，用于判断是否还有下一页
+	    param.setSimplePage(new SimplePage(0, pageSize + 1));
+	    List<FileInfo> list = this.findListByParam(param);
+	    PaginationResultVO<FileInfo> result = new PaginationResultVO<>();
+	    if (list.size() > pageSize) {
+	        list = list.subList(0, pageSize);
+	        FileInfo last = list.get(pageSize - 1);
+	        result.setNextCursor(encodeCursor(last));
+	    }
+	    result.setList(list);
+	    result.setPageSize(pageSize);
+	    result.setTotalCount(count);
+	    return result;
+	}
+
+	/**
+	 * 生成游标，内容为最后更新时间的毫秒数和文件ID
+	 *
+	 * @param fileInfo 当前页最后一条记录
+	 * @return Base64编码的游标
+	 */
+	private String encodeCursor(FileInfo fileInfo) {
+	    String cursor = fileInfo.getLastUpdateTime().getTime() + "_" + fileInfo.getFileId();
+	    return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 解析游标，设置到查询参数的定位条件中
+	 *
+	 * @param param 查询参数
+	 * @throws BusinessException 游标格式错误时抛出
+	 */
+	private void decodeCursor(FileInfoQuery param) {
+	    try {
+	        String cursor = new String(Base64.getUrlDecoder().decode(param.getCursor()), StandardCharsets.UTF_8);
+	        int index = cursor.indexOf("_");
+	        param.setCursorLastUpdateTime(new Date(Long.parseLong(cursor.substring(0, index))));
+	        param.setCursorFileId(cursor.substring(index + 1));
+	    } catch (Exception e) {
+	        throw new BusinessException(ResponseCodeEnum.CODE_600);
+	    }
+	}
+
 	/**
 	 * 新增文件信息
 	 *
@@ -221,6 +345,8 @@ public class FileInfoServiceImpl implements FileInfoService {
 
 	/**
 	 * 上传文件方法
+	 * 每个分片先写入临时目录并记入分片位图，分片可以并发、乱序到达；
+	 * 位图中的分片全部到齐时写入文件记录，并在事务提交后交给合并线程池异步合并分片，请求本身不等待合并完成
 	 *
 	 * @param webUserDto 当前用户信息
 	 * @param fileId 文件ID
@@ -240,33 +366,38 @@ public class FileInfoServiceImpl implements FileInfoService {
 	                                  String fileMd5, Integer chunkIndex,
 	                                  Integer chunks) {
 	    UploadResultDto resultDto = new UploadResultDto();
+	    File chunkFile = null;
+	    boolean chunkMarked = false;
+	    boolean mergeLocked = false;
+	    Long reservedSize = 0L;
+	    boolean uploadSuccess = true;
 	    try {
+	        // 分片数来自客户端，先校验上限，再用它校验分片索引，避免超大索引在Redis中分配超大位图
+	        checkChunks(chunks);
+	        if (chunkIndex < 0 || chunkIndex >= chunks) {
+	            throw new BusinessException(ResponseCodeEnum.CODE_600);
+	        }
 	        // 如果文件ID为空，则生成一个随机文件ID
 	        if (StringTools.isEmpty(fileId)) {
 	            fileId = StringTools.getRandomString(Constants.LENGTH_10);
 	        }
 	        resultDto.setFileId(fileId);
 	        Date curDate = new Date();
-	        // 获取用户空间信息
-	        UserSpaceDto spaceDto = redisComponent.getUserSpaceDto(webUserDto.getUserId());
 
-	        // 处理文件分块上传的首个分块
-	        if (chunkIndex == 0) {
+	        // 处理文件分块上传的首个分块，过滤器判断MD5一定不存在时跳过秒传查询
+	        if (chunkIndex == 0 && fileMd5FilterComponent.mightExist(fileMd5)) {
 	            // 查询是否有相同的文件MD5，用于秒传功能
 	            FileInfoQuery infoQuery = new FileInfoQuery();
 	            infoQuery.setFileMd5(fileMd5);
 	            infoQuery.setSimplePage(new SimplePage(0, 1));
 	            infoQuery.setStatus(FileStatusEnums.USING.getStatus());
 	            List<FileInfo> dbFileList = fileInfoMapper.selectList(infoQuery);
-	            // 秒传
-	            if (!dbFileList.isEmpty()) {
-	                FileInfo dbFile = dbFileList.get(0);
-	                // 判断文件大小是否超过用户剩余空间
-	                if (dbFile.getFileSize() + spaceDto.getUseSpace() > spaceDto.getTotalSpace()) {
-	                    throw new BusinessException(ResponseCodeEnum.CODE_904);
-	                }
+	            // 秒传，共享同一份内容并增加引用；内容已等待回收时无法引用，按普通上传处理
+	            FileInfo dbFile = dbFileList.isEmpty() ? null : dbFileList.get(0);
+	            if (dbFile != null && (!fileBlobService.isBlobPath(dbFile.getFilePath()) || fileBlobService.addReference(fileMd5))) {
 	                dbFile.setFileId(fileId);
 	                dbFile.setFilePid(filePid);
+	                dbFile.setFilePidPath(getFilePidPath(webUserDto.getUserId(), filePid));
 	                dbFile.setUserId(webUserDto.getUserId());
 	                dbFile.setCreateTime(curDate);
 	                dbFile.setLastUpdateTime(curDate);
@@ -278,30 +409,811 @@ public class FileInfoServiceImpl implements FileInfoService {
 	                dbFile.setFileName(fileName);
 	                fileInfoMapper.insert(dbFile);
 	                resultDto.setStatus(UploadStatusEnums.UPLOAD_SECONDS.getCode());
-	                // 更新用户使用空间
-	                updateUserSpace(webUserDto, dbFile.getFileSize());
+	                // 更新用户使用空间，空间不足时抛出异常
+	                updateUserSpace(webUserDto.getUserId(), null, dbFile.getFileSize());
+	                // 乱序上传时其他分片可能已经到达，秒传后清理掉，并释放这些分片预留的空间
+	                FileUtils.deleteDirectory(new File(appConfig.getProjectFolder() + Constants.FILE_FOLDER_TEMP + webUserDto.getUserId() + fileId));
+	                redisComponent.clearUploadProgress(webUserDto.getUserId(), fileId);
+	                redisComponent.releaseAllUserSpace(webUserDto.getUserId(), fileId);
 	                return resultDto;
 	            }
-	            // 判断磁盘空间是否足够
-	            Long currentTempSize = redisComponent.getFileTempSize(webUserDto.getUserId(), fileId);
-	            if (file.getSize() + currentTempSize + spaceDto.getUseSpace() > spaceDto.getTotalSpace()) {
-	                throw new BusinessException(ResponseCodeEnum.CODE_904);
+	        }
+	        // 预留分片所需空间，空间不足时拒绝上传
+	        if (!redisComponent.reserveUserSpace(webUserDto.getUserId(), fileId, file.getSize())) {
+	            throw new BusinessException(ResponseCodeEnum.CODE_904);
+	        }
+	        reservedSize = file.getSize();
+	        // 暂存临时目录
+	        String tempFolderName = appConfig.getProjectFolder() + Constants.FILE_FOLDER_TEMP;
+	        String currentUserFolderName = webUserDto.getUserId() + fileId;
+	        File tempFileFolder = new File(tempFolderName + currentUserFolderName);
+	        if (!tempFileFolder.exists()) {
+	            tempFileFolder.mkdirs();
+	        }
+
+	        chunkFile = new File(tempFileFolder.getPath() + "/" + chunkIndex);
+	        file.transferTo(chunkFile);
+	        // 分片写入完成后再记入位图，重传的分片不重复累加临时大小
+	        chunkMarked = true;
+	        if (redisComponent.markChunkUploaded(webUserDto.getUserId(), fileId, chunkIndex)) {
+	            redisComponent.saveFileTempSize(webUserDto.getUserId(), fileId, file.getSize());
+	        } else {
+	            // 重传的分片，释放重复预留的空间
+	            redisComponent.releaseUserSpace(webUserDto.getUserId(), fileId, reservedSize);
+	        }
+	        reservedSize = 0L;
+	        // 分片未到齐，或者已有其他请求在处理合并，直接返回
+	        if (redisComponent.getUploadedChunkCount(webUserDto.getUserId(), fileId) < chunks
+	                || !redisComponent.tryLockFileMerge(webUserDto.getUserId(), fileId)) {
+	            resultDto.setStatus(UploadStatusEnums.UPLOADING.getCode());
+	            return resultDto;
+	        }
+	        mergeLocked = true;
+
+	        // 所有分片上传完成，记录数据库，合并在事务提交后异步进行
+	        String month = DateUtil.format(curDate, DateTimePatternEnum.YYYYMM.getPattern());
+	        String fileSuffix = StringTools.getFileSuffix(fileName);
+	        // 真实文件名
+	        String realFileName = currentUserFolderName + fileSuffix;
+	        FileTypeEnums fileTypeEnum = FileTypeEnums.getFileTypeBySuffix(fileSuffix);
+	        // 文件重命名
+	        fileName = autoRename(filePid, webUserDto.getUserId(), fileName);
+	        // 分片总大小，记入用户空间，同时写入文件记录，合并失败后删除文件时按此大小退还空间
+	        Long totalSize = redisComponent.getFileTempSize(webUserDto.getUserId(), fileId);
+	        FileInfo fileInfo = new FileInfo();
+	        fileInfo.setFileId(fileId);
+	        fileInfo.setUserId(webUserDto.getUserId());
+	        fileInfo.setFileMd5(fileMd5);
+	        fileInfo.setFileName(fileName);
+	        fileInfo.setFilePath(month + "/" + realFileName);
+	        fileInfo.setFilePid(filePid);
+	        fileInfo.setFilePidPath(getFilePidPath(webUserDto.getUserId(), filePid));
+	        fileInfo.setCreateTime(curDate);
+	        fileInfo.setLastUpdateTime(curDate);
+	        fileInfo.setFileCategory(fileTypeEnum.getCategory().getCategory());
+	        fileInfo.setFileType(fileTypeEnum.getType());
+	        fileInfo.setStatus(FileStatusEnums.TRANSFER.getStatus());
+	        fileInfo.setFolderType(FileFolderTypeEnums.FILE.getType());
+	        fileInfo.setDelFlag(FileDelFlagEnums.USING.getFlag());
+	        fileInfo.setFileSize(totalSize);
+	        fileInfoMapper.insert(fileInfo);
+
+	        // 更新用户使用空间
+	        updateUserSpace(webUserDto.getUserId(), fileId, totalSize);
+	        resultDto.setStatus(UploadStatusEnums.UPLOAD_FINISH.getCode());
+
+	        // 事务提交后再合并，保证合并线程能读到文件记录
+	        final String finalFileId = fileId;
+	        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+	            @Override
+	            public void afterCommit() {
+	                fileInfoService.transferFile(finalFileId, webUserDto);
+	            }
+	        });
+	        return resultDto;
+	    } catch (BusinessException e) {
+	        uploadSuccess = false;
+	        logger.error("文件上传失败", e);
+	        throw e;
+	    } catch (Exception e) {
+	        uploadSuccess = false;
+	        logger.error("文件上传失败", e);
+	        throw new BusinessException("文件上传失败");
+	    } finally {
+	        // 上传失败，只清理本次写入且未记入位图的分片，其他并发上传的分片保留以便续传
+	        if (!uploadSuccess) {
+	            if (chunkFile != null && !chunkMarked) {
+	                chunkFile.delete();
+	            }
+	            // 释放本次分片预留的空间
+	            if (reservedSize > 0) {
+	                redisComponent.releaseUserSpace(webUserDto.getUserId(), fileId, reservedSize);
 	            }
-	            // 暂存临时目录
-	            String tempFolderName = appConfig.getProjectFolder() + Constants.FILE_FOLDER_TEMP;
-	            String currentUserFolderName = webUserDto.getUserId() + fileId;
-	            File tempFileFolder = new File(tempFolderName + currentUserFolderName);
-	            if (!tempFileFolder.exists()) {
-	                tempFileFolder.mkdirs();
+	            // 释放合并权，客户端重传最后的分片即可重新触发合并
+	            if (mergeLocked) {
+	                redisComponent.unlockFileMerge(webUserDto.getUserId(), fileId);
 	            }
+	        }
+	    }
+	}
 
-	            File newFile = new File(tempFileFolder.getPath() + "/" + chunkIndex);
-	            file.transferTo(newFile);
+	/**
+	 * 查询分片上传进度
+	 *
+	 * @param webUserDto 当前用户信息
+	 * @param fileId 文件ID
+	 * @param chunks 总分块数
+	 * @return 上传进度，包含缺失的分片索引
+	 */
+	@Override
+	public UploadStatusDto getUploadStatus(SessionWebUserDto webUserDto, String fileId, Integer chunks) {
+	    checkChunks(chunks);
+	    UploadStatusDto statusDto = new UploadStatusDto();
+	    statusDto.setFileId(fileId);
+	    statusDto.setChunks(chunks);
+	    FileInfo fileInfo = fileInfoMapper.selectByFileIdAndUserId(fileId, webUserDto.getUserId());
+	    // 文件记录已存在，说明分片已全部到达
+	    if (fileInfo != null) {
+	        statusDto.setStatus(UploadStatusEnums.UPLOAD_FINISH.getCode());
+	        statusDto.setMissingChunks(new ArrayList<>());
+	        return statusDto;
+	    }
+	    statusDto.setStatus(UploadStatusEnums.UPLOADING.getCode());
+	    statusDto.setMissingChunks(redisComponent.getMissingChunks(webUserDto.getUserId(), fileId, chunks));
+	    return statusDto;
+	}
+
+	/**
+	 * 校验客户端提交的总分片数
+	 *
+	 * @param chunks 总分片数
+	 * @throws BusinessException 分片数不在1到上限之间时抛出
+	 */
+	private void checkChunks(Integer chunks) {
+	    if (chunks == null || chunks <= 0 || chunks > Constants.MAX_UPLOAD_CHUNKS) {
+	        throw new BusinessException(ResponseCodeEnum.CODE_600);
+	    }
+	}
+
+	/**
+	 * 合并上传的分片
+	 * 在合并线程池中执行，流式拼接分片并同时计算MD5，校验通过后文件状态置为使用中，失败则置为转码失败
+	 * 合并后的文件存入按MD5去重的内容存储，文件路径改为指向内容
+	 *
+	 * @param fileId 文件ID
+	 * @param webUserDto 当前用户信息
+	 */
+	@Override
+	@Async("fileMergeExecutor")
+	public void transferFile(String fileId, SessionWebUserDto webUserDto) {
+	    boolean transferSuccess = true;
+	    String targetFilePath = null;
+	    File tempFileFolder = null;
+	    FileInfo fileInfo = fileInfoMapper.selectByFileIdAndUserId(fileId, webUserDto.getUserId());
+	    Long fileSize = null;
+	    String blobPath = null;
+	    try {
+	        if (fileInfo == null || !FileStatusEnums.TRANSFER.getStatus().equals(fileInfo.getStatus())) {
+	            return;
+	        }
+	        // 临时目录
+	        String tempFolderName = appConfig.getProjectFolder() + Constants.FILE_FOLDER_TEMP;
+	        tempFileFolder = new File(tempFolderName + webUserDto.getUserId() + fileId);
+	        // 目标目录
+	        File targetFolder = new File(appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE
+	                + StringTools.getFilePathFolder(fileInfo.getFilePath()));
+	        if (!targetFolder.exists()) {
+	            targetFolder.mkdirs();
 	        }
+	        targetFilePath = appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE + fileInfo.getFilePath();
+	        // 合并分片并校验MD5
+	        fileSize = union(tempFileFolder, new File(targetFilePath), fileInfo.getFileMd5());
+	        // 存入内容存储，已有相同内容时复用
+	        blobPath = fileBlobService.store(fileInfo.getFileMd5(), new File(targetFilePath), StringTools.getFileSuffix(fileInfo.getFilePath()));
 	    } catch (Exception e) {
-	        logger.error("文件上传失败", e);
+	        logger.error("文件合并失败，文件ID:{}，userId:{}", fileId, webUserDto.getUserId(), e);
+	        transferSuccess = false;
+	        if (targetFilePath != null) {
+	            new File(targetFilePath).delete();
+	        }
+	    } finally {
+	        // 无论成功与否，清理临时目录和上传进度
+	        redisComponent.clearUploadProgress(webUserDto.getUserId(), fileId);
+	        if (tempFileFolder != null) {
+	            try {
+	                FileUtils.deleteDirectory(tempFileFolder);
+	            } catch (IOException e) {
+	                logger.error("删除临时目录失败", e);
+	            }
+	        }
+	        if (fileInfo != null) {
+	            // 视频合并成功后仍处于转码中，交给转码队列处理
+	            boolean needTranscode = transferSuccess && FileCategoryEnums.VIDEO.getCategory().equals(fileInfo.getFileCategory());
+	            FileInfo updateInfo = new FileInfo();
+	            updateInfo.setFileSize(fileSize);
+	            updateInfo.setFilePath(blobPath);
+	            if (!needTranscode) {
+	                updateInfo.setStatus(transferSuccess ? FileStatusEnums.USING.getStatus() : FileStatusEnums.TRANSFER_FAIL.getStatus());
+	            }
+	            Integer count = fileInfoMapper.updateFileStatusWithOldStatus(fileId, webUserDto.getUserId(), updateInfo, FileStatusEnums.TRANSFER.getStatus());
+	            // 合并期间文件已被删除，释放刚增加的引用
+	            if (blobPath != null && count == 0) {
+	                fileBlobService.releaseReference(fileInfo.getFileMd5());
+	            }
+	            if (transferSuccess && !needTranscode && count > 0) {
+	                fileMd5FilterComponent.add(fileInfo.getFileMd5());
+	            }
+	            if (needTranscode && count > 0) {
+	                TranscodeJobDto job = new TranscodeJobDto();
+	                job.setFileId(fileId);
+	                job.setUserId(webUserDto.getUserId());
+	                job.setRetryCount(0);
+	                redisComponent.addTranscodeJob(job);
+	            }
+	        }
+	    }
+	}
+
+	/**
+	 * 视频转码
+	 * 由转码任务在转码线程中调用，生成封面并将视频切割为m3u8索引和ts分片，完成后文件状态置为使用中
+	 *
+	 * @param fileId 文件ID
+	 * @param userId 用户ID
+	 * @throws BusinessException 转码失败或超时时抛出
+	 */
+	@Override
+	public void transcodeVideo(String fileId, String userId) {
+	    FileInfo fileInfo = fileInfoMapper.selectByFileIdAndUserId(fileId, userId);
+	    if (fileInfo == null || !FileStatusEnums.TRANSFER.getStatus().equals(fileInfo.getStatus())) {
+	        return;
+	    }
+	    String fileFolder = appConfig.getProjectFolder() + Constants.FILE_FOLDER_FILE;
+	    String videoFilePath = fileFolder + fileInfo.getFilePath();
+	    String fileNameNoSuffix = StringTools.getFileNameNoSuffix(fileInfo.getFilePath());
+	    // 相同内容的视频共享封面和分片，已生成过的直接复用
+	    String coverPath = fileNameNoSuffix + Constants.IMAGE_PNG_SUFFIX;
+	    File coverFile = new File(fileFolder + coverPath);
+	    if (!coverFile.exists()) {
+	        ScaleFilter.createCover4Video(new File(videoFilePath), Constants.LENGTH_150, coverFile);
+	    }
+	    if (!new File(fileFolder + fileNameNoSuffix + "/" + Constants.M3U8_NAME).exists()) {
+	        cutFile4Video(fileId, videoFilePath, fileFolder + fileNameNoSuffix);
+	    }
+
+	    FileInfo updateInfo = new FileInfo();
+	    if (coverFile.exists()) {
+	        updateInfo.setFileCover(coverPath);
+	    }
+	    updateInfo.setStatus(FileStatusEnums.USING.getStatus());
+	    if (fileInfoMapper.updateFileStatusWithOldStatus(fileId, userId, updateInfo, FileStatusEnums.TRANSFER.getStatus()) > 0) {
+	        fileMd5FilterComponent.add(fileInfo.getFileMd5());
+	    }
+	}
+
+	/**
+	 * 视频转码最终失败，文件状态置为转码失败
+	 *
+	 * @param fileId 文件ID
+	 * @param userId 用户ID
+	 */
+	@Override
+	public void transcodeFail(String fileId, String userId) {
+	    FileInfo updateInfo = new FileInfo();
+	    updateInfo.setStatus(FileStatusEnums.TRANSFER_FAIL.getStatus());
+	    fileInfoMapper.updateFileStatusWithOldStatus(fileId, userId, updateInfo, FileStatusEnums.TRANSFER.getStatus());
+	}
+
+	/**
+	 * 将视频转为ts后切割为m3u8索引和ts分片
+	 * 分片命名为 文件ID_序号.ts，与播放接口解析分片的规则一致；每条ffmpeg命令受转码超时时间限制
+	 * 分片目录由相同内容的视频共享，中间文件均以文件ID命名，索引生成完成后再原子替换为index.m3u8，
+	 * 同一内容并发转码时互不覆盖，index.m3u8存在即表示转码完成
+	 *
+	 * @param fileId 文件ID
+	 * @param videoFilePath 视频文件路径
+	 * @param tsFolderPath 分片目录
+	 * @throws BusinessException 清理分片目录失败或ffmpeg执行失败时抛出
+	 */
+	private void cutFile4Video(String fileId, String videoFilePath, String tsFolderPath) {
+	    final String CMD_TRANSFER_2TS = "ffmpeg -y -i %s -vcodec copy -acodec copy -bsf:v h264_mp4toannexb %s";
+	    final String CMD_CUT_TS = "ffmpeg -i %s -c copy -map 0 -f segment -segment_list %s -segment_time %d %s/%s_%%04d.ts";
+	    File tsFolder = new File(tsFolderPath);
+	    if (!tsFolder.exists()) {
+	        tsFolder.mkdirs();
+	    }
+	    // 重试时清理本文件上次残留的分片
+	    File[] oldFiles = tsFolder.listFiles((dir, name) -> name.startsWith(fileId + "_") || name.startsWith(fileId + "."));
+	    if (oldFiles == null) {
+	        throw new BusinessException("清理视频分片目录失败");
+	    }
+	    for (File oldFile : oldFiles) {
+	        oldFile.delete();
+	    }
+	    long timeout = appConfig.getTranscodeTimeout();
+	    String tsPath = tsFolderPath + "/" + fileId + ".ts";
+	    String m3u8Path = tsFolderPath + "/" + fileId + ".m3u8";
+	    // 生成ts
+	    ProcessUtils.executeCommand(String.format(CMD_TRANSFER_2TS, videoFilePath, tsPath), false, timeout);
+	    // 生成索引文件.m3u8和切片.ts
+	    ProcessUtils.executeCommand(String.format(CMD_CUT_TS, tsPath, m3u8Path, Constants.TS_SEGMENT_SECONDS, tsFolderPath, fileId), false, timeout);
+	    // 删除中间ts
+	    new File(tsPath).delete();
+	    try {
+	        Files.move(Paths.get(m3u8Path), Paths.get(tsFolderPath, Constants.M3U8_NAME), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	    } catch (IOException e) {
+	        throw new BusinessException("生成视频索引失败");
+	    }
+	}
+
+	/**
+	 * 按分片序号顺序拼接分片到目标文件，拼接时增量计算MD5
+	 * 需要读取分片内容计算MD5，因此使用一块复用的直接内存缓冲区完成单次读写，而不是先拷贝再二次读取
+	 *
+	 * @param tempFileFolder 分片所在的临时目录
+	 * @param targetFile 目标文件
+	 * @param fileMd5 客户端上传的文件MD5
+	 * @return 合并后的文件大小
+	 * @throws IOException 读写异常
+	 * @throws BusinessException 分片缺失或MD5校验失败时抛出
+	 */
+	private long union(File tempFileFolder, File targetFile, String fileMd5) throws IOException {
+	    File[] chunkFiles = tempFileFolder.listFiles();
+	    if (chunkFiles == null || chunkFiles.length == 0) {
+	        throw new BusinessException("分片不存在");
+	    }
+	    MessageDigest digest = DigestUtils.getMd5Digest();
+	    ByteBuffer buffer = ByteBuffer.allocateDirect(MERGE_BUFFER_SIZE);
+	    long totalSize = 0;
+	    try (FileChannel targetChannel = FileChannel.open(targetFile.toPath(),
+	            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+	        for (int i = 0; i < chunkFiles.length; i++) {
+	            File chunkFile = new File(tempFileFolder, String.valueOf(i));
+	            if (!chunkFile.exists()) {
+	                throw new BusinessException("分片缺失:" + i);
+	            }
+	            try (FileChannel chunkChannel = FileChannel.open(chunkFile.toPath(), StandardOpenOption.READ)) {
+	                while (chunkChannel.read(buffer) != -1) {
+	                    buffer.flip();
+	                    // 先计算摘要，再写入目标文件
+	                    digest.update(buffer.duplicate());
+	                    while (buffer.hasRemaining()) {
+	                        totalSize += targetChannel.write(buffer);
+	                    }
+	                    buffer.clear();
+	                }
+	            }
+	        }
+	    }
+	    String realMd5 = Hex.encodeHexString(digest.digest());
+	    if (!realMd5.equalsIgnoreCase(fileMd5)) {
+	        throw new BusinessException("文件MD5校验失败");
 	    }
-	    return resultDto;
+	    return totalSize;
+	}
+
+	/**
+	 * 将文件放入回收站
+	 * 所选文件置为回收站状态，文件夹下的所有文件按父级路径前缀一条语句置为删除状态
+	 *
+	 * @param userId 用户ID
+	 * @param fileIds 文件ID，多个以逗号分隔
+	 */
+	@Override
+	@Transactional(rollbackFor = Exception.class)
+	public void removeFile2RecycleBatch(String userId, String fileIds) {
+	    List<FileInfo> fileInfoList = findListByFileIds(userId, fileIds.split(","), FileDelFlagEnums.USING.getFlag());
+	    if (fileInfoList.isEmpty()) {
+	        return;
+	    }
+	    // 文件夹下的所有文件标记为删除
+	    String[] prefixArray = getSubPathPrefixArray(fileInfoList);
+	    if (prefixArray.length > 0) {
+	        FileInfo updateInfo = new FileInfo();
+	        updateInfo.setDelFlag(FileDelFlagEnums.DEL.getFlag());
+	        FileInfoQuery subQuery = new FileInfoQuery();
+	        subQuery.setUserId(userId);
+	        subQuery.setFilePidPathPrefixArray(prefixArray);
+	        subQuery.setDelFlag(FileDelFlagEnums.USING.getFlag());
+	        fileInfoMapper.updateByParam(updateInfo, subQuery);
+	    }
+	    // 所选文件放入回收站
+	    FileInfo updateInfo = new FileInfo();
+	    updateInfo.setRecoveryTime(new Date());
+	    updateInfo.setDelFlag(FileDelFlagEnums.RECYCLE.getFlag());
+	    FileInfoQuery updateQuery = new FileInfoQuery();
+	    updateQuery.setUserId(userId);
+	    updateQuery.setFileIdArray(fileInfoList.stream().map(FileInfo::getFileId).toArray(String[]::new));
+	    updateQuery.setDelFlag(FileDelFlagEnums.USING.getFlag());
+	    fileInfoMapper.updateByParam(updateInfo, updateQuery);
+	    // 分享的文件可能随之放入回收站
+	    redisComponent.evictUserShareView(userId);
+	    redisComponent.evictUserVideoFolder(userId);
+	}
+
+	/**
+	 * 从回收站还原文件
+	 * 文件夹下随之删除的文件一条语句还原，其中单独放入回收站的子文件夹不还原；
+	 * 所选文件还原到原目录，原目录不在使用中时还原到根目录，重名时自动重命名
+	 *
+	 * @param userId 用户ID
+	 * @param fileIds 文件ID，多个以逗号分隔
+	 */
+	@Override
+	@Transactional(rollbackFor = Exception.class)
+	public void recoverFileBatch(String userId, String fileIds) {
+	    List<FileInfo> fileInfoList = findListByFileIds(userId, fileIds.split(","), FileDelFlagEnums.RECYCLE.getFlag());
+	    if (fileInfoList.isEmpty()) {
+	        return;
+	    }
+	    // 文件夹下随之删除的文件还原为使用中
+	    String[] prefixArray = getSubPathPrefixArray(fileInfoList);
+	    if (prefixArray.length > 0) {
+	        FileInfo updateInfo = new FileInfo();
+	        updateInfo.setDelFlag(FileDelFlagEnums.USING.getFlag());
+	        FileInfoQuery subQuery = new FileInfoQuery();
+	        subQuery.setUserId(userId);
+	        subQuery.setFilePidPathPrefixArray(prefixArray);
+	        subQuery.setExcludeFilePidPathPrefixArray(findRecycleSubPathPrefixArray(userId, prefixArray));
+	        subQuery.setDelFlag(FileDelFlagEnums.DEL.getFlag());
+	        fileInfoMapper.updateByParam(updateInfo, subQuery);
+	    }
+	    // 查询原目录中仍在使用的
+	    String[] pidArray = fileInfoList.stream().map(FileInfo::getFilePid)
+	            .filter(pid -> !Constants.ZERO_STR.equals(pid)).distinct().toArray(String[]::new);
+	    Set<String> usingPidSet = new HashSet<>();
+	    if (pidArray.length > 0) {
+	        usingPidSet = findListByFileIds(userId, pidArray, FileDelFlagEnums.USING.getFlag()).stream()
+	                .map(FileInfo::getFileId).collect(Collectors.toSet());
+	    }
+	    Date curDate = new Date();
+	    for (FileInfo item : fileInfoList) {
+	        FileInfo recoverInfo = new FileInfo();
+	        String filePid = item.getFilePid();
+	        // 原目录已不在使用中，还原到根目录，文件夹下所有文件的父级路径随之修改
+	        if (!usingPidSet.contains(filePid) && !Constants.ZERO_STR.equals(filePid)) {
+	            filePid = Constants.ZERO_STR;
+	            recoverInfo.setFilePidPath(ROOT_PID_PATH);
+	            if (FileFolderTypeEnums.FOLDER.getType().equals(item.getFolderType())) {
+	                fileInfoMapper.updateFilePidPathPrefix(userId, getSubPathPrefix(item), ROOT_PID_PATH + item.getFileId() + "/");
+	            }
+	        }
+	        recoverInfo.setFilePid(filePid);
+	        recoverInfo.setFileName(autoRename(filePid, userId, item.getFileName()));
+	        recoverInfo.setDelFlag(FileDelFlagEnums.USING.getFlag());
+	        recoverInfo.setLastUpdateTime(curDate);
+	        fileInfoMapper.updateByFileIdAndUserId(recoverInfo, item.getFileId(), userId);
+	    }
+	}
+
+	/**
+	 * 彻底删除文件
+	 * 按父级路径前缀一条语句删除文件夹下的文件记录，释放占用的用户空间和内容引用；引用归零的内容由回收任务删除
+	 *
+	 * @param userId 用户ID
+	 * @param fileIds 文件ID，多个以逗号分隔
+	 * @param adminOp 是否为管理员操作，管理员删除时不限制删除标记
+	 */
+	@Override
+	@Transactional(rollbackFor = Exception.class)
+	public void delFileBatch(String userId, String fileIds, Boolean adminOp) {
+	    Integer rootDelFlag = adminOp ? null : FileDelFlagEnums.RECYCLE.getFlag();
+	    List<FileInfo> fileInfoList = findListByFileIds(userId, fileIds.split(","), rootDelFlag);
+	    if (fileInfoList.isEmpty()) {
+	        return;
+	    }
+	    List<FileInfo> deleteFileList = new ArrayList<>(fileInfoList);
+	    String[] prefixArray = getSubPathPrefixArray(fileInfoList);
+	    FileInfoQuery subQuery = null;
+	    if (prefixArray.length > 0) {
+	        subQuery = new FileInfoQuery();
+	        subQuery.setUserId(userId);
+	        subQuery.setFilePidPathPrefixArray(prefixArray);
+	        // 用户删除时只删除随所选文件夹删除的文件，单独放入回收站的子文件夹保留在回收站中
+	        if (!adminOp) {
+	            subQuery.setDelFlag(FileDelFlagEnums.DEL.getFlag());
+	            subQuery.setExcludeFilePidPathPrefixArray(findRecycleSubPathPrefixArray(userId, prefixArray));
+	        }
+	        if (fileInfoMapper.selectCount(subQuery) > TREE_MAX_NODES) {
+	            throw new BusinessException("文件数量过多");
+	        }
+	        deleteFileList.addAll(fileInfoMapper.selectList(subQuery));
+	    }
+	    // 汇总删除的文件占用的空间和引用的内容
+	    long deleteSize = 0;
+	    Map<String, Integer> refCountMap = new HashMap<>();
+	    for (FileInfo item : deleteFileList) {
+	        if (!FileFolderTypeEnums.FILE.getType().equals(item.getFolderType())) {
+	            continue;
+	        }
+	        deleteSize += item.getFileSize() == null ? 0 : item.getFileSize();
+	        if (fileBlobService.isBlobPath(item.getFilePath())) {
+	            refCountMap.merge(item.getFileMd5(), -1, Integer::sum);
+	        }
+	    }
+	    // 删除文件夹下的文件
+	    if (subQuery != null) {
+	        fileInfoMapper.deleteByParam(subQuery);
+	    }
+	    // 删除所选文件
+	    FileInfoQuery deleteQuery = new FileInfoQuery();
+	    deleteQuery.setUserId(userId);
+	    deleteQuery.setFileIdArray(fileInfoList.stream().map(FileInfo::getFileId).toArray(String[]::new));
+	    deleteQuery.setDelFlag(rootDelFlag);
+	    fileInfoMapper.deleteByParam(deleteQuery);
+
+	    if (!refCountMap.isEmpty()) {
+	        fileBlobService.changeReferences(refCountMap);
+	    }
+	    if (deleteSize > 0) {
+	        updateUserSpace(userId, null, -deleteSize);
+	    }
+	    redisComponent.evictUserVideoFolder(userId);
+	    // 管理员可以直接删除使用中的文件，其中可能有分享的文件
+	    if (adminOp) {
+	        redisComponent.evictUserShareView(userId);
+	    }
+	}
+
+	/**
+	 * 移动文件到指定目录
+	 * 修改所选文件的父级ID，文件夹下所有文件的父级路径按前缀一条语句替换；目标目录不能是所选文件夹自身或其下的目录
+	 *
+	 * @param fileIds 文件ID，多个以逗号分隔
+	 * @param filePid 目标目录ID
+	 * @param userId 用户ID
+	 */
+	@Override
+	@Transactional(rollbackFor = Exception.class)
+	public void changeFileFolder(String fileIds, String filePid, String userId) {
+	    String[] fileIdArray = fileIds.split(",");
+	    String filePidPath = getFilePidPath(userId, filePid);
+	    for (String fileId : fileIdArray) {
+	        if (fileId.equals(filePid) || filePidPath.contains("/" + fileId + "/")) {
+	            throw new BusinessException(ResponseCodeEnum.CODE_600);
+	        }
+	    }
+	    List<FileInfo> fileInfoList = findListByFileIds(userId, fileIdArray, FileDelFlagEnums.USING.getFlag());
+	    Date curDate = new Date();
+	    for (FileInfo item : fileInfoList) {
+	        if (filePid.equals(item.getFilePid())) {
+	            continue;
+	        }
+	        if (FileFolderTypeEnums.FOLDER.getType().equals(item.getFolderType())) {
+	            String oldPrefix = getSubPathPrefix(item);
+	            String newPrefix = filePidPath + item.getFileId() + "/";
+	            Integer maxDepth = fileInfoMapper.selectMaxFilePidPathDepth(userId, oldPrefix);
+	            if (maxDepth != null && maxDepth - getPathDepth(oldPrefix) + getPathDepth(newPrefix) > TREE_MAX_DEPTH) {
+	                throw new BusinessException("文件夹层级过深");
+	            }
+	            fileInfoMapper.updateFilePidPathPrefix(userId, oldPrefix, newPrefix);
+	        }
+	        FileInfo updateInfo = new FileInfo();
+	        updateInfo.setFilePid(filePid);
+	        updateInfo.setFilePidPath(filePidPath);
+	        updateInfo.setFileName(autoRename(filePid, userId, item.getFileName()));
+	        updateInfo.setLastUpdateTime(curDate);
+	        fileInfoMapper.updateByFileIdAndUserId(updateInfo, item.getFileId(), userId);
+	    }
+	    // 移动时重名的文件会被重命名，分享页面展示的文件名随之改变
+	    if (!fileInfoList.isEmpty()) {
+	        redisComponent.evictUserShareView(userId);
+	    }
+	}
+
+	/**
+	 * 校验文件是否为分享的根目录或其下的文件，根据文件的父级路径判断，只需查询一次
+	 *
+	 * @param rootFilePid 分享的根文件ID
+	 * @param userId 分享人ID
+	 * @param fileId 要访问的文件ID
+	 * @throws BusinessException 文件不在分享范围内时抛出
+	 */
+	@Override
+	public void checkRootFilePid(String rootFilePid, String userId, String fileId) {
+	    if (StringTools.isEmpty(fileId)) {
+	        throw new BusinessException(ResponseCodeEnum.CODE_600);
+	    }
+	    if (fileId.equals(rootFilePid)) {
+	        return;
+	    }
+	    FileInfo fileInfo = fileInfoMapper.selectByFileIdAndUserId(fileId, userId);
+	    if (fileInfo == null || !FileDelFlagEnums.USING.getFlag().equals(fileInfo.getDelFlag()) || !isUnderFolder(fileInfo, rootFilePid)) {
+	        throw new BusinessException(ResponseCodeEnum.CODE_600);
+	    }
+	}
+
+	/**
+	 * 保存分享的文件到自己的网盘
+	 * 按父级路径前缀一次查询出文件夹下的所有文件，生成新的文件ID和父级路径后批量插入，内容共享原文件的存储，只增加引用计数
+	 *
+	 * @param shareRootFilePid 分享的根文件ID
+	 * @param shareFileIds 要保存的文件ID，多个以逗号分隔
+	 * @param myFolderId 保存到的目录ID
+	 * @param shareUserId 分享人ID
+	 * @param currentUserId 当前用户ID
+	 */
+	@Override
+	@Transactional(rollbackFor = Exception.class)
+	public void saveShare(String shareRootFilePid, String shareFileIds, String myFolderId, String shareUserId, String currentUserId) {
+	    String myFolderPath = getFilePidPath(currentUserId, myFolderId);
+	    List<FileInfo> shareFileList = findListByFileIds(shareUserId, shareFileIds.split(","), FileDelFlagEnums.USING.getFlag());
+	    // 所选文件必须是分享的根文件或其下的文件
+	    for (FileInfo item : shareFileList) {
+	        if (!item.getFileId().equals(shareRootFilePid) && !isUnderFolder(item, shareRootFilePid)) {
+	            throw new BusinessException(ResponseCodeEnum.CODE_600);
+	        }
+	    }
+	    Date curDate = new Date();
+	    List<FileInfo> copyFileList = new ArrayList<>();
+	    // 原文件夹ID -> 文件夹副本
+	    Map<String, FileInfo> folderCopyMap = new HashMap<>();
+	    for (FileInfo item : shareFileList) {
+	        String fileName = autoRename(myFolderId, currentUserId, item.getFileName());
+	        addCopyFile(copyFileList, folderCopyMap, item, myFolderId, myFolderPath, fileName, currentUserId, curDate);
+	    }
+	    // 复制文件夹下的文件，按父级路径排序保证父文件夹先于子文件复制
+	    String[] prefixArray = getSubPathPrefixArray(shareFileList);
+	    if (prefixArray.length > 0) {
+	        FileInfoQuery subQuery = new FileInfoQuery();
+	        subQuery.setUserId(shareUserId);
+	        subQuery.setFilePidPathPrefixArray(prefixArray);
+	        subQuery.setDelFlag(FileDelFlagEnums.USING.getFlag());
+	        if (fileInfoMapper.selectCount(subQuery) > TREE_MAX_NODES) {
+	            throw new BusinessException("文件数量过多");
+	        }
+	        subQuery.setOrderBy("file_pid_path");
+	        for (FileInfo item : fileInfoMapper.selectList(subQuery)) {
+	            FileInfo parentCopy = folderCopyMap.get(item.getFilePid());
+	            if (parentCopy == null) {
+	                continue;
+	            }
+	            String filePidPath = getSubPathPrefix(parentCopy);
+	            if (getPathDepth(filePidPath) > TREE_MAX_DEPTH) {
+	                throw new BusinessException("文件夹层级过深");
+	            }
+	            addCopyFile(copyFileList, folderCopyMap, item, parentCopy.getFileId(), filePidPath, item.getFileName(), currentUserId, curDate);
+	        }
+	    }
+	    if (copyFileList.isEmpty()) {
+	        return;
+	    }
+	    long copySize = 0;
+	    Map<String, Integer> refCountMap = new HashMap<>();
+	    for (FileInfo item : copyFileList) {
+	        if (!FileFolderTypeEnums.FILE.getType().equals(item.getFolderType())) {
+	            continue;
+	        }
+	        copySize += item.getFileSize() == null ? 0 : item.getFileSize();
+	        if (fileBlobService.isBlobPath(item.getFilePath())) {
+	            refCountMap.merge(item.getFileMd5(), 1, Integer::sum);
+	        }
+	    }
+	    // 先记入空间，空间不足时不再插入
+	    if (copySize > 0) {
+	        updateUserSpace(currentUserId, null, copySize);
+	    }
+	    for (int i = 0; i < copyFileList.size(); i += TREE_BATCH_SIZE) {
+	        fileInfoMapper.insertBatch(copyFileList.subList(i, Math.min(i + TREE_BATCH_SIZE, copyFileList.size())));
+	    }
+	    if (!refCountMap.isEmpty()) {
+	        fileBlobService.changeReferences(refCountMap);
+	    }
+	}
+
+	/**
+	 * 生成文件的副本加入待插入列表，未完成转码的文件不复制
+	 *
+	 * @param copyFileList 待插入列表
+	 * @param folderCopyMap 原文件夹ID -> 文件夹副本，复制文件夹时加入
+	 * @param source 原文件
+	 * @param filePid 副本的父级ID
+	 * @param filePidPath 副本的父级路径
+	 * @param fileName 副本的文件名
+	 * @param userId 副本所属用户ID
+	 * @param curDate 当前时间
+	 */
+	private void addCopyFile(List<FileInfo> copyFileList, Map<String, FileInfo> folderCopyMap, FileInfo source,
+	                         String filePid, String filePidPath, String fileName, String userId, Date curDate) {
+	    boolean isFolder = FileFolderTypeEnums.FOLDER.getType().equals(source.getFolderType());
+	    if (!isFolder && !FileStatusEnums.USING.getStatus().equals(source.getStatus())) {
+	        return;
+	    }
+	    FileInfo copyFile = CopyTools.copy(source, FileInfo.class);
+	    copyFile.setFileId(StringTools.getRandomString(Constants.LENGTH_10));
+	    copyFile.setUserId(userId);
+	    copyFile.setFilePid(filePid);
+	    copyFile.setFilePidPath(filePidPath);
+	    copyFile.setFileName(fileName);
+	    copyFile.setCreateTime(curDate);
+	    copyFile.setLastUpdateTime(curDate);
+	    copyFile.setRecoveryTime(null);
+	    copyFile.setDelFlag(FileDelFlagEnums.USING.getFlag());
+	    copyFileList.add(copyFile);
+	    if (isFolder) {
+	        folderCopyMap.put(source.getFileId(), copyFile);
+	    }
+	}
+
+	/**
+	 * 按文件ID批量查询文件
+	 *
+	 * @param userId 用户ID
+	 * @param fileIdArray 文件ID
+	 * @param delFlag 删除标记，为空时不限制
+	 * @return 文件列表
+	 */
+	private List<FileInfo> findListByFileIds(String userId, String[] fileIdArray, Integer delFlag) {
+	    if (fileIdArray.length > TREE_BATCH_SIZE) {
+	        throw new BusinessException("选择的文件数量过多");
+	    }
+	    FileInfoQuery query = new FileInfoQuery();
+	    query.setUserId(userId);
+	    query.setFileIdArray(fileIdArray);
+	    query.setDelFlag(delFlag);
+	    return fileInfoMapper.selectList(query);
+	}
+
+	/**
+	 * 获取新建或移入文件的父级路径
+	 *
+	 * @param userId 用户ID
+	 * @param filePid 父级ID
+	 * @return 父级路径，父级为根目录时为 /
+	 * @throws BusinessException 父级不是使用中的文件夹或层级超过上限时抛出
+	 */
+	private String getFilePidPath(String userId, String filePid) {
+	    if (Constants.ZERO_STR.equals(filePid)) {
+	        return ROOT_PID_PATH;
+	    }
+	    FileInfo folder = fileInfoMapper.selectByFileIdAndUserId(filePid, userId);
+	    if (folder == null || !FileFolderTypeEnums.FOLDER.getType().equals(folder.getFolderType())
+	            || !FileDelFlagEnums.USING.getFlag().equals(folder.getDelFlag())) {
+	        throw new BusinessException(ResponseCodeEnum.CODE_600);
+	    }
+	    String filePidPath = getSubPathPrefix(folder);
+	    if (getPathDepth(filePidPath) > TREE_MAX_DEPTH) {
+	        throw new BusinessException("文件夹层级过深");
+	    }
+	    return filePidPath;
+	}
+
+	/**
+	 * 获取文件夹下文件的父级路径前缀，即文件夹的父级路径加文件夹ID
+	 *
+	 * @param folder 文件夹
+	 * @return 父级路径前缀
+	 */
+	private String getSubPathPrefix(FileInfo folder) {
+	    return folder.getFilePidPath() + folder.getFileId() + "/";
+	}
+
+	/**
+	 * 获取列表中文件夹的父级路径前缀
+	 *
+	 * @param fileInfoList 文件列表
+	 * @return 父级路径前缀
+	 */
+	private String[] getSubPathPrefixArray(List<FileInfo> fileInfoList) {
+	    return fileInfoList.stream().filter(item -> FileFolderTypeEnums.FOLDER.getType().equals(item.getFolderType()))
+	            .map(this::getSubPathPrefix).toArray(String[]::new);
+	}
+
+	/**
+	 * 查询文件夹下单独放入回收站的子文件夹的父级路径前缀，还原或删除上级文件夹时这些子文件夹下的文件需要排除
+	 *
+	 * @param userId 用户ID
+	 * @param prefixArray 上级文件夹的父级路径前缀
+	 * @return 子文件夹的父级路径前缀
+	 */
+	private String[] findRecycleSubPathPrefixArray(String userId, String[] prefixArray) {
+	    FileInfoQuery query = new FileInfoQuery();
+	    query.setUserId(userId);
+	    query.setFilePidPathPrefixArray(prefixArray);
+	    query.setFolderType(FileFolderTypeEnums.FOLDER.getType());
+	    query.setDelFlag(FileDelFlagEnums.RECYCLE.getFlag());
+	    return getSubPathPrefixArray(fileInfoMapper.selectList(query));
+	}
+
+	/**
+	 * 根据父级路径判断文件是否在指定文件夹下
+	 *
+	 * @param fileInfo 文件
+	 * @param folderId 文件夹ID
+	 * @return 是否在文件夹下（任意层级）
+	 */
+	private boolean isUnderFolder(FileInfo fileInfo, String folderId) {
+	    return fileInfo.getFilePidPath() != null && fileInfo.getFilePidPath().contains("/" + folderId + "/");
+	}
+
+	/**
+	 * 计算父级路径的层级，即路径中的文件夹个数
+	 *
+	 * @param filePidPath 父级路径
+	 * @return 层级，根目录为0
+	 */
+	private int getPathDepth(String filePidPath) {
+	    return StringUtils.countMatches(filePidPath, "/") - 1;
 	}
 
 	/**
@@ -338,24 +1250,28 @@ public class FileInfoServiceImpl implements FileInfoService {
 
 	/**
 	 * 更新用户的使用空间
-	 * 当更新失败时（即没有行受到影响），抛出业务异常
+	 * 在Redis中原子地检查并记入已使用空间，数据库由定时任务批量落库；事务回滚时撤销本次记入
 	 *
-	 * @param webUserDto 包含用户信息的DTO
-	 * @param useSpace 用户使用的空间量
-	 * @throws BusinessException 当更新失败时抛出的业务异常
+	 * @param userId 用户ID
+	 * @param fileId 文件ID，分片上传时用于转换该文件的空间预留，秒传、复制和删除时为空
+	 * @param useSpace 使用空间增量，删除时为负数
+	 * @throws BusinessException 当空间不足时抛出的业务异常
 	 */
-	private void updateUserSpace(SessionWebUserDto webUserDto, Long useSpace) {
-	    // 更新数据库中的用户空间信息
-	    Integer count = userInfoMapper.updateUserSpace(webUserDto.getUserId(), useSpace, null);
-	    // 如果更新失败，则抛出异常
-	    if (count == 0) {
+	private void updateUserSpace(String userId, String fileId, Long useSpace) {
+	    // 空间不足，则抛出异常
+	    if (!redisComponent.commitUserSpace(userId, fileId, useSpace)) {
 	        throw new BusinessException(ResponseCodeEnum.CODE_904);
 	    }
-	    // 从Redis中获取用户的空间信息
-	    UserSpaceDto spaceDto = redisComponent.getUserSpaceDto(webUserDto.getUserId());
-	    // 更新用户的已使用空间
-	    spaceDto.setUseSpace(spaceDto.getUseSpace() + useSpace);
-	    // 将更新后的空间信息保存到Redis
-	    redisComponent.saveUserSpaceUse(webUserDto.getUserId(), spaceDto);
+	    // 事务回滚时撤销已记入的空间
+	    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+	        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+	            @Override
+	            public void afterCompletion(int status) {
+	                if (status != STATUS_COMMITTED) {
+	                    redisComponent.commitUserSpace(userId, null, -useSpace);
+	                }
+	            }
+	        });
+	    }
 	}
-}
\ No newline at end of file
+}
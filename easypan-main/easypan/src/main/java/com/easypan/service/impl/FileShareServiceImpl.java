@@ -1,24 +1,38 @@
 package com.easypan.service.impl;
 
+import com.easypan.component.RateLimiterComponent;
+import com.easypan.component.RedisComponent;
 import com.easypan.entity.constants.Constants;
 import com.easypan.entity.dto.SessionShareDto;
+import com.easypan.entity.dto.ShareViewDto;
+import com.easypan.entity.enums.FileDelFlagEnums;
 import com.easypan.entity.enums.PageSize;
 import com.easypan.entity.enums.ResponseCodeEnum;
 import com.easypan.entity.enums.ShareValidTypeEnums;
+import com.easypan.entity.po.FileInfo;
 import com.easypan.entity.po.FileShare;
+import com.easypan.entity.po.UserInfo;
+import com.easypan.entity.query.FileInfoQuery;
 import com.easypan.entity.query.FileShareQuery;
 import com.easypan.entity.query.SimplePage;
+import com.easypan.entity.query.UserInfoQuery;
 import com.easypan.entity.vo.PaginationResultVO;
+import com.easypan.entity.vo.ShareInfoVO;
 import com.easypan.exception.BusinessException;
+import com.easypan.mappers.FileInfoMapper;
 import com.easypan.mappers.FileShareMapper;
+import com.easypan.mappers.UserInfoMapper;
 import com.easypan.service.FileShareService;
+import com.easypan.utils.CopyTools;
 import com.easypan.utils.DateUtil;
 import com.easypan.utils.StringTools;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 分享信息 业务接口实现
@@ -26,9 +40,31 @@ import java.util.List;
 @Service("fileShareService")
 public class FileShareServiceImpl implements FileShareService {
 
+    /**
+     * 同一IP对同一分享在窗口内允许的提取码错误次数，只统计错误的尝试，正确的提取码不占用次数
+     */
+    private static final int SHARE_CODE_FAIL_PERMITS = 5;
+
+    /**
+     * 提取码错误次数的统计窗口（毫秒）
+     */
+    private static final long SHARE_CODE_FAIL_WINDOW_MILLIS = 1000 * 60 * 10;
+
     @Resource
     private FileShareMapper<FileShare, FileShareQuery> fileShareMapper;
 
+    @Resource
+    private FileInfoMapper<FileInfo, FileInfoQuery> fileInfoMapper;
+
+    @Resource
+    private UserInfoMapper<UserInfo, UserInfoQuery> userInfoMapper;
+
+    @Resource
+    private RedisComponent redisComponent;
+
+    @Resource
+    private RateLimiterComponent rateLimiterComponent;
+
     /**
      * 根据条件查询列表
      *
@@ -65,6 +101,7 @@ public class FileShareServiceImpl implements FileShareService {
         SimplePage page = new SimplePage(param.getPageNo(), count, pageSize);
         param.setSimplePage(page);
         List<FileShare> list = this.findListByParam(param);
+        addPendingShowCount(list);
         PaginationResultVO<FileShare> result = new PaginationResultVO(count, page.getPageSize(), page.getPageNo(), page.getPageTotal(), list);
         return result;
     }
@@ -179,28 +216,41 @@ public class FileShareServiceImpl implements FileShareService {
         if (count != shareIdArray.length) {
             throw new BusinessException(ResponseCodeEnum.CODE_600);
         }
+        for (String shareId : shareIdArray) {
+            redisComponent.evictShareView(shareId);
+        }
+        // 通过分享访问时分片目录缓存在分享人ID下
+        redisComponent.evictUserVideoFolder(userId);
     }
 
     /**
      * 校验分享提取码，并更新分享的浏览次数
      *
-     * @param shareId 分享ID
-     * @param code    提取码
+     * @param shareId  分享ID
+     * @param code     提取码
+     * @param clientIp 客户端IP
      * @return 包含分享信息的会话DTO对象
      * @throws BusinessException 如果分享信息不存在、已过期或提取码错误，抛出业务异常
      */
     @Override
-    public SessionShareDto checkShareCode(String shareId, String code) {
-        FileShare share = this.fileShareMapper.selectByShareId(shareId);
-        if (null == share || (share.getExpireTime() != null && new Date().after(share.getExpireTime()))) {
+    public SessionShareDto checkShareCode(String shareId, String code, String clientIp) {
+        ShareViewDto shareView = getValidShareView(shareId);
+        if (shareView == null) {
             throw new BusinessException(ResponseCodeEnum.CODE_902);
         }
+        //按分享和IP统计提取码错误次数，超限只拒绝该IP对该分享的尝试，其他访问者不受影响
+        String failKey = "shareCodeFail:" + shareId + ":" + clientIp;
+        if (rateLimiterComponent.isLimited(failKey, SHARE_CODE_FAIL_PERMITS, SHARE_CODE_FAIL_WINDOW_MILLIS)) {
+            throw new BusinessException(ResponseCodeEnum.CODE_905);
+        }
+        FileShare share = shareView.getShare();
         if (!share.getCode().equals(code)) {
+            rateLimiterComponent.record(failKey, SHARE_CODE_FAIL_WINDOW_MILLIS);
             throw new BusinessException("提取码错误");
         }
 
-        //更新浏览次数
-        this.fileShareMapper.updateShareShowCount(shareId);
+        //记入浏览次数，由定时任务批量落库，热门分享不再每次访问都争抢同一行的行锁
+        redisComponent.addShareShowCount(shareId);
         SessionShareDto shareSessionDto = new SessionShareDto();
         shareSessionDto.setShareId(shareId);
         shareSessionDto.setShareUserId(share.getUserId());
@@ -208,4 +258,88 @@ public class FileShareServiceImpl implements FileShareService {
         shareSessionDto.setExpireTime(share.getExpireTime());
         return shareSessionDto;
     }
+
+    /**
+     * 浏览次数加上尚未落库的部分，只有正在落库的次数会短暂少算
+     *
+     * @param list 分享列表
+     */
+    private void addPendingShowCount(List<FileShare> list) {
+        if (list.isEmpty()) {
+            return;
+        }
+        List<String> shareIdList = new ArrayList<>(list.size());
+        for (FileShare share : list) {
+            shareIdList.add(share.getShareId());
+        }
+        Map<String, Long> pendingMap = redisComponent.getPendingShareShowCount(shareIdList);
+        if (pendingMap.isEmpty()) {
+            return;
+        }
+        for (FileShare share : list) {
+            Long pending = pendingMap.get(share.getShareId());
+            if (pending != null) {
+                share.setShowCount((share.getShowCount() == null ? 0 : share.getShowCount()) + pending.intValue());
+            }
+        }
+    }
+
+    @Override
+    public ShareInfoVO getShareInfo(String shareId) {
+        ShareViewDto shareView = getValidShareView(shareId);
+        if (shareView == null) {
+            throw new BusinessException(ResponseCodeEnum.CODE_902.getMsg());
+        }
+        return CopyTools.copy(shareView.getShareInfo(), ShareInfoVO.class);
+    }
+
+    /**
+     * 从缓存获取有效的分享页面信息
+     * 缓存的有效期固定，分享的过期时间在每次读取时判断，过期后不会再从缓存返回
+     *
+     * @param shareId 分享ID
+     * @return 分享页面信息，分享不存在、已过期或分享的文件已删除时返回null
+     */
+    private ShareViewDto getValidShareView(String shareId) {
+        ShareViewDto shareView = redisComponent.getShareView(shareId, this::loadShareView);
+        if (shareView == null) {
+            return null;
+        }
+        Date expireTime = shareView.getShare().getExpireTime();
+        if (expireTime != null && new Date().after(expireTime)) {
+            return null;
+        }
+        return shareView;
+    }
+
+    /**
+     * 从数据库组装分享页面信息
+     *
+     * @param shareId 分享ID
+     * @return 分享页面信息，分享不存在、已过期或分享的文件已删除时返回null
+     */
+    private ShareViewDto loadShareView(String shareId) {
+        FileShare share = this.fileShareMapper.selectByShareId(shareId);
+        if (null == share || (share.getExpireTime() != null && new Date().after(share.getExpireTime()))) {
+            return null;
+        }
+        FileInfo fileInfo = fileInfoMapper.selectByFileIdAndUserId(share.getFileId(), share.getUserId());
+        if (fileInfo == null || !FileDelFlagEnums.USING.getFlag().equals(fileInfo.getDelFlag())) {
+            return null;
+        }
+        UserInfo userInfo = userInfoMapper.selectByUserId(share.getUserId());
+        if (userInfo == null) {
+            return null;
+        }
+        ShareInfoVO shareInfoVO = CopyTools.copy(share, ShareInfoVO.class);
+        shareInfoVO.setFileName(fileInfo.getFileName());
+        shareInfoVO.setNickName(userInfo.getNickName());
+        shareInfoVO.setAvatar(userInfo.getQqAvatar());
+        shareInfoVO.setUserId(userInfo.getUserId());
+
+        ShareViewDto shareView = new ShareViewDto();
+        shareView.setShare(share);
+        shareView.setShareInfo(shareInfoVO);
+        return shareView;
+    }
 }
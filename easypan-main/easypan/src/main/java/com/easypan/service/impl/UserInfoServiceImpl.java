@@ -168,7 +168,12 @@ public class UserInfoServiceImpl implements UserInfoService {
 	 */
 	@Override
 	public Integer updateUserInfoByUserId(UserInfo bean, String userId) {
-		return userInfoMapper.updateByUserId(bean, userId);
+		Integer count = userInfoMapper.updateByUserId(bean, userId);
+		// 分享页面展示分享者的昵称和头像
+		if (bean.getNickName() != null || bean.getQqAvatar() != null) {
+			redisComponent.evictUserShareView(userId);
+		}
+		return count;
 	}
 
 	/**
@@ -349,10 +354,8 @@ public class UserInfoServiceImpl implements UserInfoService {
 		// 用户空间处理
 		// 创建UserSpaceDto对象用于存储用户空间信息
 		UserSpaceDto userSpaceDto = new UserSpaceDto();
-		// 查询用户已使用空间大小
-		Long useSpace = fileInfoMapper.selectUseSpace(userInfo.getUserId());
-		// 设置用户已使用空间大小
-		userSpaceDto.setUseSpace(useSpace);
+		// 设置用户已使用空间大小，user_info.use_space由上传等操作维护，不再汇总文件表
+		userSpaceDto.setUseSpace(userInfo.getUseSpace());
 		// 设置用户总空间大小
 		userSpaceDto.setTotalSpace(userInfo.getTotalSpace());
 		// 将用户空间信息保存到Redis中
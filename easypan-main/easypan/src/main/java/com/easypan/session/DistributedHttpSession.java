@@ -0,0 +1,180 @@
+package com.easypan.session;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpSession;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 存储在会话存储中的会话
+ * 属性在首次读取时从存储加载并缓存到请求结束；修改只记录在本对象中，由过滤器在响应提交前一次写回
+ * 读取到的属性对象被直接修改时不会写回，修改后需要重新调用setAttribute
+ */
+public class DistributedHttpSession implements HttpSession {
+
+    private final SessionRepository sessionRepository;
+
+    private String id;
+
+    private final long creationTime;
+
+    private long lastAccessedTime;
+
+    private int maxInactiveInterval;
+
+    private boolean isNew;
+
+    private boolean invalid;
+
+    private ServletContext servletContext;
+
+    /**
+     * 已加载的属性，值为null表示存储中不存在
+     */
+    private final Map<String, Object> loadedAttributes = new HashMap<>();
+
+    /**
+     * 待写回的属性，值为null表示删除
+     */
+    private final Map<String, Object> changedAttributes = new HashMap<>();
+
+    public DistributedHttpSession(SessionRepository sessionRepository, String id, long creationTime, long lastAccessedTime,
+                                  int maxInactiveInterval, boolean isNew) {
+        this.sessionRepository = sessionRepository;
+        this.id = id;
+        this.creationTime = creationTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.isNew = isNew;
+    }
+
+    @Override
+    public long getCreationTime() {
+        checkValid();
+        return creationTime;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        checkValid();
+        return lastAccessedTime;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+        this.maxInactiveInterval = interval;
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        checkValid();
+        if (changedAttributes.containsKey(name)) {
+            return changedAttributes.get(name);
+        }
+        if (!loadedAttributes.containsKey(name)) {
+            loadedAttributes.put(name, isNew ? null : SessionSerializer.deserialize(sessionRepository.loadAttribute(id, name)));
+        }
+        return loadedAttributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        checkValid();
+        Set<String> names = new LinkedHashSet<>();
+        if (!isNew) {
+            names.addAll(sessionRepository.loadAttributeNames(id));
+        }
+        for (Map.Entry<String, Object> entry : changedAttributes.entrySet()) {
+            if (entry.getValue() == null) {
+                names.remove(entry.getKey());
+            } else {
+                names.add(entry.getKey());
+            }
+        }
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        checkValid();
+        // 提前序列化，不支持的类型在调用处报错
+        SessionSerializer.serialize(value);
+        changedAttributes.put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        checkValid();
+        changedAttributes.put(name, null);
+    }
+
+    @Override
+    public void invalidate() {
+        checkValid();
+        invalid = true;
+        sessionRepository.delete(id);
+    }
+
+    @Override
+    public boolean isNew() {
+        checkValid();
+        return isNew;
+    }
+
+    private void checkValid() {
+        if (invalid) {
+            throw new IllegalStateException("会话已失效");
+        }
+    }
+
+    boolean isInvalid() {
+        return invalid;
+    }
+
+    boolean isNewSession() {
+        return isNew;
+    }
+
+    void setId(String id) {
+        this.id = id;
+    }
+
+    void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    Map<String, Object> getChangedAttributes() {
+        return changedAttributes;
+    }
+
+    /**
+     * 写回完成后调用，修改过的属性转为已加载
+     */
+    void markSaved() {
+        for (Map.Entry<String, Object> entry : changedAttributes.entrySet()) {
+            loadedAttributes.put(entry.getKey(), entry.getValue());
+        }
+        changedAttributes.clear();
+        isNew = false;
+    }
+}
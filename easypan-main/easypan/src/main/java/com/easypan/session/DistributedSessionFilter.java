@@ -0,0 +1,245 @@
+package com.easypan.session;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.UUID;
+
+/**
+ * 分布式会话过滤器，用会话存储中的会话替换Servlet容器的会话
+ * 会话ID保存在Cookie中；会话在请求首次调用getSession时加载，修改在响应开始输出前写回，请求结束时再写回之后的修改
+ */
+public class DistributedSessionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedSessionFilter.class);
+
+    public static final String SESSION_COOKIE_NAME = "SESSION";
+
+    private final SessionRepository sessionRepository;
+
+    /**
+     * 新建会话的有效期（秒）
+     */
+    private final int maxInactiveInterval;
+
+    public DistributedSessionFilter(SessionRepository sessionRepository, int maxInactiveInterval) {
+        this.sessionRepository = sessionRepository;
+        this.maxInactiveInterval = maxInactiveInterval;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SessionRequestWrapper requestWrapper = new SessionRequestWrapper(request, response);
+        SessionResponseWrapper responseWrapper = new SessionResponseWrapper(response, requestWrapper);
+        try {
+            filterChain.doFilter(requestWrapper, responseWrapper);
+        } finally {
+            requestWrapper.commitSession();
+        }
+    }
+
+    /**
+     * 从会话存储中取会话的请求包装类
+     */
+    private class SessionRequestWrapper extends HttpServletRequestWrapper {
+
+        private final HttpServletResponse response;
+
+        private DistributedHttpSession currentSession;
+
+        private boolean requestedSessionLoaded;
+
+        private String requestedSessionId;
+
+        /**
+         * 本次请求是否已写回过会话，已写回且没有新的修改时不再写回
+         */
+        private boolean sessionSaved;
+
+        SessionRequestWrapper(HttpServletRequest request, HttpServletResponse response) {
+            super(request);
+            this.response = response;
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            if (currentSession != null && !currentSession.isInvalid()) {
+                return currentSession;
+            }
+            if (currentSession == null && !requestedSessionLoaded) {
+                requestedSessionLoaded = true;
+                requestedSessionId = readSessionId();
+                if (requestedSessionId != null) {
+                    currentSession = sessionRepository.findById(requestedSessionId);
+                }
+                if (currentSession != null) {
+                    currentSession.setServletContext(getServletContext());
+                    return currentSession;
+                }
+            }
+            if (!create) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            currentSession = new DistributedHttpSession(sessionRepository, UUID.randomUUID().toString(), now, now, maxInactiveInterval, true);
+            currentSession.setServletContext(getServletContext());
+            writeSessionCookie(currentSession.getId(), -1);
+            return currentSession;
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public String changeSessionId() {
+            HttpSession session = getSession(false);
+            if (session == null) {
+                throw new IllegalStateException("当前请求没有会话");
+            }
+            String newId = UUID.randomUUID().toString();
+            if (!currentSession.isNewSession()) {
+                sessionRepository.changeId(currentSession.getId(), newId);
+            }
+            currentSession.setId(newId);
+            writeSessionCookie(newId, -1);
+            return newId;
+        }
+
+        @Override
+        public String getRequestedSessionId() {
+            if (!requestedSessionLoaded) {
+                return readSessionId();
+            }
+            return requestedSessionId;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdValid() {
+            HttpSession session = getSession(false);
+            return session != null && !currentSession.isNewSession() && session.getId().equals(requestedSessionId);
+        }
+
+        @Override
+        public boolean isRequestedSessionIdFromCookie() {
+            return getRequestedSessionId() != null;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdFromURL() {
+            return false;
+        }
+
+        /**
+         * 写回会话，会话已失效时清除Cookie；写回失败只记录日志，不影响本次响应
+         */
+        void commitSession() {
+            if (currentSession == null) {
+                return;
+            }
+            if (currentSession.isInvalid()) {
+                writeSessionCookie("", 0);
+                currentSession = null;
+                return;
+            }
+            if (sessionSaved && !currentSession.isNewSession() && currentSession.getChangedAttributes().isEmpty()) {
+                return;
+            }
+            try {
+                sessionRepository.save(currentSession);
+                sessionSaved = true;
+            } catch (Exception e) {
+                logger.error("保存会话失败，sessionId:{}", currentSession.getId(), e);
+            }
+        }
+
+        private String readSessionId() {
+            Cookie[] cookies = getCookies();
+            if (cookies == null) {
+                return null;
+            }
+            for (Cookie cookie : cookies) {
+                if (SESSION_COOKIE_NAME.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                    return cookie.getValue();
+                }
+            }
+            return null;
+        }
+
+        private void writeSessionCookie(String value, int maxAge) {
+            if (response.isCommitted()) {
+                return;
+            }
+            Cookie cookie = new Cookie(SESSION_COOKIE_NAME, value);
+            String contextPath = getContextPath();
+            cookie.setPath(contextPath == null || contextPath.isEmpty() ? "/" : contextPath);
+            cookie.setHttpOnly(true);
+            cookie.setSecure(isSecure());
+            cookie.setMaxAge(maxAge);
+            response.addCookie(cookie);
+        }
+    }
+
+    /**
+     * 响应包装类，响应开始输出前写回会话，保证客户端收到响应后发出的下一个请求能读到本次的修改
+     */
+    private static class SessionResponseWrapper extends HttpServletResponseWrapper {
+
+        private final SessionRequestWrapper request;
+
+        SessionResponseWrapper(HttpServletResponse response, SessionRequestWrapper request) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            request.commitSession();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            request.commitSession();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            request.commitSession();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            request.commitSession();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            request.commitSession();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            request.commitSession();
+            super.sendRedirect(location);
+        }
+    }
+}
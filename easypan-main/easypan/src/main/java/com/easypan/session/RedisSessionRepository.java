@@ -0,0 +1,130 @@
+package com.easypan.session;
+
+import com.easypan.entity.constants.Constants;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Redis会话存储，每个会话一个哈希表
+ * 元数据字段保存创建时间、最后访问时间和有效期，属性字段以 attr: 为前缀，值为二进制序列化结果；
+ * 哈希表的过期时间即会话有效期，每次写回时刷新
+ */
+public class RedisSessionRepository implements SessionRepository {
+
+    private static final String FIELD_CREATION_TIME = "creationTime";
+    private static final String FIELD_LAST_ACCESSED_TIME = "lastAccessedTime";
+    private static final String FIELD_MAX_INACTIVE_INTERVAL = "maxInactiveInterval";
+    private static final String ATTRIBUTE_PREFIX = "attr:";
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+
+    public RedisSessionRepository(RedisConnectionFactory factory) {
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(factory);
+        redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        redisTemplate.setHashKeySerializer(RedisSerializer.string());
+        redisTemplate.setHashValueSerializer(RedisSerializer.byteArray());
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @Override
+    public DistributedHttpSession findById(String id) {
+        List<byte[]> values = redisTemplate.<String, byte[]>opsForHash().multiGet(getKey(id),
+                Arrays.asList(FIELD_CREATION_TIME, FIELD_LAST_ACCESSED_TIME, FIELD_MAX_INACTIVE_INTERVAL));
+        if (values == null || values.get(0) == null) {
+            return null;
+        }
+        long creationTime = toLong(values.get(0));
+        long lastAccessedTime = values.get(1) == null ? creationTime : toLong(values.get(1));
+        int maxInactiveInterval = values.get(2) == null ? 0 : (int) toLong(values.get(2));
+        return new DistributedHttpSession(this, id, creationTime, lastAccessedTime, maxInactiveInterval, false);
+    }
+
+    @Override
+    public byte[] loadAttribute(String id, String name) {
+        return redisTemplate.<String, byte[]>opsForHash().get(getKey(id), ATTRIBUTE_PREFIX + name);
+    }
+
+    @Override
+    public Set<String> loadAttributeNames(String id) {
+        Set<String> names = new HashSet<>();
+        for (String field : redisTemplate.<String, byte[]>opsForHash().keys(getKey(id))) {
+            if (field.startsWith(ATTRIBUTE_PREFIX)) {
+                names.add(field.substring(ATTRIBUTE_PREFIX.length()));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 一次往返写回元数据、修改的属性、删除的属性和过期时间
+     */
+    @Override
+    public void save(DistributedHttpSession session) {
+        byte[] key = getKey(session.getId()).getBytes(StandardCharsets.UTF_8);
+        Map<byte[], byte[]> fieldMap = new HashMap<>();
+        List<byte[]> removedFields = new ArrayList<>();
+        if (session.isNewSession()) {
+            fieldMap.put(toBytes(FIELD_CREATION_TIME), toBytes(String.valueOf(session.getCreationTime())));
+        }
+        fieldMap.put(toBytes(FIELD_LAST_ACCESSED_TIME), toBytes(String.valueOf(System.currentTimeMillis())));
+        fieldMap.put(toBytes(FIELD_MAX_INACTIVE_INTERVAL), toBytes(String.valueOf(session.getMaxInactiveInterval())));
+        for (Map.Entry<String, Object> entry : session.getChangedAttributes().entrySet()) {
+            byte[] field = toBytes(ATTRIBUTE_PREFIX + entry.getKey());
+            if (entry.getValue() == null) {
+                removedFields.add(field);
+            } else {
+                fieldMap.put(field, SessionSerializer.serialize(entry.getValue()));
+            }
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.hashCommands().hMSet(key, fieldMap);
+            if (!removedFields.isEmpty()) {
+                connection.hashCommands().hDel(key, removedFields.toArray(new byte[0][]));
+            }
+            if (session.getMaxInactiveInterval() > 0) {
+                connection.keyCommands().expire(key, session.getMaxInactiveInterval());
+            } else {
+                connection.keyCommands().persist(key);
+            }
+            return null;
+        });
+        session.markSaved();
+    }
+
+    @Override
+    public void delete(String id) {
+        redisTemplate.delete(getKey(id));
+    }
+
+    @Override
+    public void changeId(String oldId, String newId) {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(getKey(oldId)))) {
+            redisTemplate.rename(getKey(oldId), getKey(newId));
+        }
+    }
+
+    private String getKey(String id) {
+        return Constants.REDIS_KEY_SESSION + id;
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long toLong(byte[] value) {
+        return Long.parseLong(new String(value, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,57 @@
+package com.easypan.session;
+
+import java.util.Set;
+
+/**
+ * 会话存储接口，会话数据保存在应用外部，多个节点共享
+ * 会话属性按需加载，修改在请求结束前一次写回
+ */
+public interface SessionRepository {
+
+    /**
+     * 查询会话，只加载创建时间等元数据，不加载属性
+     *
+     * @param id 会话ID
+     * @return 会话，不存在或已过期时返回null
+     */
+    DistributedHttpSession findById(String id);
+
+    /**
+     * 加载单个会话属性
+     *
+     * @param id 会话ID
+     * @param name 属性名
+     * @return 序列化后的属性值，不存在时返回null
+     */
+    byte[] loadAttribute(String id, String name);
+
+    /**
+     * 加载会话的所有属性名
+     *
+     * @param id 会话ID
+     * @return 属性名
+     */
+    Set<String> loadAttributeNames(String id);
+
+    /**
+     * 写回会话的元数据和修改过的属性，并刷新过期时间
+     *
+     * @param session 会话
+     */
+    void save(DistributedHttpSession session);
+
+    /**
+     * 删除会话
+     *
+     * @param id 会话ID
+     */
+    void delete(String id);
+
+    /**
+     * 修改会话ID，保留会话数据
+     *
+     * @param oldId 原会话ID
+     * @param newId 新会话ID
+     */
+    void changeId(String oldId, String newId);
+}
@@ -0,0 +1,123 @@
+package com.easypan.session;
+
+import com.easypan.entity.dto.SessionShareDto;
+import com.easypan.entity.dto.SessionWebUserDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+
+/**
+ * 会话属性的二进制序列化
+ * 首字节为类型，之后按字段顺序写入，字符串为UTF-8，可为空的字段前加一个标记字节；
+ * 只支持会话中实际存放的类型，新增类型时在末尾追加类型值，已有类型的字段只能在末尾追加
+ */
+public class SessionSerializer {
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_WEB_USER = 2;
+    private static final byte TYPE_SHARE = 3;
+
+    private SessionSerializer() {
+    }
+
+    /**
+     * 序列化会话属性
+     *
+     * @param value 属性值
+     * @return 序列化结果
+     * @throws IllegalArgumentException 属性类型不支持时抛出
+     */
+    public static byte[] serialize(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (value == null) {
+                out.writeByte(TYPE_NULL);
+            } else if (value instanceof String) {
+                out.writeByte(TYPE_STRING);
+                out.writeUTF((String) value);
+            } else if (value instanceof SessionWebUserDto) {
+                SessionWebUserDto userDto = (SessionWebUserDto) value;
+                out.writeByte(TYPE_WEB_USER);
+                writeString(out, userDto.getUserId());
+                writeString(out, userDto.getNickName());
+                out.writeByte(userDto.getIsAdmin() == null ? 0 : userDto.getIsAdmin() ? 2 : 1);
+                writeString(out, userDto.getAvatar());
+            } else if (value instanceof SessionShareDto) {
+                SessionShareDto shareDto = (SessionShareDto) value;
+                out.writeByte(TYPE_SHARE);
+                writeString(out, shareDto.getShareId());
+                writeString(out, shareDto.getShareUserId());
+                writeString(out, shareDto.getFileId());
+                out.writeBoolean(shareDto.getExpireTime() != null);
+                if (shareDto.getExpireTime() != null) {
+                    out.writeLong(shareDto.getExpireTime().getTime());
+                }
+            } else {
+                throw new IllegalArgumentException("不支持的会话属性类型:" + value.getClass().getName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 反序列化会话属性
+     *
+     * @param data 序列化结果
+     * @return 属性值
+     * @throws IllegalArgumentException 类型值无法识别时抛出
+     */
+    public static Object deserialize(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_NULL:
+                    return null;
+                case TYPE_STRING:
+                    return in.readUTF();
+                case TYPE_WEB_USER:
+                    SessionWebUserDto userDto = new SessionWebUserDto();
+                    userDto.setUserId(readString(in));
+                    userDto.setNickName(readString(in));
+                    byte isAdmin = in.readByte();
+                    userDto.setIsAdmin(isAdmin == 0 ? null : isAdmin == 2);
+                    userDto.setAvatar(readString(in));
+                    return userDto;
+                case TYPE_SHARE:
+                    SessionShareDto shareDto = new SessionShareDto();
+                    shareDto.setShareId(readString(in));
+                    shareDto.setShareUserId(readString(in));
+                    shareDto.setFileId(readString(in));
+                    if (in.readBoolean()) {
+                        shareDto.setExpireTime(new Date(in.readLong()));
+                    }
+                    return shareDto;
+                default:
+                    throw new IllegalArgumentException("无法识别的会话属性类型:" + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.easypan.task;
+
+import com.easypan.service.EmailOutboxService;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * 邮件发件箱任务类，定期发送到期的重试邮件和租约过期的邮件，并删除已发送的历史记录
+ */
+@Component
+public class EmailOutboxTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxTask.class);
+
+    /**
+     * 已发送邮件的保留天数
+     */
+    private static final int SENT_KEEP_DAYS = 7;
+
+    @Resource
+    private EmailOutboxService emailOutboxService;
+
+    /**
+     * 触发发送到期邮件，新邮件在事务提交后已立即触发，这里处理重试和其他节点遗留的邮件
+     */
+    @Scheduled(fixedDelay = 1000 * 10)
+    public void dispatch() {
+        emailOutboxService.dispatch();
+    }
+
+    /**
+     * 每天凌晨分批删除已发送的历史记录
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void cleanSent() {
+        Date before = new Date(System.currentTimeMillis() - SENT_KEEP_DAYS * 24 * 60 * 60 * 1000L);
+        int cleanCount = 0;
+        try {
+            int batchCount;
+            do {
+                batchCount = emailOutboxService.cleanSent(before);
+                cleanCount += batchCount;
+            } while (batchCount > 0);
+        } catch (Exception e) {
+            logger.error("删除已发送邮件失败", e);
+        }
+        if (cleanCount > 0) {
+            logger.info("删除已发送邮件数:{}", cleanCount);
+        }
+    }
+}
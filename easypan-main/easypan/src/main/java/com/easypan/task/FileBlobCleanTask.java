@@ -0,0 +1,58 @@
+package com.easypan.task;
+
+import com.easypan.entity.po.FileBlob;
+import com.easypan.service.FileBlobService;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 文件内容回收任务类，定期删除引用计数归零且超过保留时间的内容
+ */
+@Component
+public class FileBlobCleanTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileBlobCleanTask.class);
+
+    /**
+     * 每批查询的内容数
+     */
+    private static final int BATCH_SIZE = 200;
+
+    @Resource
+    private FileBlobService fileBlobService;
+
+    /**
+     * 定时任务方法，分批回收直到没有等待回收的内容，单个内容回收失败不影响其他内容
+     */
+    @Scheduled(fixedDelay = 1000 * 60 * 30)
+    public void execute() {
+        int cleanCount = 0;
+        List<FileBlob> fileBlobList = fileBlobService.findUnreferenced(BATCH_SIZE);
+        while (!fileBlobList.isEmpty()) {
+            int batchCount = 0;
+            for (FileBlob fileBlob : fileBlobList) {
+                try {
+                    if (fileBlobService.deleteUnreferenced(fileBlob)) {
+                        batchCount++;
+                    }
+                } catch (Exception e) {
+                    logger.error("回收文件内容失败，MD5:{}", fileBlob.getFileMd5(), e);
+                }
+            }
+            cleanCount += batchCount;
+            // 本批没有回收任何内容，说明剩余的都已被重新引用或回收失败，等下次执行
+            if (batchCount == 0 || fileBlobList.size() < BATCH_SIZE) {
+                break;
+            }
+            fileBlobList = fileBlobService.findUnreferenced(BATCH_SIZE);
+        }
+        if (cleanCount > 0) {
+            logger.info("回收文件内容数:{}", cleanCount);
+        }
+    }
+}
@@ -1,50 +1,161 @@
 package com.easypan.task;
 
+import com.easypan.component.RedisComponent;
 import com.easypan.entity.enums.FileDelFlagEnums;
 import com.easypan.entity.po.FileInfo;
 import com.easypan.entity.query.FileInfoQuery;
+import com.easypan.mappers.FileInfoMapper;
 import com.easypan.service.FileInfoService;
 import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
  * 文件清理任务类，负责定期清理回收站中的文件
+ * 按(回收时间, 文件ID)顺序分页读取过期文件，每页按用户分组提交到清理线程池删除，并限制每秒删除的文件数；
+ * 每页完成后记录进度，中断后下次从进度处继续；多个节点通过Redis锁保证只有一个节点执行
  */
 @Component
 public class FileCleanTask {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileCleanTask.class);
+
+    /**
+     * 回收站中文件的保留天数
+     */
+    private static final int EXPIRE_DAYS = 10;
+
+    /**
+     * 每页读取的文件数
+     */
+    private static final int PAGE_SIZE = 500;
+
+    /**
+     * 每秒最多删除的文件数
+     */
+    private static final int MAX_FILES_PER_SECOND = 1000;
+
+    /**
+     * 任务锁有效期（秒），每页完成后续期，节点宕机后锁自动过期
+     */
+    private static final long LOCK_EXPIRE_SECONDS = 60 * 5;
+
     /**
      * 注入的文件信息服务，用于执行文件相关的操作
      */
     @Resource
     private FileInfoService fileInfoService;
 
+    @Resource
+    private FileInfoMapper<FileInfo, FileInfoQuery> fileInfoMapper;
+
+    @Resource
+    private RedisComponent redisComponent;
+
+    @Resource(name = "fileCleanExecutor")
+    private ThreadPoolTaskExecutor fileCleanExecutor;
+
     /**
      * 定时任务方法，用于定期清理回收站中的文件
      * 此方法固定延迟执行，每次执行完毕后等待指定时间再次执行
      */
     @Scheduled(fixedDelay = 1000 * 60 * 3)
     public void execute() {
-        // 创建文件信息查询对象，设置查询参数
-        FileInfoQuery fileInfoQuery = new FileInfoQuery();
-        fileInfoQuery.setDelFlag(FileDelFlagEnums.RECYCLE.getFlag());
-        fileInfoQuery.setQueryExpire(true);
+        String owner = UUID.randomUUID().toString();
+        if (!redisComponent.tryLockFileClean(owner, LOCK_EXPIRE_SECONDS)) {
+            return;
+        }
+        try {
+            purge(owner);
+        } catch (Exception e) {
+            logger.error("清理回收站失败", e);
+        } finally {
+            redisComponent.unlockFileClean(owner);
+        }
+    }
 
-        // 查询符合参数的文件信息列表
-        List<FileInfo> fileInfoList = fileInfoService.findListByParam(fileInfoQuery);
+    /**
+     * 从上次的进度开始分页清理，直到没有过期文件、锁丢失或线程被中断
+     *
+     * @param owner 任务锁持有者标识
+     */
+    private void purge(String owner) throws InterruptedException {
+        Date expireTime = new Date(System.currentTimeMillis() - EXPIRE_DAYS * 24 * 60 * 60 * 1000L);
+        Date lastRecoveryTime = null;
+        String lastFileId = null;
+        String checkpoint = redisComponent.getFileCleanCheckpoint();
+        if (checkpoint != null) {
+            int index = checkpoint.indexOf(':');
+            lastRecoveryTime = new Date(Long.parseLong(checkpoint.substring(0, index)));
+            lastFileId = checkpoint.substring(index + 1);
+        }
+        // 每页至少耗时这么久，控制删除速度
+        long minPageMillis = PAGE_SIZE * 1000L / MAX_FILES_PER_SECOND;
+        int cleanCount = 0;
+        while (true) {
+            long pageStart = System.currentTimeMillis();
+            List<FileInfo> fileInfoList = fileInfoMapper.selectExpiredBatch(FileDelFlagEnums.RECYCLE.getFlag(), expireTime,
+                    lastRecoveryTime, lastFileId, PAGE_SIZE);
+            if (fileInfoList.isEmpty()) {
+                redisComponent.clearFileCleanCheckpoint();
+                break;
+            }
+            cleanCount += deletePage(fileInfoList);
 
-        // 将文件信息列表按用户ID分组，以便后续批量删除
-        Map<String, List<FileInfo>> fileInfoMap = fileInfoList.stream().collect(Collectors.groupingBy(FileInfo::getUserId));
+            FileInfo last = fileInfoList.get(fileInfoList.size() - 1);
+            lastRecoveryTime = last.getRecoveryTime();
+            lastFileId = last.getFileId();
+            if (fileInfoList.size() < PAGE_SIZE) {
+                redisComponent.clearFileCleanCheckpoint();
+                break;
+            }
+            redisComponent.saveFileCleanCheckpoint(lastRecoveryTime.getTime() + ":" + lastFileId);
+            if (!redisComponent.renewFileCleanLock(owner, LOCK_EXPIRE_SECONDS)) {
+                logger.warn("回收站清理任务锁已失效，停止本次清理");
+                break;
+            }
+            long sleepMillis = minPageMillis - (System.currentTimeMillis() - pageStart);
+            if (sleepMillis > 0) {
+                Thread.sleep(sleepMillis);
+            }
+        }
+        if (cleanCount > 0) {
+            logger.info("清理回收站过期文件数:{}", cleanCount);
+        }
+    }
 
-        // 遍历分组后的文件信息，按用户ID批量删除文件
-        for (Map.Entry<String, List<FileInfo>> entry : fileInfoMap.entrySet()) {
-            List<String> fileIds = entry.getValue().stream().map(p -> p.getFileId()).collect(Collectors.toList());
-            fileInfoService.delFileBatch(entry.getKey(), String.join(",", fileIds), false);
+    /**
+     * 删除一页过期文件，按用户分组并行删除，等待本页全部完成；单个用户删除失败不影响其他用户，失败的文件下一轮重试
+     *
+     * @param fileInfoList 过期文件
+     * @return 删除成功的文件数
+     */
+    private int deletePage(List<FileInfo> fileInfoList) {
+        Map<String, List<String>> userFileMap = fileInfoList.stream()
+                .collect(Collectors.groupingBy(FileInfo::getUserId, Collectors.mapping(FileInfo::getFileId, Collectors.toList())));
+        List<CompletableFuture<Integer>> futureList = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : userFileMap.entrySet()) {
+            futureList.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    fileInfoService.delFileBatch(entry.getKey(), String.join(",", entry.getValue()), false);
+                    return entry.getValue().size();
+                } catch (Exception e) {
+                    logger.error("清理回收站文件失败，userId:{}", entry.getKey(), e);
+                    return 0;
+                }
+            }, fileCleanExecutor));
         }
+        return futureList.stream().mapToInt(CompletableFuture::join).sum();
     }
 }
@@ -0,0 +1,32 @@
+package com.easypan.task;
+
+import com.easypan.component.FileMd5FilterComponent;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 秒传过滤器重建任务类，启动后立即构建一次，之后定期重建以清除已删除文件的MD5，并加入其他节点合并的文件
+ */
+@Component
+public class FileMd5FilterTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileMd5FilterTask.class);
+
+    @Resource
+    private FileMd5FilterComponent fileMd5FilterComponent;
+
+    /**
+     * 定时任务方法，重建失败时保留原过滤器，首次构建失败则上传时继续查询数据库
+     */
+    @Scheduled(initialDelay = 0, fixedDelay = 1000 * 60 * 30)
+    public void execute() {
+        try {
+            fileMd5FilterComponent.rebuild();
+        } catch (Exception e) {
+            logger.error("秒传过滤器构建失败", e);
+        }
+    }
+}
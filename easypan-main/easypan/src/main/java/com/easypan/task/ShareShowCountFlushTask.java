@@ -0,0 +1,79 @@
+package com.easypan.task;
+
+import com.easypan.component.RedisComponent;
+import com.easypan.entity.po.FileShare;
+import com.easypan.entity.query.FileShareQuery;
+import com.easypan.mappers.FileShareMapper;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分享浏览次数落库任务类，定期将Redis中累计的浏览次数批量写入file_share
+ */
+@Component
+public class ShareShowCountFlushTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShareShowCountFlushTask.class);
+
+    /**
+     * 每批更新的分享数
+     */
+    private static final int BATCH_SIZE = 500;
+
+    @Resource
+    private RedisComponent redisComponent;
+
+    @Resource
+    private FileShareMapper<FileShare, FileShareQuery> fileShareMapper;
+
+    /**
+     * 定时任务方法，取出待落库的浏览次数后分批执行一条批量更新，失败的批次放回Redis等待下次执行
+     */
+    @Scheduled(fixedDelay = 1000 * 5)
+    public void execute() {
+        Map<String, Long> countMap = redisComponent.drainShareShowCount();
+        if (countMap.isEmpty()) {
+            return;
+        }
+        List<FileShare> batch = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : countMap.entrySet()) {
+            FileShare fileShare = new FileShare();
+            fileShare.setShareId(entry.getKey());
+            fileShare.setShowCount(entry.getValue().intValue());
+            batch.add(fileShare);
+            if (batch.size() >= BATCH_SIZE) {
+                flush(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * 执行一批更新
+     *
+     * @param batch 分享ID及浏览次数增量
+     */
+    private void flush(List<FileShare> batch) {
+        try {
+            fileShareMapper.updateShareShowCountBatch(batch);
+        } catch (Exception e) {
+            logger.error("分享浏览次数落库失败，分享数:{}", batch.size(), e);
+            Map<String, Long> countMap = new HashMap<>();
+            for (FileShare fileShare : batch) {
+                countMap.put(fileShare.getShareId(), fileShare.getShowCount().longValue());
+            }
+            redisComponent.restoreShareShowCount(countMap);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.easypan.task;
+
+import com.easypan.component.RedisComponent;
+import com.easypan.entity.config.AppConfig;
+import com.easypan.entity.dto.TranscodeJobDto;
+import com.easypan.service.FileInfoService;
+import com.easypan.utils.ProcessUtils;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * 视频转码任务类，从Redis转码队列中取出任务并在转码线程池中执行
+ * 任务取出时移入本节点的处理中队列，处理结束才移除；每个节点定期续期租约，
+ * 租约过期（节点宕机或停机）后，其处理中的任务由存活节点定时放回待处理队列
+ */
+@Component
+public class TranscodeTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranscodeTask.class);
+
+    /**
+     * 队列为空时阻塞等待的时间（秒）
+     */
+    private static final long TAKE_TIMEOUT_SECONDS = 5;
+
+    /**
+     * 从Redis读取任务失败后的等待时间（毫秒）
+     */
+    private static final long ERROR_BACKOFF_MILLIS = 3000;
+
+    /**
+     * 节点租约有效期（秒），续期间隔为其三分之一
+     */
+    private static final long LEASE_EXPIRE_SECONDS = 60;
+
+    @Resource
+    private RedisComponent redisComponent;
+
+    @Resource
+    private FileInfoService fileInfoService;
+
+    @Resource
+    private AppConfig appConfig;
+
+    @Resource(name = "transcodeExecutor")
+    private ThreadPoolTaskExecutor transcodeExecutor;
+
+    /**
+     * 是否继续处理任务，停机时置为false
+     */
+    private volatile boolean running = false;
+
+    /**
+     * 本节点标识，每次启动重新生成，处理中队列和租约按该标识区分
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 应用启动完成后，登记节点租约并启动转码工作线程
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        redisComponent.renewTranscodeNodeLease(nodeId, LEASE_EXPIRE_SECONDS);
+        running = true;
+        for (int i = 0; i < transcodeExecutor.getCorePoolSize(); i++) {
+            transcodeExecutor.execute(this::work);
+        }
+    }
+
+    /**
+     * 续期本节点租约，并将租约过期节点未完成的任务放回待处理队列
+     */
+    @Scheduled(fixedDelay = LEASE_EXPIRE_SECONDS * 1000 / 3)
+    public void heartbeat() {
+        if (!running) {
+            return;
+        }
+        redisComponent.renewTranscodeNodeLease(nodeId, LEASE_EXPIRE_SECONDS);
+        int requeueCount = redisComponent.requeueExpiredTranscodeJobs();
+        if (requeueCount > 0) {
+            logger.info("重新加入转码队列的任务数:{}", requeueCount);
+        }
+    }
+
+    /**
+     * 停机时停止取任务并结束正在运行的ffmpeg进程，未完成的任务留在处理中队列，
+     * 同时使租约立即过期，由其他节点接管
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        ProcessUtils.destroyAll();
+        try {
+            redisComponent.expireTranscodeNodeLease(nodeId);
+        } catch (Exception e) {
+            logger.error("释放转码节点租约失败，节点:{}", nodeId, e);
+        }
+    }
+
+    /**
+     * 转码工作循环
+     */
+    private void work() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            TranscodeJobDto job;
+            try {
+                job = redisComponent.takeTranscodeJob(nodeId, TAKE_TIMEOUT_SECONDS);
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                logger.error("读取转码任务失败", e);
+                try {
+                    Thread.sleep(ERROR_BACKOFF_MILLIS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                continue;
+            }
+            if (job != null) {
+                process(job);
+            }
+        }
+    }
+
+    /**
+     * 执行单个转码任务，失败时重新入队，重试次数用尽则将文件置为转码失败
+     *
+     * @param job 转码任务
+     */
+    private void process(TranscodeJobDto job) {
+        boolean success = false;
+        try {
+            fileInfoService.transcodeVideo(job.getFileId(), job.getUserId());
+            success = true;
+        } catch (Exception e) {
+            logger.error("视频转码失败，文件ID:{}，userId:{}，已重试次数:{}", job.getFileId(), job.getUserId(), job.getRetryCount(), e);
+        }
+        // 停机导致的失败不计入重试，任务留在处理中队列，租约过期后由其他节点重新处理
+        if (!success && !running) {
+            return;
+        }
+        redisComponent.finishTranscodeJob(nodeId, job);
+        if (success) {
+            return;
+        }
+        if (job.getRetryCount() < appConfig.getTranscodeMaxRetry()) {
+            job.setRetryCount(job.getRetryCount() + 1);
+            redisComponent.addTranscodeJob(job);
+        } else {
+            fileInfoService.transcodeFail(job.getFileId(), job.getUserId());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.easypan.task;
+
+import com.easypan.component.RedisComponent;
+import com.easypan.entity.po.UserInfo;
+import com.easypan.entity.query.UserInfoQuery;
+import com.easypan.mappers.UserInfoMapper;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户空间落库任务类，定期将Redis中累计的已使用空间增量批量写入user_info
+ */
+@Component
+public class UserSpaceFlushTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSpaceFlushTask.class);
+
+    /**
+     * 每批更新的用户数
+     */
+    private static final int BATCH_SIZE = 500;
+
+    @Resource
+    private RedisComponent redisComponent;
+
+    @Resource
+    private UserInfoMapper<UserInfo, UserInfoQuery> userInfoMapper;
+
+    /**
+     * 定时任务方法，取出待落库的增量后分批执行一条批量更新，失败的批次放回Redis等待下次执行
+     */
+    @Scheduled(fixedDelay = 1000 * 10)
+    public void execute() {
+        Map<String, Long> deltaMap = redisComponent.drainUserSpaceDelta();
+        if (deltaMap.isEmpty()) {
+            return;
+        }
+        List<UserInfo> batch = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : deltaMap.entrySet()) {
+            UserInfo userInfo = new UserInfo();
+            userInfo.setUserId(entry.getKey());
+            userInfo.setUseSpace(entry.getValue());
+            batch.add(userInfo);
+            if (batch.size() >= BATCH_SIZE) {
+                flush(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * 执行一批更新
+     *
+     * @param batch 用户ID及已使用空间增量
+     */
+    private void flush(List<UserInfo> batch) {
+        try {
+            userInfoMapper.updateUserSpaceBatch(batch);
+        } catch (Exception e) {
+            logger.error("用户空间落库失败，用户数:{}", batch.size(), e);
+            Map<String, Long> deltaMap = new HashMap<>();
+            for (UserInfo userInfo : batch) {
+                deltaMap.put(userInfo.getUserId(), userInfo.getUseSpace());
+            }
+            redisComponent.restoreUserSpaceDelta(deltaMap);
+        }
+    }
+}
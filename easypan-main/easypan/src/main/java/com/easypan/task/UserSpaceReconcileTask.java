@@ -0,0 +1,73 @@
+package com.easypan.task;
+
+import com.easypan.component.RedisComponent;
+import com.easypan.entity.po.FileInfo;
+import com.easypan.entity.po.UserInfo;
+import com.easypan.entity.query.FileInfoQuery;
+import com.easypan.entity.query.UserInfoQuery;
+import com.easypan.mappers.FileInfoMapper;
+import com.easypan.mappers.UserInfoMapper;
+import jakarta.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 用户空间对账任务类，定期分批汇总文件大小，与user_info.use_space比对并记录偏差
+ */
+@Component
+public class UserSpaceReconcileTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSpaceReconcileTask.class);
+
+    /**
+     * 每批对账的用户数
+     */
+    private static final int BATCH_SIZE = 200;
+
+    @Resource
+    private UserInfoMapper<UserInfo, UserInfoQuery> userInfoMapper;
+
+    @Resource
+    private FileInfoMapper<FileInfo, FileInfoQuery> fileInfoMapper;
+
+    @Resource
+    private RedisComponent redisComponent;
+
+    /**
+     * 定时任务方法，每天凌晨执行，按用户ID顺序分批对账，每批只汇总这一批用户的文件
+     * 比对时加上尚未落库的增量，避免把正在上传的空间误报为偏差
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void execute() {
+        String lastUserId = null;
+        int userCount = 0;
+        int driftCount = 0;
+        while (true) {
+            List<UserInfo> userInfoList = userInfoMapper.selectUseSpaceBatch(lastUserId, BATCH_SIZE);
+            if (userInfoList.isEmpty()) {
+                break;
+            }
+            List<String> userIdList = userInfoList.stream().map(UserInfo::getUserId).collect(Collectors.toList());
+            Map<String, Long> fileSizeMap = fileInfoMapper.selectUseSpaceByUserIds(userIdList).stream()
+                    .collect(Collectors.toMap(FileInfo::getUserId, FileInfo::getFileSize));
+            for (UserInfo userInfo : userInfoList) {
+                long recorded = (userInfo.getUseSpace() == null ? 0L : userInfo.getUseSpace())
+                        + redisComponent.getPendingUserSpaceDelta(userInfo.getUserId());
+                long actual = fileSizeMap.getOrDefault(userInfo.getUserId(), 0L);
+                if (recorded != actual) {
+                    driftCount++;
+                    logger.warn("用户空间偏差，userId:{}，记录值:{}，实际值:{}，偏差:{}", userInfo.getUserId(), recorded, actual, recorded - actual);
+                }
+            }
+            userCount += userInfoList.size();
+            lastUserId = userInfoList.get(userInfoList.size() - 1).getUserId();
+        }
+        logger.info("用户空间对账完成，用户数:{}，偏差用户数:{}", userCount, driftCount);
+    }
+}
@@ -0,0 +1,129 @@
+package com.easypan.utils;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 对象属性复制器，每对（源类型, 目标类型）生成一次
+ * 生成时按属性名匹配源对象的getter和目标对象的setter，规则与 BeanUtils.copyProperties 相同：
+ * 源属性可读、目标属性可写、类型可赋值时复制，null值也复制；包装类型的null不复制到基本类型属性，目标保持默认值；
+ * getter、setter和无参构造方法通过LambdaMetafactory生成为直接调用的函数，复制时不再反射
+ *
+ * @param <S> 源类型
+ * @param <T> 目标类型
+ */
+public final class BeanCopier<S, T> {
+
+    private final Supplier<T> constructor;
+
+    private final Function<Object, Object>[] getters;
+
+    private final BiConsumer<Object, Object>[] setters;
+
+    private BeanCopier(Supplier<T> constructor, Function<Object, Object>[] getters, BiConsumer<Object, Object>[] setters) {
+        this.constructor = constructor;
+        this.getters = getters;
+        this.setters = setters;
+    }
+
+    /**
+     * 创建目标对象并复制属性
+     *
+     * @param source 源对象
+     * @return 目标对象
+     */
+    public T copy(S source) {
+        T target = constructor.get();
+        for (int i = 0; i < getters.length; i++) {
+            setters[i].accept(target, getters[i].apply(source));
+        }
+        return target;
+    }
+
+    /**
+     * 生成复制器
+     *
+     * @param sourceClass 源类型
+     * @param targetClass 目标类型，需要有无参构造方法
+     * @return 复制器
+     * @throws IllegalStateException 目标类型无法实例化或访问方法失败时抛出
+     */
+    @SuppressWarnings("unchecked")
+    public static <S, T> BeanCopier<S, T> create(Class<S> sourceClass, Class<T> targetClass) {
+        try {
+            Supplier<T> constructor = createConstructor(targetClass);
+            List<Function<Object, Object>> getterList = new ArrayList<>();
+            List<BiConsumer<Object, Object>> setterList = new ArrayList<>();
+            for (PropertyDescriptor targetPd : BeanUtils.getPropertyDescriptors(targetClass)) {
+                Method writeMethod = targetPd.getWriteMethod();
+                if (writeMethod == null) {
+                    continue;
+                }
+                PropertyDescriptor sourcePd = BeanUtils.getPropertyDescriptor(sourceClass, targetPd.getName());
+                Method readMethod = sourcePd == null ? null : sourcePd.getReadMethod();
+                if (readMethod == null || !ClassUtils.isAssignable(writeMethod.getParameterTypes()[0], readMethod.getReturnType())) {
+                    continue;
+                }
+                getterList.add(createGetter(readMethod));
+                BiConsumer<Object, Object> setter = createSetter(writeMethod);
+                if (writeMethod.getParameterTypes()[0].isPrimitive() && !readMethod.getReturnType().isPrimitive()) {
+                    // 包装类型的null不能拆箱，跳过该属性，目标保持默认值
+                    BiConsumer<Object, Object> primitiveSetter = setter;
+                    setter = (target, value) -> {
+                        if (value != null) {
+                            primitiveSetter.accept(target, value);
+                        }
+                    };
+                }
+                setterList.add(setter);
+            }
+            return new BeanCopier<>(constructor, getterList.toArray(new Function[0]), setterList.toArray(new BiConsumer[0]));
+        } catch (Throwable e) {
+            throw new IllegalStateException("生成属性复制器失败:" + sourceClass.getName() + " -> " + targetClass.getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> createConstructor(Class<T> targetClass) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(targetClass, MethodHandles.lookup());
+        MethodHandle handle = lookup.findConstructor(targetClass, MethodType.methodType(void.class));
+        CallSite callSite = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+                MethodType.methodType(Object.class), handle, MethodType.methodType(targetClass));
+        return (Supplier<T>) callSite.getTarget().invoke();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> createGetter(Method readMethod) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(readMethod.getDeclaringClass(), MethodHandles.lookup());
+        MethodHandle handle = lookup.unreflect(readMethod);
+        CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class), handle,
+                MethodType.methodType(ClassUtils.resolvePrimitiveIfNecessary(readMethod.getReturnType()), readMethod.getDeclaringClass()));
+        return (Function<Object, Object>) callSite.getTarget().invoke();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> createSetter(Method writeMethod) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(writeMethod.getDeclaringClass(), MethodHandles.lookup());
+        MethodHandle handle = lookup.unreflect(writeMethod);
+        // setter返回值被忽略，链式setter也可以使用
+        CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                MethodType.methodType(void.class, Object.class, Object.class), handle,
+                MethodType.methodType(void.class, writeMethod.getDeclaringClass(),
+                        ClassUtils.resolvePrimitiveIfNecessary(writeMethod.getParameterTypes()[0])));
+        return (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+    }
+}
@@ -1,15 +1,26 @@
 package com.easypan.utils;
 
-import org.springframework.beans.BeanUtils;
-
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * CopyTools提供对象到对象的复制功能，主要用于简化对象之间的属性复制过程
+ * 每对（源类型, 目标类型）的复制器在首次使用时生成并缓存，之后复制不再内省和反射
  */
 public class CopyTools {
 
+    /**
+     * 源类型 -> (目标类型 -> 复制器)
+     */
+    private static final ClassValue<Map<Class<?>, BeanCopier<?, ?>>> COPIER_CACHE = new ClassValue<>() {
+        @Override
+        protected Map<Class<?>, BeanCopier<?, ?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     /**
      * 复制一个对象列表到另一个对象列表
      * 该方法主要用于在两个不同类型的列表之间进行属性复制
@@ -21,16 +32,16 @@ public class CopyTools {
      * @return 返回一个新列表，包含复制后的对象
      */
     public static <T, S> List<T> copyList(List<S> sList, Class<T> classz) {
-        List<T> list = new ArrayList<T>();
+        List<T> list = new ArrayList<T>(sList.size());
+        Class<?> sourceClass = null;
+        BeanCopier<S, T> copier = null;
         for (S s : sList) {
-            T t = null;
-            try {
-                t = classz.newInstance();
-            } catch (Exception e) {
-                e.printStackTrace();
+            // 列表中的元素一般是同一类型，类型变化时才重新取复制器
+            if (s.getClass() != sourceClass) {
+                sourceClass = s.getClass();
+                copier = getCopier(sourceClass, classz);
             }
-            BeanUtils.copyProperties(s, t);
-            list.add(t);
+            list.add(copier.copy(s));
         }
         return list;
     }
@@ -46,13 +57,19 @@ public class CopyTools {
      * @return 返回一个新的对象，包含复制后的属性
      */
     public static <T, S> T copy(S s, Class<T> classz) {
-        T t = null;
-        try {
-            t = classz.newInstance();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        BeanUtils.copyProperties(s, t);
-        return t;
+        BeanCopier<S, T> copier = getCopier(s.getClass(), classz);
+        return copier.copy(s);
+    }
+
+    /**
+     * 获取复制器，不存在时生成
+     *
+     * @param sourceClass 源类型
+     * @param targetClass 目标类型
+     * @return 复制器
+     */
+    @SuppressWarnings("unchecked")
+    private static <T, S> BeanCopier<S, T> getCopier(Class<?> sourceClass, Class<T> targetClass) {
+        return (BeanCopier<S, T>) COPIER_CACHE.get(sourceClass).computeIfAbsent(targetClass, key -> BeanCopier.create(sourceClass, targetClass));
     }
 }
@@ -0,0 +1,118 @@
+package com.easypan.utils;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 进程内缓存，带过期时间和条数上限，用作Redis前的近端缓存
+ * 超过条数上限时先清理过期项，仍超出则随机淘汰，保证内存有界
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class LocalCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 最大条数
+     */
+    private final int maxSize;
+
+    /**
+     * 过期时间（毫秒）
+     */
+    private final long expireMillis;
+
+    public LocalCache(int maxSize, long expireMillis) {
+        this.maxSize = maxSize;
+        this.expireMillis = expireMillis;
+    }
+
+    /**
+     * 获取缓存值，不存在或已过期时调用loader加载并放入缓存
+     *
+     * @param key    键
+     * @param loader 加载函数，返回null时不缓存
+     * @return 缓存值
+     */
+    public V get(K key, Function<K, V> loader) {
+        Entry<V> entry = cache.get(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.expireTime > now) {
+            return entry.value;
+        }
+        V value = loader.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 放入缓存
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void put(K key, V value) {
+        if (cache.size() >= maxSize) {
+            evict();
+        }
+        cache.put(key, new Entry<>(value, System.currentTimeMillis() + expireMillis));
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 键
+     */
+    public void remove(K key) {
+        cache.remove(key);
+    }
+
+    /**
+     * 删除值满足条件的缓存，需要遍历全部缓存项
+     *
+     * @param filter 删除条件
+     */
+    public void removeValues(Predicate<V> filter) {
+        cache.values().removeIf(entry -> filter.test(entry.value));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * 淘汰缓存项，先删除过期项，仍超过上限时删除部分未过期项
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        cache.entrySet().removeIf(item -> item.getValue().expireTime <= now);
+        Iterator<Map.Entry<K, Entry<V>>> iterator = cache.entrySet().iterator();
+        while (cache.size() >= maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 缓存项
+     */
+    private static class Entry<V> {
+        private final V value;
+        private final long expireTime;
+
+        Entry(V value, long expireTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+    }
+}
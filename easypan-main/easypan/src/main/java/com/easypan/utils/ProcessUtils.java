@@ -7,6 +7,9 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 提供执行系统命令功能的工具类，主要用于执行FFmpeg命令
@@ -15,24 +18,46 @@ public class ProcessUtils {
     private static final Logger logger = LoggerFactory.getLogger(ProcessUtils.class);
 
     /**
-     * 执行给定的系统命令，并根据参数决定是否记录执行结果日志
+     * 正在运行的FFmpeg进程
+     */
+    private static final Set<Process> RUNNING_PROCESSES = ConcurrentHashMap.newKeySet();
+
+    static {
+        // 只注册一个关闭钩子，程序退出前结束所有仍在运行的FFmpeg进程
+        Runtime.getRuntime().addShutdownHook(new Thread(ProcessUtils::destroyAll, "ffmpeg-killer"));
+    }
+
+    /**
+     * 执行给定的系统命令，并根据参数决定是否记录执行结果日志，不限制执行时间
      *
      * @param cmd 要执行的系统命令，通常是FFmpeg命令
      * @param outprintLog 布尔值，决定是否输出执行结果日志
      * @throws BusinessException 当命令执行失败时抛出的异常
      */
     public static void executeCommand(String cmd, Boolean outprintLog) throws BusinessException {
+        executeCommand(cmd, outprintLog, 0);
+    }
+
+    /**
+     * 执行给定的系统命令，超过指定时间未结束则强制结束进程
+     *
+     * @param cmd 要执行的系统命令，通常是FFmpeg命令
+     * @param outprintLog 布尔值，决定是否输出执行结果日志
+     * @param timeoutSeconds 超时时间（秒），小于等于0表示不限制
+     * @throws BusinessException 当命令执行失败或超时时抛出的异常
+     */
+    public static void executeCommand(String cmd, Boolean outprintLog, long timeoutSeconds) throws BusinessException {
         // 检查命令是否为空，如果为空则记录错误日志并返回
         if (StringTools.isEmpty(cmd)) {
             logger.error("--- 指令执行失败，因为要执行的FFmpeg指令为空！ ---");
             return;
         }
 
-        Runtime runtime = Runtime.getRuntime();
         Process process = null;
         try {
             // 执行系统命令
             process = Runtime.getRuntime().exec(cmd);
+            RUNNING_PROCESSES.add(process);
             // 执行ffmpeg指令
             // 取出输出流和错误流的信息
             // 注意：必须要取出ffmpeg在执行命令过程中产生的输出信息，如果不取的话当输出流信息填满jvm存储输出留信息的缓冲区时，线程就回阻塞住
@@ -40,8 +65,20 @@ public class ProcessUtils {
             PrintStream inputStream = new PrintStream(process.getInputStream());
             errorStream.start();
             inputStream.start();
-            // 等待ffmpeg命令执行完
-            process.waitFor();
+            // 等待ffmpeg命令执行完，超时则强制结束
+            if (timeoutSeconds > 0) {
+                if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    logger.error("执行命令超时:{}，超时时间:{}秒", cmd, timeoutSeconds);
+                    throw new BusinessException("视频转换超时");
+                }
+            } else {
+                process.waitFor();
+            }
+            if (process.exitValue() != 0) {
+                logger.error("执行命令失败:{}，退出码:{}", cmd, process.exitValue());
+                throw new BusinessException("视频转换失败");
+            }
             // 获取执行结果字符串
             String result = errorStream.stringBuffer.append(inputStream.stringBuffer + "\n").toString();
             // 输出执行的命令信息
@@ -52,34 +89,35 @@ public class ProcessUtils {
             } else {
                 logger.info("执行命令:{}，已执行完毕", cmd);
             }
+        } catch (BusinessException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            // 线程被中断（如停机），保留中断状态，进程在finally中结束
+            Thread.currentThread().interrupt();
+            throw new BusinessException("视频转换被中断");
         } catch (Exception e) {
             // 记录执行命令失败的错误信息，并抛出自定义异常
-            // logger.error("执行命令失败:{} ", e.getMessage());
-            e.printStackTrace();
+            logger.error("执行命令失败:{}", cmd, e);
             throw new BusinessException("视频转换失败");
         } finally {
-            // 确保在程序退出前结束已开启的FFmpeg进程
+            // 命令结束后确保进程已退出，不再为每个进程注册关闭钩子
             if (null != process) {
-                ProcessKiller ffmpegKiller = new ProcessKiller(process);
-                runtime.addShutdownHook(ffmpegKiller);
+                RUNNING_PROCESSES.remove(process);
+                if (process.isAlive()) {
+                    process.destroyForcibly();
+                }
             }
         }
     }
 
     /**
-     * 在程序退出前结束已有的FFmpeg进程
+     * 结束所有仍在运行的FFmpeg进程
      */
-    private static class ProcessKiller extends Thread {
-        private final Process process;
-
-        public ProcessKiller(Process process) {
-            this.process = process;
-        }
-
-        @Override
-        public void run() {
-            this.process.destroy();
+    public static void destroyAll() {
+        for (Process process : RUNNING_PROCESSES) {
+            process.destroyForcibly();
         }
+        RUNNING_PROCESSES.clear();
     }
 
 
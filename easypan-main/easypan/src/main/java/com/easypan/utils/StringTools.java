@@ -4,8 +4,17 @@ import com.easypan.entity.constants.Constants;
 import com.easypan.exception.BusinessException;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.RandomStringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 字符串工具类
@@ -30,35 +39,74 @@ public class StringTools {
         return RandomStringUtils.random(count, true, true);
     }
 
+    /**
+     * 参数类型 -> 各字段的getter，首次校验该类型时生成；类中缺少getter的字段对应null
+     */
+    private static final ClassValue<MethodHandle[]> PARAM_GETTERS = new ClassValue<>() {
+        @Override
+        protected MethodHandle[] computeValue(Class<?> type) {
+            List<MethodHandle> getterList = new ArrayList<>();
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                String methodName = "get" + StringTools.upperCaseFirstLetter(field.getName());
+                try {
+                    Method method = type.getMethod(methodName);
+                    getterList.add(lookup.unreflect(method).asType(MethodType.methodType(Object.class, Object.class)));
+                } catch (NoSuchMethodException | IllegalAccessException e) {
+                    getterList.add(null);
+                }
+            }
+            return getterList.toArray(new MethodHandle[0]);
+        }
+    };
+
     /**
      * 检查参数对象中是否至少有一个非空字符串类型的字段
      * 用于多参数更新、删除操作，确保至少有一个非空条件
+     * 字段的getter按类型缓存，空字符串、空数组和空集合都视为空条件
      * @param param 参数对象
      * @throws BusinessException 当参数校验失败时抛出
      */
     public static void checkParam(Object param) {
-        try {
-            Field[] fields = param.getClass().getDeclaredFields();
-            boolean notEmpty = false;
-            for (Field field : fields) {
-                String methodName = "get" + StringTools.upperCaseFirstLetter(field.getName());
-                Method method = param.getClass().getMethod(methodName);
-                Object object = method.invoke(param);
-                if (object instanceof String && !StringTools.isEmpty(object.toString())
-                        || object != null && !(object instanceof java.lang.String)) {
-                    notEmpty = true;
-                    break;
-                }
+        for (MethodHandle getter : PARAM_GETTERS.get(param.getClass())) {
+            if (getter == null) {
+                throw new BusinessException("校验参数是否为空失败");
             }
-            if (!notEmpty) {
-                throw new BusinessException("多参数更新，删除，必须有非空条件");
+            Object object;
+            try {
+                object = getter.invokeExact(param);
+            } catch (Throwable e) {
+                throw new BusinessException("校验参数是否为空失败");
+            }
+            if (isNotEmptyCondition(object)) {
+                return;
             }
-        } catch (BusinessException e) {
-            throw e;
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new BusinessException("校验参数是否为空失败");
         }
+        throw new BusinessException("多参数更新，删除，必须有非空条件");
+    }
+
+    /**
+     * 判断条件值是否非空
+     * @param object 条件值
+     * @return 非空返回true
+     */
+    private static boolean isNotEmptyCondition(Object object) {
+        if (object == null) {
+            return false;
+        }
+        if (object instanceof String) {
+            return !StringTools.isEmpty((String) object);
+        }
+        if (object.getClass().isArray()) {
+            return Array.getLength(object) > 0;
+        }
+        if (object instanceof Collection) {
+            return !((Collection<?>) object).isEmpty();
+        }
+        return true;
     }
 
     /**
@@ -149,4 +197,17 @@ public class StringTools {
         }
         return fileName.substring(index);
     }
+
+    /**
+     * 获取文件路径中的目录部分
+     * @param filePath 文件路径，如 202401/xxx.mp4
+     * @return 目录部分，如 202401，没有目录则返回空字符串
+     */
+    public static String getFilePathFolder(String filePath) {
+        int index = filePath.lastIndexOf("/");
+        if (index == -1) {
+            return "";
+        }
+        return filePath.substring(0, index);
+    }
 }
@@ -42,7 +42,10 @@ public class VerifyUtils {
      * @return 如果字符串符合预定义的正则表达式则返回true，否则返回false
      */
     public static boolean verify(VerifyRegexEnum regex, String value) {
-        // 调用重载方法，使用枚举中的正则表达式字符串验证输入字符串
-        return verify(regex.getRegex(), value);
+        if (StringTools.isEmpty(value)) {
+            return false;
+        }
+        // 使用枚举中预编译的正则，不校验时直接通过
+        return regex.getPattern() == null || regex.getPattern().matcher(value).matches();
     }
 }
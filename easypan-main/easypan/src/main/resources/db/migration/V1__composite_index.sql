@@ -0,0 +1,13 @@
+-- 文件列表：按目录查询，按最后更新时间倒序（含游标分页）
+ALTER TABLE `file_info` ADD KEY `idx_user_pid_del_time` (`user_id`, `file_pid`, `del_flag`, `last_update_time`, `file_id`);
+-- 文件列表：按分类查询，按最后更新时间倒序
+ALTER TABLE `file_info` ADD KEY `idx_user_del_category_time` (`user_id`, `del_flag`, `file_category`, `last_update_time`, `file_id`);
+-- 重命名检查：同目录下同名文件计数，覆盖索引
+ALTER TABLE `file_info` ADD KEY `idx_user_pid_name` (`user_id`, `file_pid`, `file_name`, `del_flag`);
+-- 回收站列表：按回收时间倒序
+ALTER TABLE `file_info` ADD KEY `idx_user_del_recovery` (`user_id`, `del_flag`, `recovery_time`);
+-- 被组合索引覆盖或选择性过低的单列索引
+ALTER TABLE `file_info` DROP KEY `idx_user_id`, DROP KEY `idx_file_pid`, DROP KEY `idx_del_flag`;
+-- 分享列表：按分享时间倒序
+ALTER TABLE `file_share` ADD KEY `idx_user_share_time` (`user_id`, `share_time`);
+ALTER TABLE `file_share` DROP KEY `idx_user_id`;
@@ -0,0 +1,11 @@
+-- 文件内容表，按MD5去重，记录引用计数
+CREATE TABLE IF NOT EXISTS `file_blob` (
+  `file_md5` varchar(32) NOT NULL COMMENT 'md5值',
+  `file_path` varchar(100) DEFAULT NULL COMMENT '文件路径',
+  `file_size` bigint(20) DEFAULT NULL COMMENT '文件大小',
+  `ref_count` int(11) DEFAULT '0' COMMENT '引用计数',
+  `create_time` datetime DEFAULT NULL COMMENT '创建时间',
+  `last_update_time` datetime DEFAULT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`file_md5`),
+  KEY `idx_ref_count_time` (`ref_count`, `last_update_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件内容';
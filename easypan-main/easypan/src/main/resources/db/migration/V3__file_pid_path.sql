@@ -0,0 +1,17 @@
+-- 父级路径：从根目录到父目录的文件夹ID，格式为 /ID/ID/，根目录下的文件为 /
+ALTER TABLE `file_info` ADD COLUMN `file_pid_path` varchar(720) CHARACTER SET ascii DEFAULT NULL COMMENT '父级路径' AFTER `file_pid`, ADD KEY `idx_user_pid_path` (`user_id`, `file_pid_path`);
+-- 按父级ID递归计算已有文件的父级路径，先写入中间表再回填；父目录已不存在的孤立文件按根目录下的文件处理，其下的文件路径从它算起
+DROP TABLE IF EXISTS `file_pid_path_tmp`;
+CREATE TABLE `file_pid_path_tmp` (PRIMARY KEY (`file_id`, `user_id`)) ENGINE=InnoDB
+WITH RECURSIVE tree (file_id, user_id, file_pid_path) AS (
+    SELECT f.file_id, f.user_id, CAST('/' AS CHAR(720)) FROM file_info f WHERE f.file_pid = '0'
+    OR NOT EXISTS (SELECT 1 FROM file_info p WHERE p.user_id = f.user_id AND p.file_id = f.file_pid)
+    UNION ALL
+    SELECT c.file_id, c.user_id, CONCAT(t.file_pid_path, t.file_id, '/') FROM file_info c
+    JOIN tree t ON c.user_id = t.user_id AND c.file_pid = t.file_id
+)
+SELECT file_id, user_id, file_pid_path FROM tree;
+UPDATE `file_info` f JOIN `file_pid_path_tmp` t ON f.file_id = t.file_id AND f.user_id = t.user_id SET f.file_pid_path = t.file_pid_path;
+DROP TABLE `file_pid_path_tmp`;
+-- 父级ID成环等祖先链到不了根目录的文件无法计算路径，回填为 /，不会被任何文件夹的路径前缀匹配到
+UPDATE `file_info` SET `file_pid_path` = '/' WHERE `file_pid_path` IS NULL;
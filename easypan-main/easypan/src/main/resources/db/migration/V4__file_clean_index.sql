@@ -0,0 +1,3 @@
+-- 回收站清理：按(回收时间, 文件ID)顺序分页扫描过期文件，替换单列的回收时间索引
+ALTER TABLE `file_info` ADD KEY `idx_del_recovery_id` (`del_flag`, `recovery_time`, `file_id`);
+ALTER TABLE `file_info` DROP KEY `idx_recovery_time`;
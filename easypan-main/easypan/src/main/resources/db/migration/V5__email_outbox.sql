@@ -0,0 +1,16 @@
+-- 邮件发件箱，业务事务中写入，由发送线程异步发送
+CREATE TABLE IF NOT EXISTS `email_outbox` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '自增ID',
+  `email` varchar(150) NOT NULL COMMENT '收件人邮箱',
+  `subject` varchar(200) DEFAULT NULL COMMENT '邮件主题',
+  `content` varchar(2000) DEFAULT NULL COMMENT '邮件内容',
+  `status` tinyint(1) DEFAULT '0' COMMENT '0:待发送 1:已发送 2:发送失败',
+  `retry_count` int(11) DEFAULT '0' COMMENT '已重试次数',
+  `next_send_time` datetime NOT NULL COMMENT '下次发送时间，发送中为租约到期时间',
+  `claim_token` varchar(36) DEFAULT NULL COMMENT '领取发送的批次标识',
+  `create_time` datetime DEFAULT NULL COMMENT '创建时间',
+  `last_update_time` datetime DEFAULT NULL COMMENT '最后更新时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_status_next_send` (`status`, `next_send_time`),
+  KEY `idx_claim_token` (`claim_token`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='邮件发件箱';
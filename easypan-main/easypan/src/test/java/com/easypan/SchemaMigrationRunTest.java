@@ -0,0 +1,45 @@
+package com.easypan;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 迁移脚本拆分测试
+ */
+public class SchemaMigrationRunTest {
+
+    @Test
+    public void splitKeepsSemicolonInQuotes() {
+        List<String> statements = SchemaMigrationRun.splitStatements(
+                "ALTER TABLE `t` ADD COLUMN `a` int COMMENT 'x;y';\n" +
+                "INSERT INTO `t` VALUES ('it''s;', \"a;b\", 'c\\';d');");
+        assertEquals(List.of("ALTER TABLE `t` ADD COLUMN `a` int COMMENT 'x;y'",
+                "INSERT INTO `t` VALUES ('it''s;', \"a;b\", 'c\\';d')"), statements);
+    }
+
+    @Test
+    public void splitDropsComments() {
+        List<String> statements = SchemaMigrationRun.splitStatements(
+                "-- 注释; 不拆分\n" +
+                "ALTER TABLE `t` ADD KEY `k` (`a`); -- 行尾注释;\n" +
+                "# 注释;\n" +
+                "ALTER TABLE `t` /* 块注释; */ DROP KEY `k`;\n" +
+                "-- 结尾注释");
+        assertEquals(List.of("ALTER TABLE `t` ADD KEY `k` (`a`)", "ALTER TABLE `t`   DROP KEY `k`"), statements);
+    }
+
+    @Test
+    public void splitKeepsDoubleDashWithoutSpace() {
+        List<String> statements = SchemaMigrationRun.splitStatements("UPDATE `t` SET `a` = `a`--1;");
+        assertEquals(List.of("UPDATE `t` SET `a` = `a`--1"), statements);
+    }
+
+    @Test
+    public void splitWithoutTrailingSemicolon() {
+        List<String> statements = SchemaMigrationRun.splitStatements("SELECT 1;\nSELECT 2");
+        assertEquals(List.of("SELECT 1", "SELECT 2"), statements);
+    }
+}
@@ -0,0 +1,72 @@
+package com.easypan;
+
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MySQLContainer;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 测试用MySQL数据库
+ * 指定 -Deasypan.test.jdbc-url（以及 easypan.test.jdbc-username、easypan.test.jdbc-password）时使用该库，
+ * 否则通过Testcontainers启动MySQL 8.0容器，Docker不可用时跳过依赖数据库的测试
+ */
+public final class TestDatabase {
+
+    private static final String MYSQL_IMAGE = "mysql:8.0";
+
+    private static DataSource dataSource;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * 获取测试数据库，首次调用时连接或启动数据库
+     *
+     * @return 数据源
+     */
+    public static synchronized DataSource getDataSource() {
+        if (dataSource != null) {
+            return dataSource;
+        }
+        String url = System.getProperty("easypan.test.jdbc-url");
+        if (url != null) {
+            dataSource = new DriverManagerDataSource(url, System.getProperty("easypan.test.jdbc-username", "root"),
+                    System.getProperty("easypan.test.jdbc-password", ""));
+            return dataSource;
+        }
+        Assumptions.assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "未指定测试数据库且Docker不可用");
+        MySQLContainer<?> container = new MySQLContainer<>(MYSQL_IMAGE).withDatabaseName("easypan").withUsername("root").withPassword("root");
+        container.start();
+        dataSource = new DriverManagerDataSource(container.getJdbcUrl(), container.getUsername(), container.getPassword());
+        return dataSource;
+    }
+
+    /**
+     * 按全新安装的方式建表（easypan.sql），再清空版本记录重新执行V1及之后的迁移脚本，
+     * 得到的表结构与升级安装一致，同时验证迁移脚本可以在已生效的结构上重复执行
+     *
+     * @return 数据源
+     */
+    public static DataSource createSchema() {
+        DataSource dataSource = getDataSource();
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new FileSystemResource("easypan.sql"));
+        } catch (SQLException e) {
+            throw new IllegalStateException("创建测试表结构失败", e);
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("delete from schema_version");
+        SchemaMigrationRun schemaMigrationRun = new SchemaMigrationRun();
+        ReflectionTestUtils.setField(schemaMigrationRun, "jdbcTemplate", jdbcTemplate);
+        schemaMigrationRun.migrate();
+        return dataSource;
+    }
+}
@@ -0,0 +1,103 @@
+package com.easypan.benchmark;
+
+import com.easypan.entity.query.FileInfoQuery;
+import com.easypan.exception.BusinessException;
+import com.easypan.utils.StringTools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StringTools.checkParam 缓存MethodHandle的实现与原先每次反射遍历字段的实现对比
+ * 参数为 FileInfoQuery，分别在第一个字段（fileId）和靠后的字段（delFlag）命中非空条件
+ * 运行：mvn test-compile 后以测试类路径执行本类的 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckParamBenchmark {
+
+    private FileInfoQuery earlyQuery;
+
+    private FileInfoQuery lateQuery;
+
+    @Setup
+    public void setUp() {
+        earlyQuery = new FileInfoQuery();
+        earlyQuery.setFileId("F000000001");
+        lateQuery = new FileInfoQuery();
+        lateQuery.setDelFlag(2);
+    }
+
+    @Benchmark
+    public FileInfoQuery cachedEarlyField() {
+        StringTools.checkParam(earlyQuery);
+        return earlyQuery;
+    }
+
+    @Benchmark
+    public FileInfoQuery cachedLateField() {
+        StringTools.checkParam(lateQuery);
+        return lateQuery;
+    }
+
+    @Benchmark
+    public FileInfoQuery reflectiveEarlyField() {
+        reflectiveCheckParam(earlyQuery);
+        return earlyQuery;
+    }
+
+    @Benchmark
+    public FileInfoQuery reflectiveLateField() {
+        reflectiveCheckParam(lateQuery);
+        return lateQuery;
+    }
+
+    /**
+     * 原先的实现：每次调用都取声明字段、拼接getter名称、getMethod并反射调用
+     */
+    private static void reflectiveCheckParam(Object param) {
+        try {
+            Field[] fields = param.getClass().getDeclaredFields();
+            boolean notEmpty = false;
+            for (Field field : fields) {
+                String methodName = "get" + StringTools.upperCaseFirstLetter(field.getName());
+                Method method = param.getClass().getMethod(methodName);
+                Object object = method.invoke(param);
+                if (object instanceof String && !StringTools.isEmpty(object.toString())
+                        || object != null && !(object instanceof java.lang.String)) {
+                    notEmpty = true;
+                    break;
+                }
+            }
+            if (!notEmpty) {
+                throw new BusinessException("多参数更新，删除，必须有非空条件");
+            }
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BusinessException("校验参数是否为空失败");
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CheckParamBenchmark.class.getSimpleName()).build()).run();
+    }
+}
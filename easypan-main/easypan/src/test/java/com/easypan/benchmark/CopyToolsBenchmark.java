@@ -0,0 +1,86 @@
+package com.easypan.benchmark;
+
+import com.easypan.entity.po.FileInfo;
+import com.easypan.entity.vo.FileInfoVO;
+import com.easypan.utils.CopyTools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CopyTools.copyList 与原先逐条 newInstance + BeanUtils.copyProperties 的对比，一页约500条 FileInfo -> FileInfoVO
+ * 运行：mvn test-compile 后以测试类路径执行本类的 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CopyToolsBenchmark {
+
+    private static final int ROW_COUNT = 500;
+
+    private List<FileInfo> fileInfoList;
+
+    @Setup
+    public void setUp() {
+        fileInfoList = new ArrayList<>(ROW_COUNT);
+        Date now = new Date();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            FileInfo fileInfo = new FileInfo();
+            fileInfo.setFileId(String.format("F%09d", i));
+            fileInfo.setUserId("U000000001");
+            fileInfo.setFileMd5(String.format("%032x", i));
+            fileInfo.setFilePid("0");
+            fileInfo.setFilePidPath("/");
+            fileInfo.setFileSize(1024L * i);
+            fileInfo.setFileName("file_" + i + ".txt");
+            fileInfo.setFilePath("202408/" + i);
+            fileInfo.setCreateTime(now);
+            fileInfo.setLastUpdateTime(now);
+            fileInfo.setFolderType(0);
+            fileInfo.setFileCategory(4);
+            fileInfo.setFileType(7);
+            fileInfo.setStatus(2);
+            fileInfo.setDelFlag(2);
+            fileInfoList.add(fileInfo);
+        }
+    }
+
+    @Benchmark
+    public List<FileInfoVO> copyList() {
+        return CopyTools.copyList(fileInfoList, FileInfoVO.class);
+    }
+
+    @Benchmark
+    public List<FileInfoVO> beanUtilsCopyProperties() throws Exception {
+        List<FileInfoVO> list = new ArrayList<>();
+        for (FileInfo fileInfo : fileInfoList) {
+            FileInfoVO vo = FileInfoVO.class.getDeclaredConstructor().newInstance();
+            BeanUtils.copyProperties(fileInfo, vo);
+            list.add(vo);
+        }
+        return list;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CopyToolsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
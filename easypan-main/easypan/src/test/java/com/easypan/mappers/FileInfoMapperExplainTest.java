@@ -0,0 +1,314 @@
+package com.easypan.mappers;
+
+import com.easypan.TestDatabase;
+import com.easypan.entity.enums.FileDelFlagEnums;
+import com.easypan.entity.enums.FileFolderTypeEnums;
+import com.easypan.entity.po.FileInfo;
+import com.easypan.entity.query.FileInfoQuery;
+import com.easypan.entity.query.SimplePage;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * FileInfoMapper.xml 执行计划回归测试
+ * 按 easypan.sql 和迁移脚本建表，写入多用户、多层目录的测试数据后，对各条语句执行EXPLAIN，
+ * 检查使用了预期的索引，且没有filesort和索引合并
+ */
+public class FileInfoMapperExplainTest {
+
+    private static final String NAMESPACE = "com.easypan.mappers.FileInfoMapper.";
+
+    private static final int USER_COUNT = 200;
+
+    private static final int FOLDER_COUNT = 10;
+
+    private static final int FILE_PER_FOLDER = 9;
+
+    private static final String USER_ID = userId(7);
+
+    private static final String FOLDER_ID = folderId(7, 3);
+
+    private static final String SUB_FOLDER_PATH = "/" + folderId(7, 0) + "/" + folderId(7, 0) + "S/";
+
+    private static final long DAY_MILLIS = 1000L * 60 * 60 * 24;
+
+    private static DataSource dataSource;
+
+    private static Configuration configuration;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        dataSource = TestDatabase.createSchema();
+        insertFiles(new JdbcTemplate(dataSource));
+        configuration = new Configuration();
+        String resource = "com/easypan/mappers/FileInfoMapper.xml";
+        try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+    }
+
+    @Test
+    public void folderListing() {
+        FileInfoQuery query = new FileInfoQuery();
+        query.setUserId(USER_ID);
+        query.setFilePid(FOLDER_ID);
+        query.setDelFlag(FileDelFlagEnums.USING.getFlag());
+        query.setOrderBy("last_update_time desc");
+        query.setSimplePage(new SimplePage(0, 15));
+        assertPlan("selectList", queryParam(query), "idx_user_pid_del_time");
+    }
+
+    @Test
+    public void folderListingCount() {
+        FileInfoQuery query = new FileInfoQuery();
+        query.setUserId(USER_ID);
+        query.setFilePid(FOLDER_ID);
+        query.setDelFlag(FileDelFlagEnums.USING.getFlag());
+        assertPlan("selectCount", queryParam(query), "idx_user_pid_del_time");
+    }
+
+    @Test
+    public void categoryListing() {
+        FileInfoQuery query = new FileInfoQuery();
+        query.setUserId(USER_ID);
+        query.setFileCategory(1);
+        query.setDelFlag(FileDelFlagEnums.USING.getFlag());
+        query.setOrderBy("last_update_time desc");
+        query.setSimplePage(new SimplePage(0, 15));
+        assertPlan("selectList", queryParam(query), "idx_user_del_category_time");
+    }
+
+    @Test
+    public void recycleListing() {
+        FileInfoQuery query = new FileInfoQuery();
+        query.setUserId(USER_ID);
+        query.setDelFlag(FileDelFlagEnums.RECYCLE.getFlag());
+        query.setOrderBy("recovery_time desc");
+        query.setSimplePage(new SimplePage(0, 15));
+        assertPlan("selectList", queryParam(query), "idx_user_del_recovery");
+    }
+
+    @Test
+    public void autoRenameCount() {
+        FileInfoQuery query = new FileInfoQuery();
+        query.setUserId(USER_ID);
+        query.setFilePid(FOLDER_ID);
+        query.setFileName("file_1.txt");
+        query.setDelFlag(FileDelFlagEnums.USING.getFlag());
+        assertPlan("selectCount", queryParam(query), "idx_user_pid_name");
+    }
+
+    @Test
+    public void cursorPage() {
+        FileInfoQuery query = new FileInfoQuery();
+        query.setUserId(USER_ID);
+        query.setFilePid(FOLDER_ID);
+        query.setDelFlag(FileDelFlagEnums.USING.getFlag());
+        query.setCursorLastUpdateTime(new Date(System.currentTimeMillis() - DAY_MILLIS * 30));
+        query.setCursorFileId(fileId(7, 3, 4));
+        query.setOrderBy("last_update_time desc, file_id desc");
+        query.setSimplePage(new SimplePage(0, 16));
+        assertPlan("selectList", queryParam(query), "idx_user_pid_del_time");
+    }
+
+    @Test
+    public void subtreeByPathPrefix() {
+        FileInfoQuery query = new FileInfoQuery();
+        query.setUserId(USER_ID);
+        query.setFilePidPathPrefixArray(new String[]{"/" + FOLDER_ID + "/", SUB_FOLDER_PATH});
+        query.setDelFlag(FileDelFlagEnums.USING.getFlag());
+        assertPlan("selectList", queryParam(query), "idx_user_pid_path");
+        assertPlan("selectCount", queryParam(query), "idx_user_pid_path");
+    }
+
+    @Test
+    public void subtreeByPathPrefixOrdered() {
+        FileInfoQuery query = new FileInfoQuery();
+        query.setUserId(USER_ID);
+        query.setFilePidPathPrefixArray(new String[]{"/" + FOLDER_ID + "/"});
+        query.setDelFlag(FileDelFlagEnums.USING.getFlag());
+        query.setOrderBy("file_pid_path");
+        assertPlan("selectList", queryParam(query), "idx_user_pid_path");
+    }
+
+    @Test
+    public void recycledSubFoldersByPathPrefix() {
+        FileInfoQuery query = new FileInfoQuery();
+        query.setUserId(USER_ID);
+        query.setFilePidPathPrefixArray(new String[]{"/" + FOLDER_ID + "/"});
+        query.setFolderType(FileFolderTypeEnums.FOLDER.getType());
+        query.setDelFlag(FileDelFlagEnums.RECYCLE.getFlag());
+        assertPlan("selectList", queryParam(query), "idx_user_pid_path");
+    }
+
+    @Test
+    public void subtreeUpdateByPathPrefix() {
+        FileInfoQuery query = new FileInfoQuery();
+        query.setUserId(USER_ID);
+        query.setFilePidPathPrefixArray(new String[]{"/" + FOLDER_ID + "/"});
+        query.setDelFlag(FileDelFlagEnums.USING.getFlag());
+        FileInfo bean = new FileInfo();
+        bean.setDelFlag(FileDelFlagEnums.DEL.getFlag());
+        Map<String, Object> param = queryParam(query);
+        param.put("bean", bean);
+        assertPlan("updateByParam", param, "idx_user_pid_path");
+    }
+
+    @Test
+    public void movePathPrefix() {
+        Map<String, Object> param = new HashMap<>();
+        param.put("userId", USER_ID);
+        param.put("oldPrefix", "/" + FOLDER_ID + "/");
+        param.put("newPrefix", "/" + folderId(7, 5) + "/" + FOLDER_ID + "/");
+        assertPlan("updateFilePidPathPrefix", param, "idx_user_pid_path");
+    }
+
+    @Test
+    public void maxPathDepth() {
+        Map<String, Object> param = new HashMap<>();
+        param.put("userId", USER_ID);
+        param.put("prefix", "/" + FOLDER_ID + "/");
+        assertPlan("selectMaxFilePidPathDepth", param, "idx_user_pid_path");
+    }
+
+    @Test
+    public void expiredBatchFirstPage() {
+        Map<String, Object> param = new HashMap<>();
+        param.put("delFlag", FileDelFlagEnums.RECYCLE.getFlag());
+        param.put("expireTime", new Date(System.currentTimeMillis() - DAY_MILLIS * 10));
+        param.put("limit", 500);
+        assertPlan("selectExpiredBatch", param, "idx_del_recovery_id");
+    }
+
+    @Test
+    public void expiredBatchFromCheckpoint() {
+        Map<String, Object> param = new HashMap<>();
+        param.put("delFlag", FileDelFlagEnums.RECYCLE.getFlag());
+        param.put("expireTime", new Date(System.currentTimeMillis() - DAY_MILLIS * 10));
+        param.put("lastRecoveryTime", new Date(System.currentTimeMillis() - DAY_MILLIS * 20));
+        param.put("lastFileId", fileId(7, 3, 4));
+        param.put("limit", 500);
+        assertPlan("selectExpiredBatch", param, "idx_del_recovery_id");
+    }
+
+    /**
+     * 用MyBatis按映射文件生成语句并绑定参数，执行EXPLAIN后检查file_info的访问方式
+     */
+    private static void assertPlan(String statementId, Object parameter, String expectedKey) {
+        MappedStatement mappedStatement = configuration.getMappedStatement(NAMESPACE + statementId);
+        BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+        List<Map<String, String>> plan = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + boundSql.getSql())) {
+            new DefaultParameterHandler(mappedStatement, parameter, boundSql).setParameters(statement);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Map<String, String> row = new HashMap<>();
+                    for (String column : new String[]{"table", "type", "key", "rows", "Extra"}) {
+                        row.put(column, resultSet.getString(column));
+                    }
+                    plan.add(row);
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("执行EXPLAIN失败:" + statementId, e);
+        }
+        Map<String, String> fileInfoRow = null;
+        for (Map<String, String> row : plan) {
+            if ("file_info".equals(row.get("table"))) {
+                fileInfoRow = row;
+            }
+        }
+        String message = statementId + " " + plan + "\n" + boundSql.getSql();
+        assertNotNull(fileInfoRow, message);
+        assertEquals(expectedKey, fileInfoRow.get("key"), message);
+        assertFalse("index_merge".equals(fileInfoRow.get("type")), message);
+        String extra = fileInfoRow.get("Extra") == null ? "" : fileInfoRow.get("Extra");
+        assertFalse(extra.contains("filesort"), message);
+    }
+
+    private static Map<String, Object> queryParam(FileInfoQuery query) {
+        Map<String, Object> param = new HashMap<>();
+        param.put("query", query);
+        return param;
+    }
+
+    /**
+     * 每个用户根目录下若干文件夹，每个文件夹下若干文件，第一个文件夹下还有一层子文件夹；
+     * 大部分文件正常，少量在回收站或已删除，时间分散在最近60天
+     */
+    private static void insertFiles(JdbcTemplate jdbcTemplate) {
+        Random random = new Random(20240801L);
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>();
+        for (int user = 0; user < USER_COUNT; user++) {
+            String userId = userId(user);
+            for (int folder = 0; folder < FOLDER_COUNT; folder++) {
+                String folderId = folderId(user, folder);
+                rows.add(row(random, now, folderId, userId, "0", "/", "folder_" + folder, FileFolderTypeEnums.FOLDER.getType()));
+                for (int file = 0; file < FILE_PER_FOLDER; file++) {
+                    rows.add(row(random, now, fileId(user, folder, file), userId, folderId, "/" + folderId + "/", "file_" + file + ".txt",
+                            FileFolderTypeEnums.FILE.getType()));
+                }
+            }
+            String parentId = folderId(user, 0);
+            String subFolderId = parentId + "S";
+            rows.add(row(random, now, subFolderId, userId, parentId, "/" + parentId + "/", "sub", FileFolderTypeEnums.FOLDER.getType()));
+            for (int file = 0; file < FILE_PER_FOLDER; file++) {
+                rows.add(row(random, now, subFolderId.substring(0, 7) + "T" + file, userId, subFolderId, "/" + parentId + "/" + subFolderId + "/",
+                        "sub_" + file + ".txt", FileFolderTypeEnums.FILE.getType()));
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into file_info(file_id, user_id, file_md5, file_pid, file_pid_path, file_size, file_name, file_path, " +
+                "create_time, last_update_time, folder_type, file_category, file_type, status, recovery_time, del_flag) " +
+                "values(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute("analyze table file_info");
+    }
+
+    private static Object[] row(Random random, long now, String fileId, String userId, String filePid, String filePidPath, String fileName,
+                                Integer folderType) {
+        Timestamp lastUpdateTime = new Timestamp(now - (long) (random.nextDouble() * DAY_MILLIS * 60));
+        int delDice = random.nextInt(100);
+        Integer delFlag = delDice < 90 ? FileDelFlagEnums.USING.getFlag() : delDice < 98 ? FileDelFlagEnums.RECYCLE.getFlag() : FileDelFlagEnums.DEL.getFlag();
+        Timestamp recoveryTime = FileDelFlagEnums.USING.getFlag().equals(delFlag) ? null : new Timestamp(now - (long) (random.nextDouble() * DAY_MILLIS * 30));
+        int category = 1 + random.nextInt(5);
+        return new Object[]{fileId, userId, String.format("%032x", random.nextLong()), filePid, filePidPath, random.nextInt(1 << 20), fileName,
+                "202408/" + fileId, lastUpdateTime, lastUpdateTime, folderType, category, category, 2, recoveryTime, delFlag};
+    }
+
+    private static String userId(int user) {
+        return String.format("U%09d", user);
+    }
+
+    private static String folderId(int user, int folder) {
+        return String.format("D%04d%03d", user, folder);
+    }
+
+    private static String fileId(int user, int folder, int file) {
+        return String.format("F%04d%03d%d", user, folder, file);
+    }
+}
@@ -0,0 +1,195 @@
+package com.easypan.service.impl;
+
+import com.easypan.TestDatabase;
+import com.easypan.entity.config.AppConfig;
+import com.easypan.entity.po.EmailOutbox;
+import com.easypan.mappers.EmailOutboxMapper;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.Date;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 邮件发件箱测试，邮件发到GreenMail的内存SMTP服务
+ * 覆盖到期领取、租约到期重新领取、整批发送后清空内容，以及发送失败后按退避时间重试
+ */
+public class EmailOutboxServiceImplTest {
+
+    private static final String EMAIL = "test@localhost";
+
+    private static final String SUBJECT = "邮箱验证码";
+
+    /**
+     * 没有SMTP服务监听的端口，发送时连接失败
+     */
+    private static final int CLOSED_PORT = 1;
+
+    private static final long WAIT_MILLIS = 10000;
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static EmailOutboxMapper<EmailOutbox> emailOutboxMapper;
+
+    private EmailOutboxServiceImpl emailOutboxService;
+
+    private JavaMailSenderImpl javaMailSender;
+
+    private ThreadPoolTaskExecutor mailExecutor;
+
+    @BeforeAll
+    @SuppressWarnings("unchecked")
+    public static void setUpDatabase() throws Exception {
+        DataSource dataSource = TestDatabase.createSchema();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setMapperLocations(new ClassPathResource("com/easypan/mappers/EmailOutboxMapper.xml"));
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        emailOutboxMapper = new SqlSessionTemplate(sqlSessionFactory).getMapper(EmailOutboxMapper.class);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate.update("delete from email_outbox");
+        javaMailSender = new JavaMailSenderImpl();
+        javaMailSender.setHost("127.0.0.1");
+        javaMailSender.setPort(ServerSetupTest.SMTP.getPort());
+        javaMailSender.setDefaultEncoding("UTF-8");
+        mailExecutor = new ThreadPoolTaskExecutor();
+        mailExecutor.setCorePoolSize(1);
+        mailExecutor.setMaxPoolSize(1);
+        mailExecutor.setQueueCapacity(1);
+        mailExecutor.initialize();
+        AppConfig appConfig = new AppConfig();
+        ReflectionTestUtils.setField(appConfig, "sendUserName", "easypan@localhost");
+        emailOutboxService = new EmailOutboxServiceImpl();
+        ReflectionTestUtils.setField(emailOutboxService, "emailOutboxMapper", emailOutboxMapper);
+        ReflectionTestUtils.setField(emailOutboxService, "javaMailSender", javaMailSender);
+        ReflectionTestUtils.setField(emailOutboxService, "appConfig", appConfig);
+        ReflectionTestUtils.setField(emailOutboxService, "mailExecutor", mailExecutor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        mailExecutor.shutdown();
+    }
+
+    @Test
+    public void claimDueMailsOnce() {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        for (int i = 0; i < 3; i++) {
+            insertMail(new Date(now - 1000));
+        }
+        insertMail(new Date(now + 60 * 1000));
+        Date leaseTime = new Date(now + 5 * 60 * 1000);
+
+        assertEquals(2, emailOutboxMapper.claimBatch("token1", new Date(now), leaseTime, 2));
+        assertEquals(1, emailOutboxMapper.claimBatch("token2", new Date(now), leaseTime, 10));
+        assertEquals(0, emailOutboxMapper.claimBatch("token3", new Date(now), leaseTime, 10));
+        assertEquals(2, emailOutboxMapper.selectByClaimToken("token1").size());
+        assertEquals(1, emailOutboxMapper.selectByClaimToken("token2").size());
+
+        // 租约到期后未回写结果的邮件被重新领取，未到期的邮件此时也已到期
+        Date afterLease = new Date(leaseTime.getTime() + 1000);
+        assertEquals(4, emailOutboxMapper.claimBatch("token4", afterLease, new Date(afterLease.getTime() + 5 * 60 * 1000), 10));
+        assertEquals(0, emailOutboxMapper.selectByClaimToken("token1").size());
+    }
+
+    @Test
+    public void sendAndClearContent() throws Exception {
+        emailOutboxService.enqueue(EMAIL, SUBJECT, "验证码为12345");
+        emailOutboxService.enqueue(EMAIL, SUBJECT, "验证码为67890");
+
+        assertTrue(greenMail.waitForIncomingEmail(WAIT_MILLIS, 2));
+        MimeMessage[] messages = greenMail.getReceivedMessages();
+        assertEquals(2, messages.length);
+        assertEquals(SUBJECT, messages[0].getSubject());
+        waitFor(() -> countByStatus(1) == 2);
+        for (Map<String, Object> row : jdbcTemplate.queryForList("select content, claim_token from email_outbox")) {
+            assertNull(row.get("content"));
+            assertNull(row.get("claim_token"));
+        }
+    }
+
+    @Test
+    public void retryAfterSendFailure() {
+        javaMailSender.setPort(CLOSED_PORT);
+        long enqueueTime = System.currentTimeMillis();
+        emailOutboxService.enqueue(EMAIL, SUBJECT, "验证码为12345");
+
+        waitFor(() -> jdbcTemplate.queryForObject("select retry_count from email_outbox", Integer.class) == 1);
+        assertEquals(1, countByStatus(0));
+        Map<String, Object> row = jdbcTemplate.queryForMap("select content, claim_token from email_outbox");
+        assertEquals("验证码为12345", row.get("content"));
+        assertNull(row.get("claim_token"));
+        // 首次重试等待30秒
+        Date nextSendTime = jdbcTemplate.queryForObject("select next_send_time from email_outbox", Date.class);
+        assertTrue(nextSendTime.getTime() >= enqueueTime + 29 * 1000);
+
+        // 未到重试时间时不会被领取
+        javaMailSender.setPort(ServerSetupTest.SMTP.getPort());
+        emailOutboxService.dispatch();
+        assertFalse(greenMail.waitForIncomingEmail(1000, 1));
+
+        jdbcTemplate.update("update email_outbox set next_send_time = ?", new Date(System.currentTimeMillis() - 1000));
+        emailOutboxService.dispatch();
+        assertTrue(greenMail.waitForIncomingEmail(WAIT_MILLIS, 1));
+        waitFor(() -> countByStatus(1) == 1);
+        assertNull(jdbcTemplate.queryForObject("select content from email_outbox", String.class));
+    }
+
+    private static void insertMail(Date nextSendTime) {
+        EmailOutbox emailOutbox = new EmailOutbox();
+        emailOutbox.setEmail(EMAIL);
+        emailOutbox.setSubject(SUBJECT);
+        emailOutbox.setContent("验证码");
+        emailOutbox.setStatus(0);
+        emailOutbox.setRetryCount(0);
+        emailOutbox.setNextSendTime(nextSendTime);
+        emailOutbox.setCreateTime(new Date());
+        emailOutbox.setLastUpdateTime(new Date());
+        emailOutboxMapper.insert(emailOutbox);
+    }
+
+    private static int countByStatus(int status) {
+        return jdbcTemplate.queryForObject("select count(1) from email_outbox where status = ?", Integer.class, status);
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
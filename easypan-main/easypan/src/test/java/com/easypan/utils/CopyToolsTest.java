@@ -0,0 +1,231 @@
+package com.easypan.utils;
+
+import com.easypan.entity.po.FileInfo;
+import com.easypan.entity.vo.FileInfoVO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * CopyTools 和 BeanCopier 测试，复制规则与 BeanUtils.copyProperties 一致
+ */
+public class CopyToolsTest {
+
+    @Test
+    public void copyPrimitiveToWrapper() {
+        PrimitiveBean source = new PrimitiveBean();
+        source.setCount(3);
+        source.setSize(5L);
+        source.setEnabled(true);
+        WrapperBean target = CopyTools.copy(source, WrapperBean.class);
+        assertEquals(Integer.valueOf(3), target.getCount());
+        assertEquals(Long.valueOf(5L), target.getSize());
+        assertEquals(Boolean.TRUE, target.getEnabled());
+    }
+
+    @Test
+    public void copyWrapperToPrimitive() {
+        WrapperBean source = new WrapperBean();
+        source.setCount(3);
+        source.setSize(5L);
+        source.setEnabled(true);
+        PrimitiveBean target = CopyTools.copy(source, PrimitiveBean.class);
+        assertEquals(3, target.getCount());
+        assertEquals(5L, target.getSize());
+        assertEquals(true, target.isEnabled());
+    }
+
+    @Test
+    public void nullWrapperLeavesPrimitiveDefault() {
+        WrapperBean source = new WrapperBean();
+        source.setSize(5L);
+        PrimitiveBean target = CopyTools.copy(source, PrimitiveBean.class);
+        assertEquals(0, target.getCount());
+        assertEquals(5L, target.getSize());
+        assertEquals(false, target.isEnabled());
+    }
+
+    @Test
+    public void copyToFluentSetter() {
+        WrapperBean source = new WrapperBean();
+        source.setCount(3);
+        source.setName("name");
+        FluentBean target = CopyTools.copy(source, FluentBean.class);
+        assertEquals(Integer.valueOf(3), target.getCount());
+        assertEquals("name", target.getName());
+    }
+
+    @Test
+    public void skipNonAssignableType() {
+        WrapperBean source = new WrapperBean();
+        source.setCount(3);
+        source.setSize(5L);
+        source.setName("name");
+        MismatchBean target = CopyTools.copy(source, MismatchBean.class);
+        assertNull(target.getCount());
+        assertEquals(0, target.getSize());
+        assertEquals("name", target.getName());
+    }
+
+    @Test
+    public void copyFileInfoList() {
+        List<FileInfo> fileInfoList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            FileInfo fileInfo = new FileInfo();
+            fileInfo.setFileId("file" + i);
+            fileInfo.setUserId("user");
+            fileInfo.setFileSize(100L + i);
+            fileInfo.setLastUpdateTime(new Date(i));
+            fileInfo.setFolderType(0);
+            fileInfoList.add(fileInfo);
+        }
+        List<FileInfoVO> voList = CopyTools.copyList(fileInfoList, FileInfoVO.class);
+        assertEquals(3, voList.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("file" + i, voList.get(i).getFileId());
+            assertEquals(Long.valueOf(100L + i), voList.get(i).getFileSize());
+            assertSame(fileInfoList.get(i).getLastUpdateTime(), voList.get(i).getLastUpdateTime());
+            assertEquals(Integer.valueOf(0), voList.get(i).getFolderType());
+        }
+    }
+
+    public static class PrimitiveBean {
+
+        private int count;
+
+        private long size;
+
+        private boolean enabled;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class WrapperBean {
+
+        private Integer count;
+
+        private Long size;
+
+        private Boolean enabled;
+
+        private String name;
+
+        public Integer getCount() {
+            return count;
+        }
+
+        public void setCount(Integer count) {
+            this.count = count;
+        }
+
+        public Long getSize() {
+            return size;
+        }
+
+        public void setSize(Long size) {
+            this.size = size;
+        }
+
+        public Boolean getEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class FluentBean {
+
+        private Integer count;
+
+        private String name;
+
+        public Integer getCount() {
+            return count;
+        }
+
+        public FluentBean setCount(Integer count) {
+            this.count = count;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public FluentBean setName(String name) {
+            this.name = name;
+            return this;
+        }
+    }
+
+    public static class MismatchBean {
+
+        private String count;
+
+        private int size;
+
+        private String name;
+
+        public String getCount() {
+            return count;
+        }
+
+        public void setCount(String count) {
+            this.count = count;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
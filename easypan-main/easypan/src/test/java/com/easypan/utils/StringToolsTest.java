@@ -0,0 +1,141 @@
+package com.easypan.utils;
+
+import com.easypan.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * StringTools.checkParam 测试，多参数更新、删除必须至少有一个非空条件
+ */
+public class StringToolsTest {
+
+    private static final String EMPTY_CONDITION_MESSAGE = "多参数更新，删除，必须有非空条件";
+
+    private static final String CHECK_FAIL_MESSAGE = "校验参数是否为空失败";
+
+    @Test
+    public void checkParamRejectsNullFields() {
+        assertEmptyCondition(new Param());
+    }
+
+    @Test
+    public void checkParamRejectsEmptyString() {
+        Param param = new Param();
+        param.setName("");
+        assertEmptyCondition(param);
+    }
+
+    @Test
+    public void checkParamRejectsBlankString() {
+        Param param = new Param();
+        param.setName("  ");
+        assertEmptyCondition(param);
+    }
+
+    @Test
+    public void checkParamRejectsEmptyArray() {
+        Param param = new Param();
+        param.setIds(new String[0]);
+        assertEmptyCondition(param);
+    }
+
+    @Test
+    public void checkParamRejectsEmptyCollection() {
+        Param param = new Param();
+        param.setTags(Collections.emptyList());
+        assertEmptyCondition(param);
+    }
+
+    @Test
+    public void checkParamAcceptsNonEmptyString() {
+        Param param = new Param();
+        param.setName("name");
+        assertDoesNotThrow(() -> StringTools.checkParam(param));
+    }
+
+    @Test
+    public void checkParamAcceptsNonEmptyArray() {
+        Param param = new Param();
+        param.setIds(new String[]{"1"});
+        assertDoesNotThrow(() -> StringTools.checkParam(param));
+    }
+
+    @Test
+    public void checkParamAcceptsNonEmptyCollection() {
+        Param param = new Param();
+        param.setTags(List.of("tag"));
+        assertDoesNotThrow(() -> StringTools.checkParam(param));
+    }
+
+    @Test
+    public void checkParamAcceptsNonStringField() {
+        Param param = new Param();
+        param.setStatus(0);
+        assertDoesNotThrow(() -> StringTools.checkParam(param));
+    }
+
+    @Test
+    public void checkParamFailsOnMissingGetter() {
+        BusinessException e = assertThrows(BusinessException.class, () -> StringTools.checkParam(new NoGetterParam()));
+        assertEquals(CHECK_FAIL_MESSAGE, e.getMessage());
+    }
+
+    private static void assertEmptyCondition(Object param) {
+        BusinessException e = assertThrows(BusinessException.class, () -> StringTools.checkParam(param));
+        assertEquals(EMPTY_CONDITION_MESSAGE, e.getMessage());
+    }
+
+    public static class Param {
+
+        private String name;
+
+        private String[] ids;
+
+        private List<String> tags;
+
+        private Integer status;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String[] getIds() {
+            return ids;
+        }
+
+        public void setIds(String[] ids) {
+            this.ids = ids;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+
+        public void setStatus(Integer status) {
+            this.status = status;
+        }
+    }
+
+    public static class NoGetterParam {
+
+        private String name = "name";
+    }
+}